@@ -29,15 +29,32 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        unitTests {
+            isIncludeAndroidResources = true
+            all {
+                // DBHelperBenchmarkSuite is skipped unless sizes are given, e.g. ./gradlew :app:testDebugUnitTest
+                // --tests '*DBHelperBenchmarkSuite' -Pbenchmark.sizes=1000,10000,100000,1000000
+                it.systemProperty("benchmark.report",
+                    layout.buildDirectory.file("reports/benchmarks/dbhelper.json").get().asFile.path)
+                project.findProperty("benchmark.sizes")?.let { sizes ->
+                    it.systemProperty("benchmark.sizes", sizes)
+                    it.maxHeapSize = "4g" // a million rows do not fit the default test heap
+                }
+            }
+        }
+    }
 }
 
 dependencies {
 
+    implementation(project(":core"))
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
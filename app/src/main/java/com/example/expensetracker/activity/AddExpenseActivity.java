@@ -10,14 +10,13 @@ import android.widget.ArrayAdapter;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import com.example.expensetracker.R;
-import com.example.expensetracker.database.DBHelper;
-import com.example.expensetracker.model.Category;
 import com.example.expensetracker.model.Expense;
-import java.text.SimpleDateFormat;
+import com.example.expensetracker.recurring.RecurringExpenseJobService;
+import com.example.expensetracker.repository.ExpenseRepository;
+import com.example.expensetracker.utils.DateUtils;
+import com.example.expensetracker.utils.MoneyFormatter;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.List;
-import java.util.Locale;
 
 public class AddExpenseActivity extends AppCompatActivity {
 
@@ -25,9 +24,8 @@ public class AddExpenseActivity extends AppCompatActivity {
     private Spinner categorySpinner, recurringTypeSpinner;
     private CheckBox recurringCheckbox;
     private Button saveExpenseBtn, cancelBtn;
-    private DBHelper dbHelper;
+    private ExpenseRepository repository;
     private Calendar calendar;
-    private SimpleDateFormat dateFormatter;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -53,25 +51,22 @@ public class AddExpenseActivity extends AppCompatActivity {
         cancelBtn = findViewById(R.id.cancel_btn);
 
         calendar = Calendar.getInstance();
-        dateFormatter = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
     }
 
     private void initializeDatabase() {
-        dbHelper = new DBHelper(this);
+        repository = ExpenseRepository.getInstance(this);
     }
 
     private void setupSpinners() {
-        // Setup category spinner
-        List<Category> categories = dbHelper.getAllCategories();
-        List<String> categoryNames = new ArrayList<>();
-        for (Category category : categories) {
-            categoryNames.add(category.getName());
-        }
-
+        // Setup category spinner; names are filled in once the categories load
         ArrayAdapter<String> categoryAdapter = new ArrayAdapter<>(this,
-                android.R.layout.simple_spinner_item, categoryNames);
+                android.R.layout.simple_spinner_item, new ArrayList<>());
         categoryAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         categorySpinner.setAdapter(categoryAdapter);
+        // Names come from the category cache, without the totals aggregate
+        repository.getCategories(categories -> {
+            categoryAdapter.addAll(categories.getNames());
+        });
 
         // Setup recurring type spinner
         String[] recurringTypes = {"Daily", "Weekly", "Monthly"};
@@ -97,7 +92,7 @@ public class AddExpenseActivity extends AppCompatActivity {
     }
 
     private void setCurrentDate() {
-        dateEdit.setText(dateFormatter.format(calendar.getTime()));
+        dateEdit.setText(DateUtils.format(DateUtils.toEpochDay(calendar)));
     }
 
     private void showDatePicker() {
@@ -106,7 +101,7 @@ public class AddExpenseActivity extends AppCompatActivity {
                     calendar.set(Calendar.YEAR, year);
                     calendar.set(Calendar.MONTH, month);
                     calendar.set(Calendar.DAY_OF_MONTH, dayOfMonth);
-                    dateEdit.setText(dateFormatter.format(calendar.getTime()));
+                    dateEdit.setText(DateUtils.format(DateUtils.toEpochDay(calendar)));
                 },
                 calendar.get(Calendar.YEAR),
                 calendar.get(Calendar.MONTH),
@@ -119,6 +114,10 @@ public class AddExpenseActivity extends AppCompatActivity {
         String description = descriptionEdit.getText().toString().trim();
         String amountStr = amountEdit.getText().toString().trim();
         String date = dateEdit.getText().toString().trim();
+        if (categorySpinner.getSelectedItem() == null) {
+            Toast.makeText(this, "Categories are still loading", Toast.LENGTH_SHORT).show();
+            return;
+        }
         String category = categorySpinner.getSelectedItem().toString();
         boolean isRecurring = recurringCheckbox.isChecked();
         String recurringType = isRecurring ? recurringTypeSpinner.getSelectedItem().toString() : "";
@@ -136,9 +135,9 @@ public class AddExpenseActivity extends AppCompatActivity {
             return;
         }
 
-        double amount;
+        long amount;
         try {
-            amount = Double.parseDouble(amountStr);
+            amount = MoneyFormatter.parseCents(amountStr);
             if (amount <= 0) {
                 amountEdit.setError("Amount must be greater than 0");
                 amountEdit.requestFocus();
@@ -152,13 +151,28 @@ public class AddExpenseActivity extends AppCompatActivity {
 
         // Create and save expense
         Expense expense = new Expense(title, description, amount, category, date, isRecurring, recurringType);
-        long result = dbHelper.addExpense(expense);
+        saveExpenseBtn.setEnabled(false);
+        repository.addExpense(expense, new ExpenseRepository.Callback<Long>() {
+            @Override
+            public void onResult(Long result) {
+                if (result != -1) {
+                    if (isRecurring) {
+                        RecurringExpenseJobService.runSoon(AddExpenseActivity.this); // catch up occurrences already due
+                    }
+                    Toast.makeText(AddExpenseActivity.this, "Expense added successfully!", Toast.LENGTH_SHORT).show();
+                    finish();
+                } else {
+                    Toast.makeText(AddExpenseActivity.this, "Failed to add expense", Toast.LENGTH_SHORT).show();
+                    saveExpenseBtn.setEnabled(true);
+                }
+            }
 
-        if (result != -1) {
-            Toast.makeText(this, "Expense added successfully!", Toast.LENGTH_SHORT).show();
-            finish();
-        } else {
-            Toast.makeText(this, "Failed to add expense", Toast.LENGTH_SHORT).show();
-        }
+            @Override
+            public void onError(Exception e) {
+                ExpenseRepository.Callback.super.onError(e);
+                Toast.makeText(AddExpenseActivity.this, "Failed to add expense", Toast.LENGTH_SHORT).show();
+                saveExpenseBtn.setEnabled(true);
+            }
+        });
     }
 }
\ No newline at end of file
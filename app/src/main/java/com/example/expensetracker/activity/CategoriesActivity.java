@@ -10,16 +10,15 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.expensetracker.R;
 import com.example.expensetracker.adapter.CategoryAdapter;
-import com.example.expensetracker.database.DBHelper;
 import com.example.expensetracker.model.Category;
-import java.util.List;
+import com.example.expensetracker.repository.ExpenseRepository;
 import java.util.Random;
 
 public class CategoriesActivity extends AppCompatActivity implements CategoryAdapter.OnCategoryDeleteListener {
 
     private RecyclerView categoriesRecyclerView;
     private Button addCategoryBtn;
-    private DBHelper dbHelper;
+    private ExpenseRepository repository;
     private CategoryAdapter categoryAdapter;
     private String[] predefinedColors = {
             "#FF5722", "#E91E63", "#9C27B0", "#673AB7", "#3F51B5",
@@ -52,7 +51,7 @@ public class CategoriesActivity extends AppCompatActivity implements CategoryAda
     }
 
     private void initializeDatabase() {
-        dbHelper = new DBHelper(this);
+        repository = ExpenseRepository.getInstance(this);
     }
 
     private void setupRecyclerView() {
@@ -65,15 +64,17 @@ public class CategoriesActivity extends AppCompatActivity implements CategoryAda
     }
 
     private void loadCategories() {
-        List<Category> categories = dbHelper.getAllCategories();
-
-        if (categoryAdapter == null) {
-            categoryAdapter = new CategoryAdapter(this, categories);
-            categoryAdapter.setOnCategoryDeleteListener(this);
-            categoriesRecyclerView.setAdapter(categoryAdapter);
-        } else {
-            categoryAdapter.updateCategories(categories);
-        }
+        repository.getAllCategories(categories -> {
+            if (categoryAdapter == null) {
+                categoryAdapter = new CategoryAdapter(this, categories);
+                categoryAdapter.setOnCategoryDeleteListener(this);
+                categoriesRecyclerView.setAdapter(categoryAdapter);
+            } else {
+                categoryAdapter.updateCategories(categories);
+            }
+            // Colours are parsed once per snapshot rather than on every bind
+            repository.getCategories(categoryAdapter::setCategories);
+        });
     }
 
     private void showAddCategoryDialog() {
@@ -99,53 +100,72 @@ public class CategoriesActivity extends AppCompatActivity implements CategoryAda
     }
 
     private void addNewCategory(String categoryName) {
-        // Check if category already exists
-        List<Category> existingCategories = dbHelper.getAllCategories();
-        for (Category category : existingCategories) {
-            if (category.getName().equalsIgnoreCase(categoryName)) {
+        // Check if category already exists, ignoring case
+        repository.getCategories(existingCategories -> {
+            if (existingCategories.contains(categoryName)) {
                 Toast.makeText(this, "Category already exists", Toast.LENGTH_SHORT).show();
                 return;
             }
-        }
-
-        // Get random color
-        Random random = new Random();
-        String randomColor = predefinedColors[random.nextInt(predefinedColors.length)];
 
-        // Create and add category
-        Category newCategory = new Category(categoryName, randomColor);
-        long result = dbHelper.addCategory(newCategory);
-
-        if (result != -1) {
-            Toast.makeText(this, "Category added successfully!", Toast.LENGTH_SHORT).show();
-            loadCategories(); // Refresh the list
-        } else {
-            Toast.makeText(this, "Failed to add category", Toast.LENGTH_SHORT).show();
-        }
+            // Get random color
+            Random random = new Random();
+            String randomColor = predefinedColors[random.nextInt(predefinedColors.length)];
+
+            // Create and add category
+            Category newCategory = new Category(categoryName, randomColor);
+            repository.addCategory(newCategory, new ExpenseRepository.Callback<Long>() {
+                @Override
+                public void onResult(Long result) {
+                    if (result != -1) {
+                        Toast.makeText(CategoriesActivity.this, "Category added successfully!", Toast.LENGTH_SHORT).show();
+                        loadCategories(); // Refresh the list
+                    } else {
+                        Toast.makeText(CategoriesActivity.this, "Failed to add category", Toast.LENGTH_SHORT).show();
+                    }
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    ExpenseRepository.Callback.super.onError(e);
+                    Toast.makeText(CategoriesActivity.this, "Failed to add category", Toast.LENGTH_SHORT).show();
+                }
+            });
+        });
     }
 
     @Override
     public void onDeleteCategory(int categoryId, String categoryName) {
-        // Check if category has expenses
-        double categoryTotal = dbHelper.getCategoryTotal(categoryName);
-
-        if (categoryTotal > 0) {
-            new AlertDialog.Builder(this)
-                    .setTitle("Cannot Delete Category")
-                    .setMessage("This category has expenses associated with it. Please delete or move the expenses first.")
-                    .setPositiveButton("OK", null)
-                    .show();
-            return;
-        }
-
-        // Show confirmation dialog
+        // Show confirmation dialog; the database refuses to delete a category that has expenses
         new AlertDialog.Builder(this)
                 .setTitle("Delete Category")
                 .setMessage("Are you sure you want to delete \"" + categoryName + "\"?")
                 .setPositiveButton("Delete", (dialog, which) -> {
-                    dbHelper.deleteCategory(categoryId);
-                    Toast.makeText(this, "Category deleted successfully!", Toast.LENGTH_SHORT).show();
-                    loadCategories(); // Refresh the list
+                    repository.deleteCategory(categoryId, new ExpenseRepository.Callback<Boolean>() {
+                        @Override
+                        public void onResult(Boolean deleted) {
+                            if (isFinishing()) {
+                                return;
+                            }
+                            if (!deleted) {
+                                new AlertDialog.Builder(CategoriesActivity.this)
+                                        .setTitle("Cannot Delete Category")
+                                        .setMessage("This category has expenses associated with it. Please delete or move the expenses first.")
+                                        .setPositiveButton("OK", null)
+                                        .show();
+                                return;
+                            }
+                            Toast.makeText(CategoriesActivity.this, "Category deleted successfully!", Toast.LENGTH_SHORT).show();
+                            loadCategories(); // Refresh the list
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            ExpenseRepository.Callback.super.onError(e);
+                            if (!isFinishing()) {
+                                Toast.makeText(CategoriesActivity.this, "Failed to delete category", Toast.LENGTH_SHORT).show();
+                            }
+                        }
+                    });
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
@@ -11,14 +11,13 @@ import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import com.example.expensetracker.R;
-import com.example.expensetracker.database.DBHelper;
-import com.example.expensetracker.model.Category;
 import com.example.expensetracker.model.Expense;
-import java.text.SimpleDateFormat;
+import com.example.expensetracker.recurring.RecurringExpenseJobService;
+import com.example.expensetracker.repository.ExpenseRepository;
+import com.example.expensetracker.utils.DateUtils;
+import com.example.expensetracker.utils.MoneyFormatter;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.List;
-import java.util.Locale;
 
 public class EditExpenseActivity extends AppCompatActivity {
 
@@ -26,9 +25,8 @@ public class EditExpenseActivity extends AppCompatActivity {
     private Spinner categorySpinner, recurringTypeSpinner;
     private CheckBox recurringCheckbox;
     private Button updateExpenseBtn, deleteExpenseBtn, cancelBtn;
-    private DBHelper dbHelper;
+    private ExpenseRepository repository;
     private Calendar calendar;
-    private SimpleDateFormat dateFormatter;
     private int expenseId;
     private Expense currentExpense;
 
@@ -47,9 +45,8 @@ public class EditExpenseActivity extends AppCompatActivity {
 
         initializeViews();
         initializeDatabase();
-        setupSpinners();
+        setupSpinners(); // loads the expense once the category spinner is filled
         setupClickListeners();
-        loadExpenseData();
     }
 
     private void initializeViews() {
@@ -65,7 +62,6 @@ public class EditExpenseActivity extends AppCompatActivity {
         cancelBtn = findViewById(R.id.cancel_btn);
 
         calendar = Calendar.getInstance();
-        dateFormatter = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
 
         // Setup toolbar
         if (getSupportActionBar() != null) {
@@ -75,21 +71,20 @@ public class EditExpenseActivity extends AppCompatActivity {
     }
 
     private void initializeDatabase() {
-        dbHelper = new DBHelper(this);
+        repository = ExpenseRepository.getInstance(this);
     }
 
     private void setupSpinners() {
-        // Setup category spinner
-        List<Category> categories = dbHelper.getAllCategories();
-        List<String> categoryNames = new ArrayList<>();
-        for (Category category : categories) {
-            categoryNames.add(category.getName());
-        }
-
+        // Setup category spinner; the expense is loaded after the names so its category can be selected
         ArrayAdapter<String> categoryAdapter = new ArrayAdapter<>(this,
-                android.R.layout.simple_spinner_item, categoryNames);
+                android.R.layout.simple_spinner_item, new ArrayList<>());
         categoryAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         categorySpinner.setAdapter(categoryAdapter);
+        // Names come from the category cache, without the totals aggregate
+        repository.getCategories(categories -> {
+            categoryAdapter.addAll(categories.getNames());
+            loadExpenseData();
+        });
 
         // Setup recurring type spinner
         String[] recurringTypes = {"Daily", "Weekly", "Monthly"};
@@ -114,7 +109,11 @@ public class EditExpenseActivity extends AppCompatActivity {
     }
 
     private void loadExpenseData() {
-        currentExpense = dbHelper.getExpense(expenseId);
+        repository.getExpense(expenseId, this::populateExpense);
+    }
+
+    private void populateExpense(Expense expense) {
+        currentExpense = expense;
         if (currentExpense == null) {
             Toast.makeText(this, "Error: Expense not found", Toast.LENGTH_SHORT).show();
             finish();
@@ -124,7 +123,7 @@ public class EditExpenseActivity extends AppCompatActivity {
         // Populate fields with current expense data
         titleEdit.setText(currentExpense.getTitle());
         descriptionEdit.setText(currentExpense.getDescription());
-        amountEdit.setText(String.valueOf(currentExpense.getAmount()));
+        amountEdit.setText(MoneyFormatter.formatPlain(currentExpense.getAmountCents()));
         dateEdit.setText(currentExpense.getDate());
 
         // Set category spinner selection
@@ -153,7 +152,7 @@ public class EditExpenseActivity extends AppCompatActivity {
                     calendar.set(Calendar.YEAR, year);
                     calendar.set(Calendar.MONTH, month);
                     calendar.set(Calendar.DAY_OF_MONTH, dayOfMonth);
-                    dateEdit.setText(dateFormatter.format(calendar.getTime()));
+                    dateEdit.setText(DateUtils.format(DateUtils.toEpochDay(calendar)));
                 },
                 calendar.get(Calendar.YEAR),
                 calendar.get(Calendar.MONTH),
@@ -162,6 +161,10 @@ public class EditExpenseActivity extends AppCompatActivity {
     }
 
     private void updateExpense() {
+        if (currentExpense == null) {
+            return; // still loading
+        }
+
         String title = titleEdit.getText().toString().trim();
         String description = descriptionEdit.getText().toString().trim();
         String amountStr = amountEdit.getText().toString().trim();
@@ -183,9 +186,9 @@ public class EditExpenseActivity extends AppCompatActivity {
             return;
         }
 
-        double amount;
+        long amount;
         try {
-            amount = Double.parseDouble(amountStr);
+            amount = MoneyFormatter.parseCents(amountStr);
             if (amount <= 0) {
                 amountEdit.setError("Amount must be greater than 0");
                 amountEdit.requestFocus();
@@ -200,20 +203,32 @@ public class EditExpenseActivity extends AppCompatActivity {
         // Update expense
         currentExpense.setTitle(title);
         currentExpense.setDescription(description);
-        currentExpense.setAmount(amount);
+        currentExpense.setAmountCents(amount);
         currentExpense.setCategory(category);
         currentExpense.setDate(date);
         currentExpense.setRecurring(isRecurring);
         currentExpense.setRecurringType(recurringType);
 
-        int result = dbHelper.updateExpense(currentExpense);
+        repository.updateExpense(currentExpense, new ExpenseRepository.Callback<Integer>() {
+            @Override
+            public void onResult(Integer result) {
+                if (result > 0) {
+                    if (isRecurring) {
+                        RecurringExpenseJobService.runSoon(EditExpenseActivity.this); // catch up occurrences already due
+                    }
+                    Toast.makeText(EditExpenseActivity.this, "Expense updated successfully!", Toast.LENGTH_SHORT).show();
+                    finish();
+                } else {
+                    Toast.makeText(EditExpenseActivity.this, "Failed to update expense", Toast.LENGTH_SHORT).show();
+                }
+            }
 
-        if (result > 0) {
-            Toast.makeText(this, "Expense updated successfully!", Toast.LENGTH_SHORT).show();
-            finish();
-        } else {
-            Toast.makeText(this, "Failed to update expense", Toast.LENGTH_SHORT).show();
-        }
+            @Override
+            public void onError(Exception e) {
+                ExpenseRepository.Callback.super.onError(e);
+                Toast.makeText(EditExpenseActivity.this, "Failed to update expense", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void showDeleteConfirmation() {
@@ -226,9 +241,19 @@ public class EditExpenseActivity extends AppCompatActivity {
     }
 
     private void deleteExpense() {
-        dbHelper.deleteExpense(expenseId);
-        Toast.makeText(this, "Expense deleted successfully!", Toast.LENGTH_SHORT).show();
-        finish();
+        repository.deleteExpense(expenseId, new ExpenseRepository.Callback<Void>() {
+            @Override
+            public void onResult(Void result) {
+                Toast.makeText(EditExpenseActivity.this, "Expense deleted successfully!", Toast.LENGTH_SHORT).show();
+                finish();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                ExpenseRepository.Callback.super.onError(e);
+                Toast.makeText(EditExpenseActivity.this, "Failed to delete expense", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     @Override
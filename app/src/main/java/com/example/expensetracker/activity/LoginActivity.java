@@ -9,7 +9,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import com.example.expensetracker.R;
-import com.example.expensetracker.database.DBHelper;
+import com.example.expensetracker.repository.ExpenseRepository;
 import com.example.expensetracker.utils.SessionManager;
 
 public class LoginActivity extends AppCompatActivity {
@@ -17,7 +17,7 @@ public class LoginActivity extends AppCompatActivity {
     private EditText etUsername, etPassword;
     private Button btnLogin;
     private TextView tvRegisterLink;
-    private DBHelper dbHelper;
+    private ExpenseRepository repository;
     private SessionManager sessionManager;
 
     @Override
@@ -25,7 +25,7 @@ public class LoginActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
 
         // Initialize session manager
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance(this);
 
         // Check if user is already logged in
         if (sessionManager.isLoggedIn()) {
@@ -54,7 +54,7 @@ public class LoginActivity extends AppCompatActivity {
     }
 
     private void initializeDatabase() {
-        dbHelper = new DBHelper(this);
+        repository = ExpenseRepository.getInstance(this);
     }
 
     private void setupClickListeners() {
@@ -68,8 +68,11 @@ public class LoginActivity extends AppCompatActivity {
     }
 
     private void handleIntentExtras() {
-        // Pre-fill username if coming from registration
+        // Pre-fill username if coming from registration, else the last one remembered
         String registeredUsername = getIntent().getStringExtra("registered_username");
+        if (registeredUsername == null) {
+            registeredUsername = sessionManager.getSession().getUsername();
+        }
         if (registeredUsername != null) {
             etUsername.setText(registeredUsername);
             etPassword.requestFocus();
@@ -91,21 +94,33 @@ public class LoginActivity extends AppCompatActivity {
         }
 
         // Attempt login
-        boolean isValid = dbHelper.checkUser(username, password);
-
-        if (isValid) {
-            // Save login session
-            int userId = dbHelper.getUserId(username);
-            sessionManager.saveLogin(username, userId);
-
-            Toast.makeText(this, "Login successful! Welcome back, " + username, Toast.LENGTH_SHORT).show();
-            navigateToMainActivity();
-        } else {
-            // Invalid credentials
-            Toast.makeText(this, "Invalid username or password", Toast.LENGTH_SHORT).show();
-            etPassword.setText(""); // Clear password field
-            etUsername.requestFocus();
-        }
+        btnLogin.setEnabled(false);
+        repository.login(username, password, new ExpenseRepository.Callback<Integer>() {
+            @Override
+            public void onResult(Integer userId) {
+                btnLogin.setEnabled(true);
+
+                if (userId != -1) {
+                    // Save login session
+                    sessionManager.saveLogin(username, userId);
+
+                    Toast.makeText(LoginActivity.this, "Login successful! Welcome back, " + username, Toast.LENGTH_SHORT).show();
+                    navigateToMainActivity();
+                } else {
+                    // Invalid credentials
+                    Toast.makeText(LoginActivity.this, "Invalid username or password", Toast.LENGTH_SHORT).show();
+                    etPassword.setText(""); // Clear password field
+                    etUsername.requestFocus();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                ExpenseRepository.Callback.super.onError(e);
+                btnLogin.setEnabled(true);
+                Toast.makeText(LoginActivity.this, "Login failed, please try again", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private boolean validateInput(String username, String password) {
@@ -1,39 +1,71 @@
 package com.example.expensetracker.activity;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.provider.DocumentsContract;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.widget.TextView;
 import android.widget.Button;
+import android.widget.Toast;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.expensetracker.R;
 import com.example.expensetracker.adapter.ExpenseAdapter;
-import com.example.expensetracker.database.DBHelper;
+import com.example.expensetracker.exporter.ExpenseExportWriter;
+import com.example.expensetracker.model.CategoryMonthTotal;
 import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.model.ImportResult;
+import com.example.expensetracker.model.SpendingOverview;
+import com.example.expensetracker.recurring.RecurringExpenseJobService;
+import com.example.expensetracker.repository.ExpenseRepository;
+import com.example.expensetracker.utils.MoneyFormatter;
 import com.example.expensetracker.utils.SessionManager;
-import java.text.DecimalFormat;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Locale;
 
 public class MainActivity extends AppCompatActivity {
 
     private TextView totalExpensesText, recentExpensesTitle, welcomeText;
+    private TextView spendTodayText, spendWeekText, spendMonthText, spendComparisonText, topCategoriesText;
     private RecyclerView recentExpensesRecyclerView;
     private Button addExpenseBtn, viewHistoryBtn, categoriesBtn;
-    private DBHelper dbHelper;
+    private ExpenseRepository repository;
     private SessionManager sessionManager;
     private ExpenseAdapter expenseAdapter;
-    private DecimalFormat decimalFormat;
+    private AlertDialog exportDialog; // null unless an export is running
+
+    private static final int RECENT_EXPENSES_LIMIT = 5;
+    private static final int TOP_CATEGORIES_SHOWN = 3;
+    private static final String DB_METRICS_FILE = "db_metrics.txt";
+
+    private final ActivityResultLauncher<String[]> importLauncher =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), this::importExpenses);
+    private final ActivityResultLauncher<String> csvExportLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(ExpenseExportWriter.Format.CSV.getMimeType()),
+            uri -> exportExpenses(uri, ExpenseExportWriter.Format.CSV));
+    private final ActivityResultLauncher<String> jsonExportLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(ExpenseExportWriter.Format.JSON_LINES.getMimeType()),
+            uri -> exportExpenses(uri, ExpenseExportWriter.Format.JSON_LINES));
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
         // Initialize session manager
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance(this);
 
         // Check if user is logged in
         if (!sessionManager.isLoggedIn()) {
@@ -48,6 +80,9 @@ public class MainActivity extends AppCompatActivity {
         setupRecyclerView();
         setupClickListeners();
         loadDashboardData();
+
+        // Recurring expenses are generated by a background job, not here
+        RecurringExpenseJobService.schedule(this);
     }
 
     @Override
@@ -63,6 +98,16 @@ public class MainActivity extends AppCompatActivity {
         loadDashboardData(); // Refresh data when returning to dashboard
     }
 
+    @Override
+    protected void onDestroy() {
+        // A running export keeps going, but its dialog cannot outlive the window
+        if (exportDialog != null) {
+            exportDialog.dismiss();
+            exportDialog = null;
+        }
+        super.onDestroy();
+    }
+
     private void initializeViews() {
         totalExpensesText = findViewById(R.id.total_expenses_text);
         recentExpensesTitle = findViewById(R.id.recent_expenses_title);
@@ -71,8 +116,11 @@ public class MainActivity extends AppCompatActivity {
         viewHistoryBtn = findViewById(R.id.view_history_btn);
         categoriesBtn = findViewById(R.id.categories_btn);
         welcomeText = findViewById(R.id.welcome_text); // Optional welcome text
-
-        decimalFormat = new DecimalFormat("#.##");
+        spendTodayText = findViewById(R.id.spend_today_text);
+        spendWeekText = findViewById(R.id.spend_week_text);
+        spendMonthText = findViewById(R.id.spend_month_text);
+        spendComparisonText = findViewById(R.id.spend_comparison_text);
+        topCategoriesText = findViewById(R.id.top_categories_text);
 
         // Setup action bar
         if (getSupportActionBar() != null) {
@@ -82,7 +130,7 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void initializeDatabase() {
-        dbHelper = new DBHelper(this);
+        repository = ExpenseRepository.getInstance(this);
     }
 
     private void setupRecyclerView() {
@@ -108,29 +156,27 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void loadDashboardData() {
-        // Load total expenses
-        double totalExpenses = dbHelper.getTotalExpenses();
-        totalExpensesText.setText("$" + decimalFormat.format(totalExpenses));
-
-        // Load recent expenses (last 5)
-        List<Expense> allExpenses = dbHelper.getAllExpenses();
-        List<Expense> recentExpenses;
-
-        if (allExpenses.size() > 5) {
-            recentExpenses = allExpenses.subList(0, 5);
-        } else {
-            recentExpenses = allExpenses;
-        }
-
-        if (expenseAdapter == null) {
-            expenseAdapter = new ExpenseAdapter(this, recentExpenses);
-            recentExpensesRecyclerView.setAdapter(expenseAdapter);
-        } else {
-            expenseAdapter.updateExpenses(recentExpenses);
-        }
+        // Load total and recent expenses (last 5) in a single query
+        repository.getDashboardSummary(RECENT_EXPENSES_LIMIT, summary -> {
+            totalExpensesText.setText(MoneyFormatter.format(summary.getTotalExpensesCents()));
+
+            List<Expense> recentExpenses = summary.getRecentExpenses();
+
+            if (expenseAdapter == null) {
+                expenseAdapter = new ExpenseAdapter(this, recentExpenses);
+                recentExpensesRecyclerView.setAdapter(expenseAdapter);
+            } else {
+                expenseAdapter.updateExpenses(recentExpenses);
+            }
+            // Colours follow category edits made while this screen was in the background
+            repository.getCategories(expenseAdapter::setCategories);
+
+            // Update recent expenses title
+            recentExpensesTitle.setText("Recent Expenses (" + recentExpenses.size() + ")");
+        });
 
-        // Update recent expenses title
-        recentExpensesTitle.setText("Recent Expenses (" + recentExpenses.size() + ")");
+        // Closed periods are cached by the analytics module, so this only queries the current ones
+        repository.getSpendingOverview(this::showSpendingOverview);
 
         // Update welcome message if welcomeText exists
         if (welcomeText != null) {
@@ -139,9 +185,32 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    private void showSpendingOverview(SpendingOverview overview) {
+        spendTodayText.setText("Today\n" + MoneyFormatter.format(overview.getTodayCents()));
+        spendWeekText.setText("This week\n" + MoneyFormatter.format(overview.getThisWeekCents()));
+        spendMonthText.setText("This month\n" + MoneyFormatter.format(overview.getThisMonthCents()));
+        spendComparisonText.setText("Last month: " + MoneyFormatter.format(overview.getLastMonthCents()));
+
+        List<CategoryMonthTotal> byCategory = overview.getThisMonthByCategory();
+        if (byCategory.isEmpty()) {
+            topCategoriesText.setText("No spending this month");
+            return;
+        }
+        StringBuilder top = new StringBuilder("Top this month: ");
+        for (int i = 0; i < byCategory.size() && i < TOP_CATEGORIES_SHOWN; i++) {
+            CategoryMonthTotal total = byCategory.get(i);
+            if (i > 0) {
+                top.append(", ");
+            }
+            top.append(total.getCategory()).append(' ').append(MoneyFormatter.format(total.getTotalCents()));
+        }
+        topCategoriesText.setText(top);
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main_menu, menu);
+        menu.findItem(R.id.action_record_db_metrics).setChecked(repository.isDatabaseMetricsEnabled());
         return true;
     }
 
@@ -149,6 +218,33 @@ public class MainActivity extends AppCompatActivity {
     public boolean onOptionsItemSelected(MenuItem item) {
         int id = item.getItemId();
 
+        if (id == R.id.action_import) {
+            importLauncher.launch(new String[]{"text/*", "application/*"});
+            return true;
+        }
+
+        if (id == R.id.action_export_csv) {
+            csvExportLauncher.launch("expenses." + ExpenseExportWriter.Format.CSV.getExtension());
+            return true;
+        }
+
+        if (id == R.id.action_export_json) {
+            jsonExportLauncher.launch("expenses." + ExpenseExportWriter.Format.JSON_LINES.getExtension());
+            return true;
+        }
+
+        if (id == R.id.action_record_db_metrics) {
+            boolean enabled = !item.isChecked();
+            repository.setDatabaseMetricsEnabled(enabled);
+            item.setChecked(enabled);
+            return true;
+        }
+
+        if (id == R.id.action_dump_db_metrics) {
+            dumpDatabaseMetrics();
+            return true;
+        }
+
         if (id == R.id.action_logout) {
             showLogoutConfirmation();
             return true;
@@ -157,6 +253,149 @@ public class MainActivity extends AppCompatActivity {
         return super.onOptionsItemSelected(item);
     }
 
+    private void importExpenses(Uri uri) {
+        if (uri == null) {
+            return; // picker cancelled
+        }
+
+        String type = getContentResolver().getType(uri);
+        String name = uri.getLastPathSegment() != null ? uri.getLastPathSegment().toLowerCase(Locale.ROOT) : "";
+        boolean isOfx = "application/x-ofx".equals(type) || name.endsWith(".ofx") || name.endsWith(".qfx");
+
+        InputStream input;
+        try {
+            input = getContentResolver().openInputStream(uri);
+        } catch (FileNotFoundException e) {
+            input = null;
+        }
+        if (input == null) {
+            Toast.makeText(this, "Could not open file", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        recentExpensesTitle.setText("Importing...");
+        repository.importExpenses(input, isOfx,
+                rows -> recentExpensesTitle.setText("Importing... " + rows + " expenses"),
+                new ExpenseRepository.Callback<ImportResult>() {
+                    @Override
+                    public void onResult(ImportResult result) {
+                        String message = "Imported " + result.getImportedRows() + " expenses";
+                        if (result.getSkippedRows() > 0) {
+                            message += ", skipped " + result.getSkippedRows() + " rows that could not be read";
+                        }
+                        Toast.makeText(MainActivity.this, message,
+                                result.getSkippedRows() > 0 ? Toast.LENGTH_LONG : Toast.LENGTH_SHORT).show();
+                        loadDashboardData();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        ExpenseRepository.Callback.super.onError(e);
+                        Toast.makeText(MainActivity.this, "Import failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                        loadDashboardData();
+                    }
+                });
+    }
+
+    private void exportExpenses(Uri uri, ExpenseExportWriter.Format format) {
+        if (uri == null) {
+            return; // picker cancelled
+        }
+
+        OutputStream output;
+        try {
+            output = getContentResolver().openOutputStream(uri);
+        } catch (FileNotFoundException e) {
+            output = null;
+        }
+        if (output == null) {
+            Toast.makeText(this, "Could not create file", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        CancellationSignal[] signal = new CancellationSignal[1];
+        AlertDialog progressDialog = new AlertDialog.Builder(this)
+                .setTitle("Exporting")
+                .setMessage("Starting...")
+                .setCancelable(false)
+                .setNegativeButton("Cancel", (dialog, which) -> signal[0].cancel())
+                .show();
+        exportDialog = progressDialog;
+        signal[0] = repository.exportExpenses(output, format, new ExpenseFilter(),
+                rows -> {
+                    if (!isActivityGone()) {
+                        progressDialog.setMessage(rows + " expenses written");
+                    }
+                },
+                new ExpenseRepository.Callback<Integer>() {
+                    @Override
+                    public void onResult(Integer exported) {
+                        if (isActivityGone()) {
+                            return;
+                        }
+                        dismissExportDialog(progressDialog);
+                        Toast.makeText(MainActivity.this, "Exported " + exported + " expenses", Toast.LENGTH_SHORT).show();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        deletePartialExport(uri);
+                        if (isActivityGone()) {
+                            return;
+                        }
+                        dismissExportDialog(progressDialog);
+                        if (e instanceof OperationCanceledException) {
+                            Toast.makeText(MainActivity.this, "Export cancelled", Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        ExpenseRepository.Callback.super.onError(e);
+                        Toast.makeText(MainActivity.this, "Export failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                    }
+                });
+    }
+
+    private void dismissExportDialog(AlertDialog dialog) {
+        dialog.dismiss();
+        if (exportDialog == dialog) {
+            exportDialog = null;
+        }
+    }
+
+    /**
+     * @return true once the activity is finishing or destroyed, so its windows must not be touched
+     */
+    private boolean isActivityGone() {
+        return isFinishing() || isDestroyed();
+    }
+
+    private void dumpDatabaseMetrics() {
+        // App-specific external storage can be pulled with adb without root; it may be unmounted
+        File dir = getExternalFilesDir(null);
+        if (dir == null) {
+            dir = getFilesDir();
+        }
+        repository.dumpDatabaseMetrics(new File(dir, DB_METRICS_FILE), new ExpenseRepository.Callback<File>() {
+            @Override
+            public void onResult(File file) {
+                Toast.makeText(MainActivity.this, "DB metrics written to " + file.getPath(), Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                ExpenseRepository.Callback.super.onError(e);
+                Toast.makeText(MainActivity.this, "Could not write DB metrics", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    private void deletePartialExport(Uri uri) {
+        try {
+            DocumentsContract.deleteDocument(getContentResolver(), uri);
+        } catch (FileNotFoundException | RuntimeException e) {
+            // Leave it; the provider may not support deletion
+        }
+    }
+
     private void showLogoutConfirmation() {
         new AlertDialog.Builder(this)
                 .setTitle("Logout")
@@ -9,14 +9,14 @@ import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import com.example.expensetracker.R;
-import com.example.expensetracker.database.DBHelper;
+import com.example.expensetracker.repository.ExpenseRepository;
 
 public class RegisterActivity extends AppCompatActivity {
 
     private EditText etUsername, etPassword, etConfirmPassword;
     private Button btnRegister;
     private TextView tvLoginLink;
-    private DBHelper dbHelper;
+    private ExpenseRepository repository;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -42,7 +42,7 @@ public class RegisterActivity extends AppCompatActivity {
     }
 
     private void initializeDatabase() {
-        dbHelper = new DBHelper(this);
+        repository = ExpenseRepository.getInstance(this);
     }
 
     private void setupClickListeners() {
@@ -72,22 +72,35 @@ public class RegisterActivity extends AppCompatActivity {
         }
 
         // Attempt registration
-        boolean success = dbHelper.insertUser(username, password);
-
-        if (success) {
-            Toast.makeText(this, "Registration successful! Please log in.", Toast.LENGTH_SHORT).show();
-
-            // Navigate to login screen
-            Intent intent = new Intent(RegisterActivity.this, LoginActivity.class);
-            intent.putExtra("registered_username", username); // Pre-fill username in login
-            startActivity(intent);
-            finish();
-        } else {
-            // Username already exists
-            etUsername.setError("Username already exists. Please choose a different username.");
-            etUsername.requestFocus();
-            Toast.makeText(this, "Username already exists", Toast.LENGTH_SHORT).show();
-        }
+        btnRegister.setEnabled(false);
+        repository.insertUser(username, password, new ExpenseRepository.Callback<Boolean>() {
+            @Override
+            public void onResult(Boolean success) {
+                btnRegister.setEnabled(true);
+
+                if (success) {
+                    Toast.makeText(RegisterActivity.this, "Registration successful! Please log in.", Toast.LENGTH_SHORT).show();
+
+                    // Navigate to login screen
+                    Intent intent = new Intent(RegisterActivity.this, LoginActivity.class);
+                    intent.putExtra("registered_username", username); // Pre-fill username in login
+                    startActivity(intent);
+                    finish();
+                } else {
+                    // Username already exists
+                    etUsername.setError("Username already exists. Please choose a different username.");
+                    etUsername.requestFocus();
+                    Toast.makeText(RegisterActivity.this, "Username already exists", Toast.LENGTH_SHORT).show();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                ExpenseRepository.Callback.super.onError(e);
+                btnRegister.setEnabled(true);
+                Toast.makeText(RegisterActivity.this, "Registration failed, please try again", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private boolean validateInput(String username, String password, String confirmPassword) {
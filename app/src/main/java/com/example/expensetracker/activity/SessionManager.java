@@ -1,34 +0,0 @@
-package com.example.expensetracker.activity;
-
-import android.content.Context;
-import android.content.SharedPreferences;
-
-public class SessionManager {
-    private static final String PREF_NAME = "user_session";
-    private static final String KEY_USERNAME = "username";
-    private SharedPreferences prefs;
-    private SharedPreferences.Editor editor;
-
-    public SessionManager(Context context) {
-        prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        editor = prefs.edit();
-    }
-
-    public void saveLogin(String username) {
-        editor.putString(KEY_USERNAME, username);
-        editor.apply();
-    }
-
-    public String getLoggedInUser() {
-        return prefs.getString(KEY_USERNAME, null);
-    }
-
-    public void clearSession() {
-        editor.clear();
-        editor.apply();
-    }
-
-    public boolean isLoggedIn() {
-        return getLoggedInUser() != null;
-    }
-}
\ No newline at end of file
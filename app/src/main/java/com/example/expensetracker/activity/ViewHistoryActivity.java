@@ -1,24 +1,68 @@
 package com.example.expensetracker.activity;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.ArrayAdapter;
+import android.widget.CheckBox;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.Spinner;
 import android.widget.TextView;
+import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.expensetracker.R;
 import com.example.expensetracker.adapter.ExpenseAdapter;
+import com.example.expensetracker.adapter.ExpenseColumnsAdapter;
+import com.example.expensetracker.database.CategoryCache;
 import com.example.expensetracker.database.DBHelper;
 import com.example.expensetracker.model.Expense;
-import java.text.DecimalFormat;
+import com.example.expensetracker.model.ExpenseColumns;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.repository.ExpenseRepository;
+import com.example.expensetracker.utils.DateUtils;
+import com.example.expensetracker.utils.MoneyFormatter;
+import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.List;
 
 public class ViewHistoryActivity extends AppCompatActivity {
 
-    private TextView totalExpensesText, expenseCountText;
+    private TextView totalExpensesText, expenseCountText, listTitleText;
+    private EditText searchEditText;
     private RecyclerView expensesRecyclerView;
-    private DBHelper dbHelper;
+    private ExpenseRepository repository;
     private ExpenseAdapter expenseAdapter;
-    private DecimalFormat decimalFormat;
+    private ExpenseColumnsAdapter columnsAdapter;
+    private boolean compactList; // load the whole history as columns instead of paging
+    private boolean isLoadingPage;
+    private boolean hasMorePages;
+    private int listGeneration;
+    private String searchQuery = "";
+    private ExpenseFilter filter = new ExpenseFilter();
+    private int filterPeriod = PERIOD_ALL_TIME;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::runSearch;
+
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 15; // rows from the end before loading the next page
+    private static final int SEARCH_LIMIT = 100;
+    private static final long SEARCH_DEBOUNCE_MS = 250; // wait for a pause in typing before querying
+
+    // Period choices in the filter dialog, in spinner order
+    private static final String[] PERIODS = {"All time", "Last 7 days", "Last 30 days", "This month"};
+    private static final int PERIOD_ALL_TIME = 0;
+    private static final int PERIOD_LAST_7_DAYS = 1;
+    private static final int PERIOD_LAST_30_DAYS = 2;
+    private static final int PERIOD_THIS_MONTH = 3;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -28,6 +72,7 @@ public class ViewHistoryActivity extends AppCompatActivity {
         initializeViews();
         initializeDatabase();
         setupRecyclerView();
+        setupSearch();
         loadExpenseHistory();
     }
 
@@ -37,12 +82,18 @@ public class ViewHistoryActivity extends AppCompatActivity {
         loadExpenseHistory(); // Refresh data when returning from edit
     }
 
+    @Override
+    protected void onDestroy() {
+        searchHandler.removeCallbacks(searchRunnable);
+        super.onDestroy();
+    }
+
     private void initializeViews() {
         totalExpensesText = findViewById(R.id.total_expenses_text);
         expenseCountText = findViewById(R.id.expense_count_text);
         expensesRecyclerView = findViewById(R.id.expenses_recycler_view);
-
-        decimalFormat = new DecimalFormat("#.##");
+        listTitleText = findViewById(R.id.list_title_text);
+        searchEditText = findViewById(R.id.search_edit_text);
 
         // Setup toolbar
         if (getSupportActionBar() != null) {
@@ -52,29 +103,290 @@ public class ViewHistoryActivity extends AppCompatActivity {
     }
 
     private void initializeDatabase() {
-        dbHelper = new DBHelper(this);
+        repository = ExpenseRepository.getInstance(this);
     }
 
     private void setupRecyclerView() {
-        expensesRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        expensesRecyclerView.setLayoutManager(layoutManager);
         expensesRecyclerView.setHasFixedSize(true);
+
+        // Load the next page as the user nears the end of what is already loaded
+        expensesRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0 || isLoadingPage || !hasMorePages || expenseAdapter == null) {
+                    return;
+                }
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= expenseAdapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
     }
 
-    private void loadExpenseHistory() {
-        List<Expense> expenses = dbHelper.getAllExpenses();
+    private void setupSearch() {
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
 
-        // Update summary information
-        double totalAmount = dbHelper.getTotalExpenses();
-        totalExpensesText.setText("$" + decimalFormat.format(totalAmount));
-        expenseCountText.setText(expenses.size() + " expenses");
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
 
-        // Setup adapter
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchQuery = s.toString().trim();
+                // Restart the countdown on every keystroke so only the last query runs
+                searchHandler.removeCallbacks(searchRunnable);
+                searchHandler.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MS);
+            }
+        });
+    }
+
+    private void runSearch() {
+        if (searchQuery.isEmpty()) {
+            loadExpenseHistory();
+            return;
+        }
+
+        // Search results are a single ranked list, so paging stops until the search is cleared
+        int generation = ++listGeneration;
+        hasMorePages = false;
+        isLoadingPage = false;
+        String query = searchQuery;
+        // Searches within the filter, so the results agree with the filtered totals
+        repository.searchExpenses(query, filter, SEARCH_LIMIT, results -> {
+            if (generation != listGeneration) {
+                return;
+            }
+            listTitleText.setText(results.size() + " results for \"" + query + "\"");
+            showExpenses(results);
+        });
+    }
+
+    private void showExpenses(List<Expense> expenses) {
         if (expenseAdapter == null) {
             expenseAdapter = new ExpenseAdapter(this, expenses);
-            expensesRecyclerView.setAdapter(expenseAdapter);
         } else {
             expenseAdapter.updateExpenses(expenses);
         }
+        showAdapter(expenseAdapter);
+        // Colours follow category edits made while this screen was in the background
+        repository.getCategories(expenseAdapter::setCategories);
+    }
+
+    private void showColumns(ExpenseColumns columns) {
+        if (columnsAdapter == null) {
+            columnsAdapter = new ExpenseColumnsAdapter(this);
+        }
+        columnsAdapter.setColumns(columns);
+        showAdapter(columnsAdapter);
+        repository.getCategories(columnsAdapter::setCategories);
+    }
+
+    private void showAdapter(RecyclerView.Adapter<?> adapter) {
+        if (expensesRecyclerView.getAdapter() != adapter) {
+            expensesRecyclerView.setAdapter(adapter);
+        }
+    }
+
+    private void loadExpenseHistory() {
+        // Update summary information for the expenses the filter lets through
+        repository.getTotalExpenses(filter, totalCents ->
+                totalExpensesText.setText(MoneyFormatter.format(totalCents)));
+        repository.getExpenseCount(filter, count -> expenseCountText.setText(count + " expenses"));
+
+        if (!searchQuery.isEmpty()) {
+            runSearch(); // Keep showing the active search, refreshed
+            return;
+        }
+
+        // Load the first page only; later pages are fetched on scroll.
+        // Bumping the generation drops any page still in flight for the previous list.
+        listTitleText.setText(filter.isEmpty() ? "All Expenses" : "Filtered Expenses");
+        int generation = ++listGeneration;
+        if (compactList) {
+            // One snapshot of every matching expense; there are no further pages
+            hasMorePages = false;
+            isLoadingPage = false;
+            repository.getExpenseColumns(filter, columns -> {
+                if (generation == listGeneration) {
+                    showColumns(columns);
+                }
+            });
+            return;
+        }
+        isLoadingPage = true;
+        repository.getExpensesPage(filter, DBHelper.FIRST_PAGE, DBHelper.FIRST_PAGE_ID, PAGE_SIZE,
+                new ExpenseRepository.Callback<List<Expense>>() {
+                    @Override
+                    public void onResult(List<Expense> firstPage) {
+                        if (generation != listGeneration) {
+                            return;
+                        }
+                        hasMorePages = firstPage.size() == PAGE_SIZE;
+                        isLoadingPage = false;
+                        showExpenses(firstPage);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        ExpenseRepository.Callback.super.onError(e);
+                        if (generation == listGeneration) {
+                            isLoadingPage = false;
+                            Toast.makeText(ViewHistoryActivity.this, "Could not load expenses", Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                });
+    }
+
+    private void loadNextPage() {
+        Expense last = expenseAdapter.getLastExpense();
+        if (last == null) {
+            hasMorePages = false;
+            return;
+        }
+
+        int generation = listGeneration;
+        isLoadingPage = true;
+        repository.getExpensesPage(filter, last.getEpochDay(), last.getId(), PAGE_SIZE,
+                new ExpenseRepository.Callback<List<Expense>>() {
+                    @Override
+                    public void onResult(List<Expense> page) {
+                        if (generation != listGeneration) {
+                            return;
+                        }
+                        hasMorePages = page.size() == PAGE_SIZE;
+                        expenseAdapter.appendExpenses(page);
+                        isLoadingPage = false;
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        ExpenseRepository.Callback.super.onError(e);
+                        if (generation == listGeneration) {
+                            isLoadingPage = false; // scrolling retries the page
+                            Toast.makeText(ViewHistoryActivity.this, "Could not load more expenses", Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.history_menu, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_filter) {
+            repository.getCategories(this::showFilterDialog);
+            return true;
+        }
+        if (item.getItemId() == R.id.action_compact_list) {
+            compactList = !compactList;
+            item.setChecked(compactList);
+            loadExpenseHistory();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void showFilterDialog(CategoryCache.Snapshot categories) {
+        if (isFinishing()) {
+            return;
+        }
+        View view = getLayoutInflater().inflate(R.layout.dialog_expense_filter, null);
+        Spinner periodSpinner = view.findViewById(R.id.filter_period_spinner);
+        LinearLayout categoriesContainer = view.findViewById(R.id.filter_categories_container);
+        EditText minAmountEdit = view.findViewById(R.id.filter_min_amount_edit);
+        EditText maxAmountEdit = view.findViewById(R.id.filter_max_amount_edit);
+        CheckBox recurringCheckBox = view.findViewById(R.id.filter_recurring_checkbox);
+
+        ArrayAdapter<String> periodAdapter = new ArrayAdapter<>(this,
+                android.R.layout.simple_spinner_item, PERIODS);
+        periodAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        periodSpinner.setAdapter(periodAdapter);
+        periodSpinner.setSelection(filterPeriod);
+
+        // Show the current filter's values
+        List<CheckBox> categoryBoxes = new ArrayList<>();
+        for (String name : categories.getNames()) {
+            int categoryId = categories.getId(name);
+            CheckBox box = new CheckBox(this);
+            box.setText(name);
+            box.setTag(categoryId);
+            box.setChecked(filter.getCategoryIds().contains(categoryId));
+            categoriesContainer.addView(box);
+            categoryBoxes.add(box);
+        }
+        if (filter.getMinAmountCents() != null) {
+            minAmountEdit.setText(MoneyFormatter.formatPlain(filter.getMinAmountCents()));
+        }
+        if (filter.getMaxAmountCents() != null) {
+            maxAmountEdit.setText(MoneyFormatter.formatPlain(filter.getMaxAmountCents()));
+        }
+        recurringCheckBox.setChecked(filter.isRecurringOnly());
+
+        new AlertDialog.Builder(this)
+                .setTitle("Filter Expenses")
+                .setView(view)
+                .setPositiveButton("Apply", (dialog, which) -> {
+                    List<Integer> selected = new ArrayList<>();
+                    for (CheckBox box : categoryBoxes) {
+                        if (box.isChecked()) {
+                            selected.add((Integer) box.getTag());
+                        }
+                    }
+                    try {
+                        applyFilter(periodSpinner.getSelectedItemPosition(), selected,
+                                parseAmount(minAmountEdit), parseAmount(maxAmountEdit),
+                                recurringCheckBox.isChecked());
+                    } catch (NumberFormatException e) {
+                        Toast.makeText(this, "Please enter valid amounts", Toast.LENGTH_SHORT).show();
+                    }
+                })
+                .setNeutralButton("Clear", (dialog, which) ->
+                        applyFilter(PERIOD_ALL_TIME, new ArrayList<>(), null, null, false))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void applyFilter(int period, List<Integer> categoryIds, Long minAmountCents, Long maxAmountCents,
+                             boolean recurringOnly) {
+        long today = DateUtils.today();
+        Long from = null;
+        switch (period) {
+            case PERIOD_LAST_7_DAYS:
+                from = today - 6;
+                break;
+            case PERIOD_LAST_30_DAYS:
+                from = today - 29;
+                break;
+            case PERIOD_THIS_MONTH:
+                Calendar calendar = Calendar.getInstance();
+                from = DateUtils.toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, 1);
+                break;
+            default:
+                break;
+        }
+
+        filterPeriod = period;
+        filter = new ExpenseFilter()
+                .setDateRange(from, from != null ? today : null)
+                .setCategoryIds(categoryIds)
+                .setAmountRange(minAmountCents, maxAmountCents)
+                .setRecurringOnly(recurringOnly);
+        loadExpenseHistory();
+    }
+
+    private static Long parseAmount(EditText edit) {
+        String text = edit.getText().toString().trim();
+        return text.isEmpty() ? null : MoneyFormatter.parseCents(text);
     }
 
     @Override
@@ -1,34 +1,63 @@
 package com.example.expensetracker.adapter;
 
 import android.content.Context;
-import android.graphics.Color;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import android.widget.ImageView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.expensetracker.R;
+import com.example.expensetracker.database.CategoryCache;
 import com.example.expensetracker.model.Category;
+import com.example.expensetracker.utils.MoneyFormatter;
+import java.util.ArrayList;
 import java.util.List;
-import java.text.DecimalFormat;
+import java.util.Objects;
 
 public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.CategoryViewHolder> {
 
     private Context context;
-    private List<Category> categoryList;
-    private DecimalFormat decimalFormat;
+    private final AsyncListDiffer<Category> differ;
     private OnCategoryDeleteListener deleteListener;
+    private CategoryCache.Snapshot categories; // colours; null until loaded
 
     public interface OnCategoryDeleteListener {
         void onDeleteCategory(int categoryId, String categoryName);
     }
 
+    private static final DiffUtil.ItemCallback<Category> DIFF_CALLBACK = new DiffUtil.ItemCallback<Category>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Category oldItem, @NonNull Category newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Category oldItem, @NonNull Category newItem) {
+            return oldItem.getTotalAmountCents() == newItem.getTotalAmountCents()
+                    && Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getColor(), newItem.getColor());
+        }
+    };
+
     public CategoryAdapter(Context context, List<Category> categoryList) {
         this.context = context;
-        this.categoryList = categoryList;
-        this.decimalFormat = new DecimalFormat("#.##");
+        this.differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+        setHasStableIds(true);
+        differ.submitList(new ArrayList<>(categoryList));
+    }
+
+    /**
+     * Take category colours from a cache snapshot, rebinding the rows if it changed
+     */
+    public void setCategories(CategoryCache.Snapshot categories) {
+        if (this.categories != categories) {
+            this.categories = categories;
+            notifyItemRangeChanged(0, getItemCount());
+        }
     }
 
     public void setOnCategoryDeleteListener(OnCategoryDeleteListener listener) {
@@ -44,18 +73,14 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
 
     @Override
     public void onBindViewHolder(@NonNull CategoryViewHolder holder, int position) {
-        Category category = categoryList.get(position);
+        Category category = differ.getCurrentList().get(position);
 
         holder.categoryName.setText(category.getName());
-        holder.categoryTotal.setText("$" + decimalFormat.format(category.getTotalAmount()));
+        holder.categoryTotal.setText(MoneyFormatter.format(category.getTotalAmountCents()));
 
         // Set category color
-        try {
-            int color = Color.parseColor(category.getColor());
-            holder.categoryIndicator.setBackgroundColor(color);
-        } catch (Exception e) {
-            holder.categoryIndicator.setBackgroundColor(Color.parseColor("#607D8B"));
-        }
+        holder.categoryIndicator.setBackgroundColor(categories != null
+                ? categories.getColor(category.getId()) : CategoryCache.DEFAULT_COLOR);
 
         // Delete button click listener
         holder.deleteButton.setOnClickListener(v -> {
@@ -67,12 +92,20 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
 
     @Override
     public int getItemCount() {
-        return categoryList.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).getId();
     }
 
+    /**
+     * Replace the list. The diff is computed off the main thread and only changed rows are rebound.
+     * @param newCategories The new categories
+     */
     public void updateCategories(List<Category> newCategories) {
-        this.categoryList = newCategories;
-        notifyDataSetChanged();
+        differ.submitList(new ArrayList<>(newCategories));
     }
 
     public static class CategoryViewHolder extends RecyclerView.ViewHolder {
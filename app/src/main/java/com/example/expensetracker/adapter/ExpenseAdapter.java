@@ -2,7 +2,6 @@ package com.example.expensetracker.adapter;
 
 import android.content.Context;
 import android.content.Intent;
-import android.graphics.Color;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -10,23 +9,50 @@ import android.widget.TextView;
 import android.widget.ImageView;
 import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.expensetracker.R;
 import com.example.expensetracker.activity.EditExpenseActivity;
+import com.example.expensetracker.database.CategoryCache;
 import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.utils.MoneyFormatter;
+import java.util.ArrayList;
 import java.util.List;
-import java.text.DecimalFormat;
+import java.util.Objects;
 
 public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseViewHolder> {
 
     private Context context;
-    private List<Expense> expenseList;
-    private DecimalFormat decimalFormat;
+    private final AsyncListDiffer<Expense> differ;
+    // Latest list handed to the differ, which may still be diffing in the background
+    private List<Expense> latestList;
+    private CategoryCache.Snapshot categories; // colours; null until loaded
+
+    private static final DiffUtil.ItemCallback<Expense> DIFF_CALLBACK = new DiffUtil.ItemCallback<Expense>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Expense oldItem, @NonNull Expense newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Expense oldItem, @NonNull Expense newItem) {
+            return oldItem.getAmountCents() == newItem.getAmountCents()
+                    && oldItem.getEpochDay() == newItem.getEpochDay()
+                    && oldItem.isRecurring() == newItem.isRecurring()
+                    && Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && oldItem.getCategoryId() == newItem.getCategoryId()
+                    && Objects.equals(oldItem.getCategory(), newItem.getCategory())
+                    && Objects.equals(oldItem.getRecurringType(), newItem.getRecurringType());
+        }
+    };
 
     public ExpenseAdapter(Context context, List<Expense> expenseList) {
         this.context = context;
-        this.expenseList = expenseList;
-        this.decimalFormat = new DecimalFormat("#.##");
+        this.differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+        setHasStableIds(true);
+        submit(new ArrayList<>(expenseList));
     }
 
     @NonNull
@@ -38,11 +64,11 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
 
     @Override
     public void onBindViewHolder(@NonNull ExpenseViewHolder holder, int position) {
-        Expense expense = expenseList.get(position);
+        Expense expense = differ.getCurrentList().get(position);
 
         holder.titleText.setText(expense.getTitle());
         holder.descriptionText.setText(expense.getDescription());
-        holder.amountText.setText("$" + decimalFormat.format(expense.getAmount()));
+        holder.amountText.setText(MoneyFormatter.format(expense.getAmountCents()));
         holder.categoryText.setText(expense.getCategory());
         holder.dateText.setText(expense.getDate());
 
@@ -53,9 +79,9 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
             holder.recurringIcon.setVisibility(View.GONE);
         }
 
-        // Set category color
-        int color = getCategoryColor(expense.getCategory());
-        holder.categoryIndicator.setBackgroundColor(color);
+        // Set category color, already parsed in the cache snapshot
+        holder.categoryIndicator.setBackgroundColor(categories != null
+                ? categories.getColor(expense.getCategoryId()) : CategoryCache.DEFAULT_COLOR);
 
         // Click listener to edit expense
         holder.itemView.setOnClickListener(v -> {
@@ -67,23 +93,53 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
 
     @Override
     public int getItemCount() {
-        return expenseList.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).getId();
     }
 
+    /**
+     * Replace the list. The diff against the current list is computed off the main thread
+     * and only the rows that changed are rebound.
+     * @param newExpenses The new expenses
+     */
     public void updateExpenses(List<Expense> newExpenses) {
-        this.expenseList = newExpenses;
-        notifyDataSetChanged();
+        submit(new ArrayList<>(newExpenses));
+    }
+
+    /**
+     * Append a page of expenses to the end of the list
+     * @param moreExpenses The expenses to append
+     */
+    public void appendExpenses(List<Expense> moreExpenses) {
+        if (moreExpenses.isEmpty()) {
+            return;
+        }
+        List<Expense> combined = new ArrayList<>(latestList.size() + moreExpenses.size());
+        combined.addAll(latestList);
+        combined.addAll(moreExpenses);
+        submit(combined);
+    }
+
+    public Expense getLastExpense() {
+        return latestList.isEmpty() ? null : latestList.get(latestList.size() - 1);
+    }
+
+    private void submit(List<Expense> list) {
+        latestList = list;
+        differ.submitList(list);
     }
 
-    private int getCategoryColor(String category) {
-        switch (category.toLowerCase()) {
-            case "food": return Color.parseColor("#FF5722");
-            case "transportation": return Color.parseColor("#2196F3");
-            case "entertainment": return Color.parseColor("#FF9800");
-            case "shopping": return Color.parseColor("#9C27B0");
-            case "bills": return Color.parseColor("#4CAF50");
-            case "healthcare": return Color.parseColor("#F44336");
-            default: return Color.parseColor("#607D8B");
+    /**
+     * Take category colours from a cache snapshot, rebinding the rows if it changed
+     */
+    public void setCategories(CategoryCache.Snapshot categories) {
+        if (this.categories != categories) {
+            this.categories = categories;
+            notifyItemRangeChanged(0, getItemCount());
         }
     }
 
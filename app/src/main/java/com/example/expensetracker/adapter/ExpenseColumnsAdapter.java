@@ -0,0 +1,133 @@
+package com.example.expensetracker.adapter;
+
+import android.content.Context;
+import android.content.Intent;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import com.example.expensetracker.R;
+import com.example.expensetracker.activity.EditExpenseActivity;
+import com.example.expensetracker.database.CategoryCache;
+import com.example.expensetracker.model.ExpenseColumns;
+import com.example.expensetracker.utils.MoneyFormatter;
+
+/**
+ * Shows a whole {@link ExpenseColumns} snapshot. Rows are decoded from the columns only
+ * when they are bound, so the list holds no per-row objects however long it is.
+ */
+public class ExpenseColumnsAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseViewHolder> {
+
+    private final Context context;
+    private ExpenseColumns columns = ExpenseColumns.EMPTY;
+    private CategoryCache.Snapshot categories; // colours; null until loaded
+
+    public ExpenseColumnsAdapter(Context context) {
+        this.context = context;
+        setHasStableIds(true);
+    }
+
+    @NonNull
+    @Override
+    public ExpenseAdapter.ExpenseViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(context).inflate(R.layout.item_expense, parent, false);
+        return new ExpenseAdapter.ExpenseViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ExpenseAdapter.ExpenseViewHolder holder, int position) {
+        holder.titleText.setText(columns.getTitle(position));
+        holder.descriptionText.setText(columns.getDescription(position));
+        holder.amountText.setText(MoneyFormatter.format(columns.getAmountCents(position)));
+        holder.categoryText.setText(columns.getCategory(position));
+        holder.dateText.setText(columns.getDate(position));
+        holder.recurringIcon.setVisibility(columns.isRecurring(position) ? View.VISIBLE : View.GONE);
+
+        int categoryId = columns.getCategoryId(position);
+        holder.categoryIndicator.setBackgroundColor(categories != null
+                ? categories.getColor(categoryId) : CategoryCache.DEFAULT_COLOR);
+
+        int expenseId = columns.getId(position);
+        holder.itemView.setOnClickListener(v -> {
+            Intent intent = new Intent(context, EditExpenseActivity.class);
+            intent.putExtra("expense_id", expenseId);
+            context.startActivity(intent);
+        });
+    }
+
+    @Override
+    public int getItemCount() {
+        return columns.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return columns.getId(position);
+    }
+
+    /**
+     * Replace the snapshot, notifying only the rows that were added, removed or changed
+     * @param newColumns The new expenses, newest first like every snapshot
+     */
+    public void setColumns(ExpenseColumns newColumns) {
+        ExpenseColumns oldColumns = columns;
+        columns = newColumns;
+        dispatchChanges(oldColumns, newColumns);
+    }
+
+    /**
+     * Diff two snapshots in one pass. Both are sorted newest first by (date, id), so walking them
+     * together pairs up the rows with the same id without a DiffUtil search; a row whose date
+     * changed is reported as removed and inserted. Runs of changes are notified as ranges.
+     */
+    private void dispatchChanges(ExpenseColumns oldColumns, ExpenseColumns newColumns) {
+        int oldSize = oldColumns.size();
+        int newSize = newColumns.size();
+        int o = 0;
+        int n = 0; // also the adapter position, as rows before it are already updated
+        while (o < oldSize || n < newSize) {
+            int start = n;
+            if (n == newSize || (o < oldSize && compareNewestFirst(oldColumns, o, newColumns, n) < 0)) {
+                int removed = 0;
+                while (o < oldSize && (n == newSize || compareNewestFirst(oldColumns, o, newColumns, n) < 0)) {
+                    o++;
+                    removed++;
+                }
+                notifyItemRangeRemoved(start, removed);
+            } else if (o == oldSize || compareNewestFirst(oldColumns, o, newColumns, n) > 0) {
+                while (n < newSize && (o == oldSize || compareNewestFirst(oldColumns, o, newColumns, n) > 0)) {
+                    n++;
+                }
+                notifyItemRangeInserted(start, n - start);
+            } else {
+                while (o < oldSize && n < newSize && compareNewestFirst(oldColumns, o, newColumns, n) == 0
+                        && !oldColumns.sameContents(o, newColumns, n)) {
+                    o++;
+                    n++;
+                }
+                if (n > start) {
+                    notifyItemRangeChanged(start, n - start);
+                } else {
+                    o++;
+                    n++;
+                }
+            }
+        }
+    }
+
+    private static int compareNewestFirst(ExpenseColumns a, int i, ExpenseColumns b, int j) {
+        int byDate = Long.compare(b.getEpochDay(j), a.getEpochDay(i));
+        return byDate != 0 ? byDate : Integer.compare(b.getId(j), a.getId(i));
+    }
+
+    /**
+     * Take category colours from a cache snapshot, rebinding the rows if it changed
+     */
+    public void setCategories(CategoryCache.Snapshot categories) {
+        if (this.categories != categories) {
+            this.categories = categories;
+            notifyItemRangeChanged(0, getItemCount());
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.expensetracker.analytics;
+
+import com.example.expensetracker.database.DBHelper;
+import com.example.expensetracker.model.CategoryMonthTotal;
+import com.example.expensetracker.model.PeriodTotal;
+import com.example.expensetracker.model.SpendingOverview;
+import com.example.expensetracker.utils.DateUtils;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One user's spend per day, week, month and per category per month.
+ *
+ * Totals come from GROUP BY queries over the date index. Results for closed periods
+ * (days before today, months before this one) are cached and only the current period is
+ * queried again on later calls. DBHelper records the earliest expense date written since
+ * the last call, so a change to a past expense drops the cache from that date on only.
+ * That record is consumed by whoever reads it, so each user should have one instance.
+ */
+public class SpendingAnalytics {
+
+    private final DBHelper dbHelper;
+    private final int userId;
+
+    // Totals of closed days in [coveredFrom, coveredTo]; days without expenses are absent
+    private final Map<Long, Long> closedDayTotals = new HashMap<>();
+    private long coveredFrom = 1;
+    private long coveredTo = 0; // empty while coveredFrom > coveredTo
+
+    // Category totals of closed months in [coveredFromMonth, coveredToMonth], keyed by month index
+    private final Map<Integer, List<CategoryMonthTotal>> closedMonthTotals = new HashMap<>();
+    private int coveredFromMonth = 1;
+    private int coveredToMonth = 0;
+
+    public SpendingAnalytics(DBHelper dbHelper, int userId) {
+        this.dbHelper = dbHelper;
+        this.userId = userId;
+    }
+
+    /**
+     * @param today The current date as an epoch day
+     * @param days Number of days, ending with today; at least 1
+     * @return one total per day, oldest first, including days with no spending
+     */
+    public synchronized List<PeriodTotal> getDailyTotals(long today, int days) {
+        requirePositive("days", days);
+        long from = today - days + 1;
+        long[] totals = dayTotals(from, today);
+        List<PeriodTotal> result = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            result.add(new PeriodTotal(from + i, totals[i]));
+        }
+        return result;
+    }
+
+    /**
+     * @param today The current date as an epoch day
+     * @param weeks Number of Monday-to-Sunday weeks, ending with the current one; at least 1
+     * @return one total per week keyed by its Monday, oldest first
+     */
+    public synchronized List<PeriodTotal> getWeeklyTotals(long today, int weeks) {
+        requirePositive("weeks", weeks);
+        long from = weekStart(today) - 7L * (weeks - 1);
+        long[] totals = dayTotals(from, today);
+        List<PeriodTotal> result = new ArrayList<>(weeks);
+        for (int week = 0; week < weeks; week++) {
+            long sum = 0;
+            for (int i = week * 7; i < week * 7 + 7 && i < totals.length; i++) {
+                sum += totals[i];
+            }
+            result.add(new PeriodTotal(from + week * 7L, sum));
+        }
+        return result;
+    }
+
+    /**
+     * @param today The current date as an epoch day
+     * @param months Number of calendar months, ending with the current one; at least 1
+     * @return one total per month keyed by its first day, oldest first
+     */
+    public synchronized List<PeriodTotal> getMonthlyTotals(long today, int months) {
+        requirePositive("months", months);
+        int currentMonth = monthIndex(today);
+        long from = firstDay(currentMonth - months + 1);
+        long[] totals = dayTotals(from, today);
+        List<PeriodTotal> result = new ArrayList<>(months);
+        for (int month = currentMonth - months + 1; month <= currentMonth; month++) {
+            long start = firstDay(month);
+            long end = Math.min(firstDay(month + 1), today + 1);
+            long sum = 0;
+            for (long day = start; day < end; day++) {
+                sum += totals[(int) (day - from)];
+            }
+            result.add(new PeriodTotal(start, sum));
+        }
+        return result;
+    }
+
+    /**
+     * @param today The current date as an epoch day
+     * @param months Number of calendar months, ending with the current one; at least 1
+     * @return the total of every category with spending in each month, oldest month first
+     */
+    public synchronized List<CategoryMonthTotal> getCategoryMonthlyTotals(long today, int months) {
+        requirePositive("months", months);
+        invalidateChanged();
+        int currentMonth = monthIndex(today);
+        int fromMonth = currentMonth - months + 1;
+        ensureClosedMonths(fromMonth, currentMonth - 1);
+
+        List<CategoryMonthTotal> result = new ArrayList<>();
+        for (int month = fromMonth; month < currentMonth; month++) {
+            List<CategoryMonthTotal> totals = closedMonthTotals.get(month);
+            if (totals != null) {
+                result.addAll(totals);
+            }
+        }
+        // The current month is always recomputed
+        result.addAll(dbHelper.getCategoryMonthTotals(userId, firstDay(currentMonth), today));
+        return result;
+    }
+
+    /**
+     * Everything the dashboard shows, served from the cache plus the current period
+     * @param today The current date as an epoch day
+     * @return the overview
+     */
+    public synchronized SpendingOverview getOverview(long today) {
+        int currentMonth = monthIndex(today);
+        long thisMonthStart = firstDay(currentMonth);
+        long lastMonthStart = firstDay(currentMonth - 1);
+        long thisWeekStart = weekStart(today);
+        long from = Math.min(Math.min(lastMonthStart, thisWeekStart), today - 6);
+        long[] totals = dayTotals(from, today);
+
+        List<PeriodTotal> lastSevenDays = new ArrayList<>(7);
+        for (long day = today - 6; day <= today; day++) {
+            lastSevenDays.add(new PeriodTotal(day, totals[(int) (day - from)]));
+        }
+
+        List<CategoryMonthTotal> byCategory = dbHelper.getCategoryMonthTotals(userId, thisMonthStart, today);
+        byCategory.sort((a, b) -> Long.compare(b.getTotalCents(), a.getTotalCents()));
+
+        return new SpendingOverview(
+                totals[(int) (today - from)],
+                sum(totals, from, thisWeekStart, today),
+                sum(totals, from, thisMonthStart, today),
+                sum(totals, from, lastMonthStart, thisMonthStart - 1),
+                lastSevenDays,
+                byCategory);
+    }
+
+    private static long sum(long[] totals, long from, long startDay, long endDay) {
+        long sum = 0;
+        for (long day = startDay; day <= endDay; day++) {
+            sum += totals[(int) (day - from)];
+        }
+        return sum;
+    }
+
+    /**
+     * Daily totals for [from, today]: closed days from the cache, today from a fresh query
+     */
+    private long[] dayTotals(long from, long today) {
+        invalidateChanged();
+        ensureClosedDays(from, today - 1);
+
+        long[] totals = new long[(int) (today - from + 1)];
+        for (int i = 0; i < totals.length - 1; i++) {
+            Long total = closedDayTotals.get(from + i);
+            totals[i] = total != null ? total : 0;
+        }
+        for (PeriodTotal total : dbHelper.getDailyTotals(userId, today, today)) {
+            totals[totals.length - 1] += total.getTotalCents();
+        }
+        return totals;
+    }
+
+    /**
+     * Query whichever closed days in [from, to] are not cached yet
+     */
+    private void ensureClosedDays(long from, long to) {
+        if (from > to) {
+            return;
+        }
+        if (coveredFrom > coveredTo) {
+            putDays(from, to);
+            coveredFrom = from;
+            coveredTo = to;
+            return;
+        }
+        if (from < coveredFrom) {
+            putDays(from, coveredFrom - 1);
+            coveredFrom = from;
+        }
+        if (to > coveredTo) {
+            putDays(coveredTo + 1, to);
+            coveredTo = to;
+        }
+    }
+
+    private void putDays(long from, long to) {
+        for (PeriodTotal total : dbHelper.getDailyTotals(userId, from, to)) {
+            closedDayTotals.put(total.getStartEpochDay(), total.getTotalCents());
+        }
+    }
+
+    /**
+     * Query whichever closed months in [fromMonth, toMonth] are not cached yet
+     */
+    private void ensureClosedMonths(int fromMonth, int toMonth) {
+        if (fromMonth > toMonth) {
+            return;
+        }
+        if (coveredFromMonth > coveredToMonth) {
+            putMonths(fromMonth, toMonth);
+            coveredFromMonth = fromMonth;
+            coveredToMonth = toMonth;
+            return;
+        }
+        if (fromMonth < coveredFromMonth) {
+            putMonths(fromMonth, coveredFromMonth - 1);
+            coveredFromMonth = fromMonth;
+        }
+        if (toMonth > coveredToMonth) {
+            putMonths(coveredToMonth + 1, toMonth);
+            coveredToMonth = toMonth;
+        }
+    }
+
+    private void putMonths(int fromMonth, int toMonth) {
+        for (int month = fromMonth; month <= toMonth; month++) {
+            closedMonthTotals.put(month, new ArrayList<>());
+        }
+        for (CategoryMonthTotal total : dbHelper.getCategoryMonthTotals(userId, firstDay(fromMonth), firstDay(toMonth + 1) - 1)) {
+            closedMonthTotals.get(monthIndexOfKey(total.getMonth())).add(total);
+        }
+    }
+
+    /**
+     * Drop cached periods on or after the earliest date written since the last call
+     */
+    private void invalidateChanged() {
+        Long dirtyDay = dbHelper.takeAnalyticsDirtyDay(userId);
+        if (dirtyDay == null) {
+            return;
+        }
+        if (dirtyDay <= coveredTo) {
+            Iterator<Long> days = closedDayTotals.keySet().iterator();
+            while (days.hasNext()) {
+                if (days.next() >= dirtyDay) {
+                    days.remove();
+                }
+            }
+            coveredTo = dirtyDay - 1;
+        }
+        int dirtyMonth = monthIndex(dirtyDay);
+        if (dirtyMonth <= coveredToMonth) {
+            Iterator<Integer> months = closedMonthTotals.keySet().iterator();
+            while (months.hasNext()) {
+                if (months.next() >= dirtyMonth) {
+                    months.remove();
+                }
+            }
+            coveredToMonth = dirtyMonth - 1;
+        }
+    }
+
+    /**
+     * @return the Monday on or before the day
+     */
+    static long weekStart(long epochDay) {
+        // 1970-01-01 was a Thursday
+        return epochDay - Math.floorMod(epochDay + 3, 7);
+    }
+
+    private static void requirePositive(String name, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException(name + " must be at least 1: " + count);
+        }
+    }
+
+    /**
+     * @return months since year 0 for a date, so consecutive months are consecutive integers
+     */
+    private static int monthIndex(long epochDay) {
+        long[] ymd = DateUtils.toYearMonthDay(epochDay);
+        return (int) (ymd[0] * 12 + ymd[1] - 1);
+    }
+
+    private static int monthIndexOfKey(int yearMonth) {
+        return (yearMonth / 100) * 12 + yearMonth % 100 - 1;
+    }
+
+    private static long firstDay(int monthIndex) {
+        return DateUtils.toEpochDay(Math.floorDiv(monthIndex, 12), Math.floorMod(monthIndex, 12) + 1, 1);
+    }
+}
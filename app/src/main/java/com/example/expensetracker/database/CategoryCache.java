@@ -0,0 +1,141 @@
+package com.example.expensetracker.database;
+
+import com.example.expensetracker.utils.ColorUtils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Process-wide cache of one user's categories as an immutable {@link Snapshot}.
+ * DBHelper invalidates it whenever one of the user's categories is added, renamed or deleted;
+ * the next {@link #get()} reloads it with one small query over the categories table only.
+ */
+public class CategoryCache {
+
+    public static final int DEFAULT_COLOR = 0xFF607D8B;
+
+    /**
+     * An immutable view of the categories. Lookups ignore case and cost O(1).
+     */
+    public static final class Snapshot {
+        private final List<String> names;
+        private final Map<String, Integer> idsByName;
+        private final Map<Integer, String> namesById;
+        private final Map<Integer, Integer> colorsById;
+
+        Snapshot(List<Integer> ids, List<String> names, List<String> colors) {
+            Map<String, Integer> idsByName = new HashMap<>();
+            Map<Integer, String> namesById = new HashMap<>();
+            Map<Integer, Integer> colorsById = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                idsByName.put(fold(names.get(i)), ids.get(i));
+                namesById.put(ids.get(i), names.get(i));
+                colorsById.put(ids.get(i), ColorUtils.parseColor(colors.get(i), DEFAULT_COLOR));
+            }
+            this.names = Collections.unmodifiableList(new ArrayList<>(names));
+            this.idsByName = idsByName;
+            this.namesById = namesById;
+            this.colorsById = colorsById;
+        }
+
+        /**
+         * @return the category names in creation order, e.g. for a spinner
+         */
+        public List<String> getNames() {
+            return names;
+        }
+
+        /**
+         * @return true if a category with this name exists, ignoring case
+         */
+        public boolean contains(String name) {
+            return name != null && idsByName.containsKey(fold(name));
+        }
+
+        /**
+         * @return the id of the category with this name, ignoring case, or -1
+         */
+        public int getId(String name) {
+            Integer id = name != null ? idsByName.get(fold(name)) : null;
+            return id != null ? id : -1;
+        }
+
+        /**
+         * @return the name of the category with this id, or null if there is none
+         */
+        public String getName(int id) {
+            return namesById.get(id);
+        }
+
+        /**
+         * @return the category's colour as an ARGB int, or {@link #DEFAULT_COLOR} if unknown
+         */
+        public int getColor(int id) {
+            Integer color = colorsById.get(id);
+            return color != null ? color : DEFAULT_COLOR;
+        }
+
+        /**
+         * @return the colour of the category with this name, ignoring case, or {@link #DEFAULT_COLOR}
+         */
+        public int getColor(String name) {
+            return getColor(getId(name));
+        }
+    }
+
+    private final DBHelper dbHelper;
+    private final int userId;
+    private volatile Snapshot snapshot;
+    // Bumped by every invalidation so a load that raced with a write is not kept
+    private int generation;
+
+    CategoryCache(DBHelper dbHelper, int userId) {
+        this.dbHelper = dbHelper;
+        this.userId = userId;
+    }
+
+    /**
+     * Get the current snapshot, loading it from the database if it was invalidated.
+     * May query the database, so call it off the main thread; see {@link #peek()}.
+     * @return the snapshot
+     */
+    public Snapshot get() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        int loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+        }
+        Snapshot loaded = dbHelper.loadCategorySnapshot(userId);
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                snapshot = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * @return the current snapshot without touching the database, or null if it is not loaded
+     */
+    public Snapshot peek() {
+        return snapshot;
+    }
+
+    /**
+     * Drop the snapshot; called by DBHelper after every category write
+     */
+    synchronized void invalidate() {
+        generation++;
+        snapshot = null;
+    }
+
+    static String fold(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -2,37 +2,69 @@ package com.example.expensetracker.database;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.CharArrayBuffer;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import android.text.TextUtils;
+import com.example.expensetracker.exporter.ExpenseExportWriter;
 import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseColumns;
 import com.example.expensetracker.model.Category;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import com.example.expensetracker.model.CategoryMonthTotal;
+import com.example.expensetracker.model.DashboardSummary;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.model.PeriodTotal;
+import com.example.expensetracker.model.RecurringSeries;
+import com.example.expensetracker.security.DevicePasswordHasher;
+import com.example.expensetracker.security.PasswordHasher;
+import java.io.IOException;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DBHelper extends SQLiteOpenHelper {
 
     private static final String DATABASE_NAME = "ExpenseTracker.db";
-    private static final int DATABASE_VERSION = 2; // Updated version for users table
+    private static final int DATABASE_VERSION = 12; // Version 12 partitions expenses and categories by user
 
     // Expenses table
     private static final String TABLE_EXPENSES = "expenses";
     private static final String COL_EXPENSE_ID = "id";
     private static final String COL_TITLE = "title";
     private static final String COL_DESCRIPTION = "description";
-    private static final String COL_AMOUNT = "amount";
-    private static final String COL_CATEGORY = "category";
+    private static final String COL_AMOUNT = "amount_cents";
+    private static final String LEGACY_COL_AMOUNT = "amount"; // REAL dollars before version 5
+    private static final String LEGACY_COL_CATEGORY = "category"; // TEXT name before version 11
+    private static final String COL_CATEGORY = "category_id";
     private static final String COL_DATE = "date";
     private static final String COL_IS_RECURRING = "is_recurring";
     private static final String COL_RECURRING_TYPE = "recurring_type";
+    private static final String COL_SERIES_ID = "series_id"; // recurring expense an occurrence was created from
+    private static final String COL_EXPENSE_USER_ID = "user_id";
 
     // Categories table
     private static final String TABLE_CATEGORIES = "categories";
     private static final String COL_CATEGORY_ID = "id";
     private static final String COL_CATEGORY_NAME = "name";
     private static final String COL_CATEGORY_COLOR = "color";
+    private static final String COL_CATEGORY_USER_ID = "user_id";
+
+    // Category given to expenses without one, and the colour of categories created on import
+    public static final String DEFAULT_CATEGORY = "Other";
+    private static final String DEFAULT_CATEGORY_COLOR = "#607D8B";
+
+    // Owner of data that predates user partitioning when no account existed yet;
+    // the first account registered adopts it
+    private static final int UNOWNED_USER_ID = 0;
 
     // Users table
     private static final String TABLE_USERS = "users";
@@ -41,30 +73,299 @@ public class DBHelper extends SQLiteOpenHelper {
     private static final String COL_PASSWORD = "password";
     private static final String COL_CREATED_AT = "created_at";
 
-    public DBHelper(Context context) {
+    // Summary tables, maintained by triggers on expenses
+    private static final String TABLE_CATEGORY_TOTALS = "category_totals";
+    private static final String TABLE_MONTHLY_TOTALS = "monthly_totals";
+    private static final String COL_SUMMARY_CATEGORY = "category_id";
+    private static final String COL_SUMMARY_USER_ID = "user_id"; // monthly totals only; categories imply the user
+    private static final String COL_SUMMARY_MONTH = "month"; // yyyyMM, e.g. 202403
+    private static final String COL_SUMMARY_TOTAL = "total_cents";
+    private static final String COL_SUMMARY_COUNT = "expense_count";
+
+    // Recurring series watermarks: the last date each series has occurrences up to
+    private static final String TABLE_RECURRING_WATERMARKS = "recurring_watermarks";
+    private static final String COL_WATERMARK_SERIES_ID = "series_id";
+    private static final String COL_WATERMARK_DAY = "last_materialized";
+
+    // One row per user holding the earliest expense date written since analytics last looked
+    private static final String TABLE_ANALYTICS_DIRTY = "analytics_dirty";
+    private static final String COL_DIRTY_USER_ID = "user_id";
+    private static final String COL_DIRTY_DAY = "min_day";
+
+    // Full-text index over expense titles and descriptions, kept in sync by triggers
+    private static final String TABLE_EXPENSES_FTS = "expenses_fts";
+
+    // Indexes
+    private static final String INDEX_EXPENSES_USER_DATE = "idx_expenses_user_date";
+    private static final String INDEX_EXPENSES_CATEGORY = "idx_expenses_category";
+    private static final String INDEX_EXPENSES_CATEGORY_DATE = "idx_expenses_category_date";
+    private static final String INDEX_USERS_USERNAME = "idx_users_username";
+    private static final String INDEX_EXPENSES_SERIES_DATE = "idx_expenses_series_date";
+    private static final String INDEX_EXPENSES_RECURRING = "idx_expenses_recurring";
+
+    // Queries, kept as constants so DBHelperQueryPlanTest can check them with EXPLAIN QUERY PLAN.
+    // Every read is scoped to one user, so its cost follows that user's data only.
+    static final String SUMMARY_BY_CATEGORY = "SELECT " + COL_CATEGORY
+            + ", SUM(" + COL_AMOUNT + "), COUNT(*) FROM " + TABLE_EXPENSES
+            + " GROUP BY " + COL_CATEGORY;
+
+    static final String SUMMARY_BY_MONTH = "SELECT " + COL_EXPENSE_USER_ID + ", " + monthExpr(COL_DATE)
+            + ", SUM(" + COL_AMOUNT + "), COUNT(*) FROM " + TABLE_EXPENSES
+            + " GROUP BY " + COL_EXPENSE_USER_ID + ", " + monthExpr(COL_DATE);
+
+    static final String INSERT_EXPENSE = "INSERT INTO " + TABLE_EXPENSES + "("
+            + COL_TITLE + ", " + COL_DESCRIPTION + ", " + COL_AMOUNT + ", " + COL_CATEGORY + ", "
+            + COL_DATE + ", " + COL_IS_RECURRING + ", " + COL_RECURRING_TYPE + ", " + COL_EXPENSE_USER_ID
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Occurrences reuse INSERT OR IGNORE against the unique (series_id, date) index, so
+    // re-running an interrupted batch never creates duplicates
+    static final String INSERT_OCCURRENCE = "INSERT OR IGNORE INTO " + TABLE_EXPENSES + "("
+            + COL_TITLE + ", " + COL_DESCRIPTION + ", " + COL_AMOUNT + ", " + COL_CATEGORY + ", "
+            + COL_DATE + ", " + COL_IS_RECURRING + ", " + COL_RECURRING_TYPE + ", " + COL_SERIES_ID + ", "
+            + COL_EXPENSE_USER_ID + ") VALUES (?, ?, ?, ?, ?, 0, '', ?, ?)";
+
+    static final String UPSERT_WATERMARK = "INSERT OR REPLACE INTO " + TABLE_RECURRING_WATERMARKS + "("
+            + COL_WATERMARK_SERIES_ID + ", " + COL_WATERMARK_DAY + ") VALUES (?, ?)";
+
+    // Expense columns in the order cursorToExpense reads them, with the category name joined
+    // in by id. Used with EXPENSES_WITH_CATEGORY.
+    private static final String EXPENSE_COLUMNS = "e." + COL_EXPENSE_ID + ", e." + COL_TITLE + ", e."
+            + COL_DESCRIPTION + ", e." + COL_AMOUNT + ", c." + COL_CATEGORY_NAME + ", e." + COL_DATE + ", e."
+            + COL_IS_RECURRING + ", e." + COL_RECURRING_TYPE + ", e." + COL_CATEGORY + ", e." + COL_EXPENSE_USER_ID;
+
+    // List columns in the order getExpenseColumns reads them. Used with EXPENSES_WITH_CATEGORY.
+    private static final String EXPENSE_LIST_COLUMNS = "e." + COL_EXPENSE_ID + ", e." + COL_TITLE + ", e."
+            + COL_DESCRIPTION + ", e." + COL_AMOUNT + ", e." + COL_CATEGORY + ", c." + COL_CATEGORY_NAME + ", e."
+            + COL_DATE + ", e." + COL_IS_RECURRING;
+
+    // Export columns in the order exportExpenses reads them. Used with EXPENSES_WITH_CATEGORY.
+    private static final String EXPORT_COLUMNS = "e." + COL_TITLE + ", e." + COL_DESCRIPTION + ", e."
+            + COL_AMOUNT + ", c." + COL_CATEGORY_NAME + ", e." + COL_DATE + ", e." + COL_IS_RECURRING + ", e."
+            + COL_RECURRING_TYPE;
+
+    private static final String EXPENSES_WITH_CATEGORY = TABLE_EXPENSES + " e JOIN " + TABLE_CATEGORIES
+            + " c ON c." + COL_CATEGORY_ID + " = e." + COL_CATEGORY;
+
+    // Series without a watermark have only their first occurrence, the template itself.
+    // The background job materializes every user's series, so this one is not scoped.
+    static final String QUERY_RECURRING_SERIES = "SELECT " + EXPENSE_COLUMNS + ", COALESCE(w." + COL_WATERMARK_DAY
+            + ", e." + COL_DATE + ") FROM " + EXPENSES_WITH_CATEGORY + " LEFT JOIN " + TABLE_RECURRING_WATERMARKS
+            + " w ON w." + COL_WATERMARK_SERIES_ID + " = e." + COL_EXPENSE_ID
+            + " WHERE e." + COL_IS_RECURRING + " = 1";
+
+    static final String QUERY_DAILY_TOTALS = "SELECT " + COL_DATE + ", SUM(" + COL_AMOUNT + ") FROM "
+            + TABLE_EXPENSES + " WHERE " + COL_EXPENSE_USER_ID + " = ? AND " + COL_DATE + " BETWEEN ? AND ?"
+            + " GROUP BY " + COL_DATE;
+
+    // Grouped by category id; the name is looked up once per group
+    static final String QUERY_CATEGORY_MONTH_TOTALS = "SELECT " + monthExpr("e." + COL_DATE) + ", c."
+            + COL_CATEGORY_NAME + ", SUM(e." + COL_AMOUNT + ") FROM " + EXPENSES_WITH_CATEGORY
+            + " WHERE e." + COL_EXPENSE_USER_ID + " = ? AND e." + COL_DATE + " BETWEEN ? AND ?"
+            + " GROUP BY 1, e." + COL_CATEGORY;
+
+    private static final String ORDER_NEWEST_FIRST = " ORDER BY e." + COL_DATE + " DESC, e."
+            + COL_EXPENSE_ID + " DESC";
+
+    private static final String ORDER_OLDEST_FIRST = " ORDER BY e." + COL_DATE + ", e." + COL_EXPENSE_ID;
+
+    private static final String USER_CONDITION = "e." + COL_EXPENSE_USER_ID + " = ?";
+
+    static final String QUERY_ALL_EXPENSES = "SELECT " + EXPENSE_COLUMNS + " FROM " + EXPENSES_WITH_CATEGORY
+            + " WHERE " + USER_CONDITION + ORDER_NEWEST_FIRST;
+
+    // Keyset values that sort after every real row, used to request the first page
+    public static final long FIRST_PAGE = Long.MAX_VALUE;
+    public static final int FIRST_PAGE_ID = Integer.MAX_VALUE;
+
+    // Rows after (date, id) in newest-first order. Written as a plain range on date plus a
+    // filter, rather than date < ? OR (date = ? AND id < ?), so SQLite can walk one index range
+    // and stop at the LIMIT. Arguments: date, date, id.
+    private static final String KEYSET_CONDITION = "e." + COL_DATE + " <= ? AND (e." + COL_DATE + " < ? OR e."
+            + COL_EXPENSE_ID + " < ?)";
+
+    // Arguments: user id, then the keyset and the limit
+    static final String QUERY_EXPENSES_PAGE = "SELECT " + EXPENSE_COLUMNS + " FROM " + EXPENSES_WITH_CATEGORY
+            + " WHERE " + USER_CONDITION + " AND " + KEYSET_CONDITION + ORDER_NEWEST_FIRST + " LIMIT ?";
+
+    static final String QUERY_EXPENSE_BY_ID = "SELECT " + EXPENSE_COLUMNS + " FROM " + EXPENSES_WITH_CATEGORY
+            + " WHERE e." + COL_EXPENSE_ID + " = ? AND " + USER_CONDITION;
+
+    // The grand total is summed over the user's months rather than their expenses
+    static final String QUERY_DASHBOARD = "SELECT " + EXPENSE_COLUMNS + ", (SELECT COALESCE(SUM("
+            + COL_SUMMARY_TOTAL + "), 0) FROM " + TABLE_MONTHLY_TOTALS + " WHERE " + COL_SUMMARY_USER_ID
+            + " = ?1) AS grand_total FROM " + EXPENSES_WITH_CATEGORY + " WHERE e." + COL_EXPENSE_USER_ID
+            + " = ?1" + ORDER_NEWEST_FIRST + " LIMIT ?2";
+
+    // Matches ranked by whether every term hits the title, then newest first. Ranking and the
+    // limit are applied inside the FTS subquery so only the returned rows are joined to expenses.
+    // The index is shared by all users, so each match is checked against ?4 by rowid.
+    static final String QUERY_SEARCH_EXPENSES = "SELECT " + EXPENSE_COLUMNS + " FROM ("
+            + "SELECT f.docid, f.docid IN (SELECT docid FROM " + TABLE_EXPENSES_FTS
+            + " WHERE " + TABLE_EXPENSES_FTS + " MATCH ?2) AS title_hit"
+            + " FROM " + TABLE_EXPENSES_FTS + " f JOIN " + TABLE_EXPENSES + " o ON o." + COL_EXPENSE_ID
+            + " = f.docid WHERE f." + TABLE_EXPENSES_FTS + " MATCH ?1 AND o." + COL_EXPENSE_USER_ID + " = ?4"
+            + " ORDER BY title_hit DESC, f.docid DESC LIMIT ?3) m"
+            + " JOIN " + TABLE_EXPENSES + " e ON e." + COL_EXPENSE_ID + " = m.docid"
+            + " JOIN " + TABLE_CATEGORIES + " c ON c." + COL_CATEGORY_ID + " = e." + COL_CATEGORY
+            + " ORDER BY m.title_hit DESC, m.docid DESC";
+
+    static final String QUERY_CATEGORIES_WITH_TOTALS = "SELECT c." + COL_CATEGORY_ID + ", c." + COL_CATEGORY_NAME
+            + ", c." + COL_CATEGORY_COLOR + ", COALESCE(t." + COL_SUMMARY_TOTAL + ", 0) as total"
+            + " FROM " + TABLE_CATEGORIES + " c LEFT JOIN " + TABLE_CATEGORY_TOTALS
+            + " t ON t." + COL_SUMMARY_CATEGORY + " = c." + COL_CATEGORY_ID
+            + " WHERE c." + COL_CATEGORY_USER_ID + " = ? ORDER BY c." + COL_CATEGORY_ID;
+
+    static final String QUERY_CATEGORY_NAMES = "SELECT " + COL_CATEGORY_ID + ", " + COL_CATEGORY_NAME + ", "
+            + COL_CATEGORY_COLOR + " FROM " + TABLE_CATEGORIES + " WHERE " + COL_CATEGORY_USER_ID
+            + " = ? ORDER BY " + COL_CATEGORY_ID;
+
+    // Scalar queries always return exactly one row so they can run through simpleQueryForLong
+    static final String QUERY_TOTAL_EXPENSES = "SELECT COALESCE(SUM(" + COL_SUMMARY_TOTAL + "), 0) FROM "
+            + TABLE_MONTHLY_TOTALS + " WHERE " + COL_SUMMARY_USER_ID + " = ?";
+
+    // Every expense is counted in exactly one month row
+    static final String QUERY_EXPENSE_COUNT = "SELECT COALESCE(SUM(" + COL_SUMMARY_COUNT + "), 0) FROM "
+            + TABLE_MONTHLY_TOTALS + " WHERE " + COL_SUMMARY_USER_ID + " = ?";
+
+    // Category ids are unique across users; the join only checks ownership
+    static final String QUERY_CATEGORY_TOTAL = "SELECT COALESCE((SELECT t." + COL_SUMMARY_TOTAL + " FROM "
+            + TABLE_CATEGORY_TOTALS + " t JOIN " + TABLE_CATEGORIES + " c ON c." + COL_CATEGORY_ID + " = t."
+            + COL_SUMMARY_CATEGORY + " WHERE t." + COL_SUMMARY_CATEGORY + " = ? AND c." + COL_CATEGORY_USER_ID
+            + " = ?), 0)";
+
+    static final String QUERY_MONTH_TOTAL = "SELECT COALESCE((SELECT " + COL_SUMMARY_TOTAL + " FROM "
+            + TABLE_MONTHLY_TOTALS + " WHERE " + COL_SUMMARY_USER_ID + " = ? AND " + COL_SUMMARY_MONTH
+            + " = ?), 0)";
+
+    // Salted hashes cannot be matched in SQL, so the stored hash is read and verified in Java
+    static final String QUERY_CREDENTIALS = "SELECT " + COL_USER_ID + ", " + COL_PASSWORD + " FROM "
+            + TABLE_USERS + " WHERE " + COL_USERNAME + " = ?";
+
+    static final String QUERY_USERNAME_EXISTS = "SELECT EXISTS(SELECT 1 FROM " + TABLE_USERS
+            + " WHERE " + COL_USERNAME + " = ?)";
+
+    static final String QUERY_USER_ID = "SELECT COALESCE((SELECT " + COL_USER_ID + " FROM " + TABLE_USERS
+            + " WHERE " + COL_USERNAME + " = ?), -1)";
+
+    public static final int PROGRESS_INTERVAL = 1000; // rows between bulk insert progress reports
+    private static final int COLUMNS_INITIAL_ROWS = 1024; // a columns snapshot grows from here
+
+    private static volatile DBHelper instance;
+
+    // One category cache per user, created on first use
+    private final Map<Integer, CategoryCache> categoryCaches = new ConcurrentHashMap<>();
+
+    // Compiled scalar statements, keyed by SQL and reused until the database is closed
+    private final Map<String, SQLiteStatement> statementCache = new HashMap<>();
+
+    // Only for the password hasher, which is loaded on first use; see passwordHasher()
+    private final Context context;
+
+    // Off until switched on, e.g. from a debug menu
+    private final DBMetrics metrics = new DBMetrics();
+
+    /**
+     * Get the application-scoped helper. The underlying connection is opened once
+     * and kept for the lifetime of the process instead of per call.
+     * @param context Any context; only its application context is retained
+     * @return the shared DBHelper instance
+     */
+    public static DBHelper getInstance(Context context) {
+        DBHelper helper = instance;
+        if (helper == null) {
+            synchronized (DBHelper.class) {
+                helper = instance;
+                if (helper == null) {
+                    helper = new DBHelper(context.getApplicationContext());
+                    instance = helper;
+                }
+            }
+        }
+        return helper;
+    }
+
+    /**
+     * Close the shared connection and drop the instance. The next call to
+     * {@link #getInstance(Context)} reopens the database.
+     */
+    public static void shutdown() {
+        synchronized (DBHelper.class) {
+            if (instance != null) {
+                instance.close();
+                instance = null;
+            }
+        }
+    }
+
+    private DBHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this.context = context;
+        // WAL lets readers run alongside a writer and enables the framework's connection pool
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        // Enforce expenses.category_id, so a category still in use cannot be deleted
+        db.setForeignKeyConstraintsEnabled(true);
+    }
+
+    /**
+     * @return the timings of this helper's operations; recording is off until enabled
+     */
+    public DBMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Close the cached statements before the connection they were compiled on
+     */
+    @Override
+    public synchronized void close() {
+        synchronized (statementCache) {
+            for (SQLiteStatement statement : statementCache.values()) {
+                statement.close();
+            }
+            statementCache.clear();
+        }
+        super.close();
+    }
+
+    /**
+     * Run a single-row, single-column query through a cached compiled statement.
+     * No Cursor or CursorWindow is allocated, and the SQL is only prepared on first use.
+     * @param sql One of the scalar query constants
+     * @param args String arguments bound in order
+     * @return the value of the first column
+     */
+    private long queryForLong(String sql, String... args) {
+        SQLiteStatement statement;
+        synchronized (statementCache) {
+            statement = statementCache.get(sql);
+            if (statement == null) {
+                statement = getReadableDatabase().compileStatement(sql);
+                statementCache.put(sql, statement);
+            }
+        }
+        // Bindings live on the statement, so callers on different threads take turns
+        synchronized (statement) {
+            statement.bindAllArgsAsStrings(args);
+            try {
+                return statement.simpleQueryForLong();
+            } finally {
+                statement.clearBindings();
+            }
+        }
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
-        // Create expenses table
-        String CREATE_EXPENSES_TABLE = "CREATE TABLE " + TABLE_EXPENSES + "("
-                + COL_EXPENSE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
-                + COL_TITLE + " TEXT,"
-                + COL_DESCRIPTION + " TEXT,"
-                + COL_AMOUNT + " REAL,"
-                + COL_CATEGORY + " TEXT,"
-                + COL_DATE + " TEXT,"
-                + COL_IS_RECURRING + " INTEGER,"
-                + COL_RECURRING_TYPE + " TEXT" + ")";
-        db.execSQL(CREATE_EXPENSES_TABLE);
+        // Create categories table; each user gets the defaults when they register
+        createCategoriesTable(db, TABLE_CATEGORIES);
 
-        // Create categories table
-        String CREATE_CATEGORIES_TABLE = "CREATE TABLE " + TABLE_CATEGORIES + "("
-                + COL_CATEGORY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
-                + COL_CATEGORY_NAME + " TEXT UNIQUE,"
-                + COL_CATEGORY_COLOR + " TEXT" + ")";
-        db.execSQL(CREATE_CATEGORIES_TABLE);
+        // Create expenses table, referencing categories
+        createExpensesTable(db, TABLE_EXPENSES, TABLE_CATEGORIES);
 
         // Create users table
         String CREATE_USERS_TABLE = "CREATE TABLE " + TABLE_USERS + "("
@@ -74,8 +375,11 @@ public class DBHelper extends SQLiteOpenHelper {
                 + COL_CREATED_AT + " DATETIME DEFAULT CURRENT_TIMESTAMP" + ")";
         db.execSQL(CREATE_USERS_TABLE);
 
-        // Insert default categories
-        insertDefaultCategories(db);
+        createIndexes(db);
+        createRecurringTables(db);
+        createSummaryTables(db);
+        createSearchIndex(db);
+        createAnalyticsTracking(db);
     }
 
     @Override
@@ -89,9 +393,321 @@ public class DBHelper extends SQLiteOpenHelper {
                     + COL_CREATED_AT + " DATETIME DEFAULT CURRENT_TIMESTAMP" + ")";
             db.execSQL(CREATE_USERS_TABLE);
         }
+        if (oldVersion < 12) {
+            // Version 4 stores dates as epoch days, version 5 amounts as cents, version 11
+            // category ids instead of names and version 12 the owning user. SQLite cannot change
+            // a column's type or a UNIQUE constraint in place, so a single copy converts from
+            // whichever schema the database has.
+            rebuildTables(db, oldVersion);
+
+            // Dropping the old tables also dropped their indexes and triggers, so recreate
+            // everything that hangs off expenses: indexes (version 3 and 8), the recurring
+            // series tables (9), summaries (6), the search index (7) and analytics change
+            // tracking (10). The summary and tracking tables are keyed differently since 11 and 12.
+            createIndexes(db);
+            createRecurringTables(db);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_CATEGORY_TOTALS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_MONTHLY_TOTALS);
+            createSummaryTables(db);
+            rebuildSummaries(db);
+            createSearchIndex(db);
+            db.execSQL("INSERT INTO " + TABLE_EXPENSES_FTS + "(" + TABLE_EXPENSES_FTS + ") VALUES ('rebuild')");
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_ANALYTICS_DIRTY);
+            createAnalyticsTracking(db);
+        }
     }
 
-    private void insertDefaultCategories(SQLiteDatabase db) {
+    /**
+     * SQLite cannot change a column's type in place, so copy categories and expenses into
+     * tables with the current schema, converting the columns that changed since oldVersion.
+     * Indexes and triggers on the old tables are dropped with them.
+     */
+    private void rebuildTables(SQLiteDatabase db, int oldVersion) {
+        String dateExpr = COL_DATE;
+        if (oldVersion < 4) {
+            // "yyyy-MM-dd" TEXT to epoch day; unparseable dates fall back to today
+            dateExpr = "COALESCE(CAST(julianday(" + COL_DATE + ") - 2440587.5 AS INTEGER), "
+                    + "CAST(julianday('now', 'localtime') - 2440587.5 AS INTEGER))";
+        }
+        String amountExpr = COL_AMOUNT;
+        if (oldVersion < 5) {
+            // REAL amount to integer cents
+            amountExpr = "CAST(ROUND(COALESCE(" + LEGACY_COL_AMOUNT + ", 0) * 100) AS INTEGER)";
+        }
+        // Occurrences are only linked to their series from version 9
+        String seriesExpr = oldVersion < 9 ? "NULL" : COL_SERIES_ID;
+
+        String categoryExpr = COL_CATEGORY;
+        if (oldVersion < 11) {
+            // Category names to ids, matched ignoring case. Names without a category are added
+            // to the categories table first and expenses without a name get the default one.
+            String nameExpr = "TRIM(" + LEGACY_COL_CATEGORY + ")";
+            db.execSQL("INSERT OR IGNORE INTO " + TABLE_CATEGORIES + "(" + COL_CATEGORY_NAME + ", "
+                    + COL_CATEGORY_COLOR + ") VALUES (?, ?)", new Object[]{DEFAULT_CATEGORY, DEFAULT_CATEGORY_COLOR});
+            db.execSQL("INSERT OR IGNORE INTO " + TABLE_CATEGORIES + "(" + COL_CATEGORY_NAME + ", "
+                    + COL_CATEGORY_COLOR + ") SELECT MIN(" + nameExpr + "), ? FROM " + TABLE_EXPENSES
+                    + " WHERE " + nameExpr + " != '' AND NOT EXISTS (SELECT 1 FROM " + TABLE_CATEGORIES
+                    + " WHERE " + COL_CATEGORY_NAME + " = " + nameExpr + " COLLATE NOCASE)"
+                    + " GROUP BY " + nameExpr + " COLLATE NOCASE", new Object[]{DEFAULT_CATEGORY_COLOR});
+            categoryExpr = "COALESCE((SELECT MIN(" + COL_CATEGORY_ID + ") FROM " + TABLE_CATEGORIES
+                    + " WHERE " + COL_CATEGORY_NAME + " = " + nameExpr + " COLLATE NOCASE), (SELECT "
+                    + COL_CATEGORY_ID + " FROM " + TABLE_CATEGORIES + " WHERE " + COL_CATEGORY_NAME
+                    + " = " + DatabaseUtils.sqlEscapeString(DEFAULT_CATEGORY) + "))";
+        }
+
+        // Data from before version 12 belongs to the oldest account, or to whoever registers first
+        long owner = DatabaseUtils.longForQuery(db, "SELECT COALESCE(MIN(" + COL_USER_ID + "), "
+                + UNOWNED_USER_ID + ") FROM " + TABLE_USERS, null);
+        String userExpr = oldVersion < 12 ? String.valueOf(owner) : COL_EXPENSE_USER_ID;
+
+        // The new expenses reference the new categories. Dropping the old expenses first
+        // leaves nothing referencing the old categories, and renaming the new categories
+        // table carries the reference along.
+        String newCategories = TABLE_CATEGORIES + "_new";
+        String newExpenses = TABLE_EXPENSES + "_new";
+        createCategoriesTable(db, newCategories);
+        db.execSQL("INSERT INTO " + newCategories + "(" + COL_CATEGORY_ID + ", " + COL_CATEGORY_NAME + ", "
+                + COL_CATEGORY_COLOR + ", " + COL_CATEGORY_USER_ID + ") SELECT " + COL_CATEGORY_ID + ", "
+                + COL_CATEGORY_NAME + ", " + COL_CATEGORY_COLOR + ", " + userExpr + " FROM " + TABLE_CATEGORIES);
+        createExpensesTable(db, newExpenses, newCategories);
+        db.execSQL("INSERT INTO " + newExpenses + "("
+                + COL_EXPENSE_ID + ", " + COL_TITLE + ", " + COL_DESCRIPTION + ", " + COL_AMOUNT + ", "
+                + COL_CATEGORY + ", " + COL_DATE + ", " + COL_IS_RECURRING + ", " + COL_RECURRING_TYPE + ", "
+                + COL_SERIES_ID + ", " + COL_EXPENSE_USER_ID + ") SELECT "
+                + COL_EXPENSE_ID + ", " + COL_TITLE + ", " + COL_DESCRIPTION + ", " + amountExpr + ", "
+                + categoryExpr + ", " + dateExpr + ", " + COL_IS_RECURRING + ", " + COL_RECURRING_TYPE + ", "
+                + seriesExpr + ", " + userExpr + " FROM " + TABLE_EXPENSES);
+        db.execSQL("DROP TABLE " + TABLE_EXPENSES);
+        db.execSQL("DROP TABLE " + TABLE_CATEGORIES);
+        db.execSQL("ALTER TABLE " + newCategories + " RENAME TO " + TABLE_CATEGORIES);
+        db.execSQL("ALTER TABLE " + newExpenses + " RENAME TO " + TABLE_EXPENSES);
+
+        if (oldVersion < 12 && owner != UNOWNED_USER_ID) {
+            // Every other existing account starts with its own default categories
+            Cursor cursor = db.rawQuery("SELECT " + COL_USER_ID + " FROM " + TABLE_USERS
+                    + " WHERE " + COL_USER_ID + " != ?", new String[]{String.valueOf(owner)});
+            while (cursor.moveToNext()) {
+                insertDefaultCategories(db, cursor.getInt(0));
+            }
+            cursor.close();
+        }
+    }
+
+    private void createCategoriesTable(SQLiteDatabase db, String tableName) {
+        String CREATE_CATEGORIES_TABLE = "CREATE TABLE " + tableName + "("
+                + COL_CATEGORY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COL_CATEGORY_NAME + " TEXT,"
+                + COL_CATEGORY_COLOR + " TEXT,"
+                + COL_CATEGORY_USER_ID + " INTEGER NOT NULL,"
+                // Names are unique per user; the index also serves listing a user's categories
+                + "UNIQUE (" + COL_CATEGORY_USER_ID + ", " + COL_CATEGORY_NAME + "))";
+        db.execSQL(CREATE_CATEGORIES_TABLE);
+    }
+
+    private void createExpensesTable(SQLiteDatabase db, String tableName, String categoriesTable) {
+        String CREATE_EXPENSES_TABLE = "CREATE TABLE " + tableName + "("
+                + COL_EXPENSE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COL_TITLE + " TEXT,"
+                + COL_DESCRIPTION + " TEXT,"
+                + COL_AMOUNT + " INTEGER NOT NULL,"
+                + COL_CATEGORY + " INTEGER NOT NULL REFERENCES " + categoriesTable
+                + "(" + COL_CATEGORY_ID + ") ON DELETE RESTRICT,"
+                + COL_DATE + " INTEGER NOT NULL," // epoch day
+                + COL_IS_RECURRING + " INTEGER,"
+                + COL_RECURRING_TYPE + " TEXT,"
+                + COL_SERIES_ID + " INTEGER,"
+                + COL_EXPENSE_USER_ID + " INTEGER NOT NULL" + ")";
+        db.execSQL(CREATE_EXPENSES_TABLE);
+    }
+
+    /**
+     * Create the category_totals and monthly_totals tables and the triggers that keep them
+     * in step with every insert, update and delete on expenses, so totals are read in
+     * O(categories) or O(months) instead of rescanning the expenses table.
+     */
+    private void createSummaryTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_CATEGORY_TOTALS + "("
+                + COL_SUMMARY_CATEGORY + " INTEGER PRIMARY KEY,"
+                + COL_SUMMARY_TOTAL + " INTEGER NOT NULL,"
+                + COL_SUMMARY_COUNT + " INTEGER NOT NULL" + ")");
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_MONTHLY_TOTALS + "("
+                + COL_SUMMARY_USER_ID + " INTEGER NOT NULL,"
+                + COL_SUMMARY_MONTH + " INTEGER NOT NULL,"
+                + COL_SUMMARY_TOTAL + " INTEGER NOT NULL,"
+                + COL_SUMMARY_COUNT + " INTEGER NOT NULL,"
+                + "PRIMARY KEY (" + COL_SUMMARY_USER_ID + ", " + COL_SUMMARY_MONTH + "))");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_expenses_summary_insert AFTER INSERT ON " + TABLE_EXPENSES
+                + " BEGIN " + addToSummaries("NEW", "+") + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_expenses_summary_delete AFTER DELETE ON " + TABLE_EXPENSES
+                + " BEGIN " + addToSummaries("OLD", "-") + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_expenses_summary_update AFTER UPDATE OF "
+                + COL_AMOUNT + ", " + COL_CATEGORY + ", " + COL_DATE + ", " + COL_EXPENSE_USER_ID + " ON " + TABLE_EXPENSES
+                + " BEGIN " + addToSummaries("OLD", "-") + addToSummaries("NEW", "+") + " END");
+    }
+
+    /**
+     * Create the watermark table and the indexes the recurrence engine relies on
+     */
+    private void createRecurringTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_RECURRING_WATERMARKS + "("
+                + COL_WATERMARK_SERIES_ID + " INTEGER PRIMARY KEY,"
+                + COL_WATERMARK_DAY + " INTEGER NOT NULL" + ")");
+        // One occurrence per series and date; NULL series ids (ordinary expenses) never collide
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS " + INDEX_EXPENSES_SERIES_DATE
+                + " ON " + TABLE_EXPENSES + "(" + COL_SERIES_ID + ", " + COL_DATE + ")");
+        // Partial index, so finding the recurring templates does not scan every expense
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_EXPENSES_RECURRING
+                + " ON " + TABLE_EXPENSES + "(" + COL_IS_RECURRING + ") WHERE " + COL_IS_RECURRING + " = 1");
+    }
+
+    /**
+     * Create the table and triggers recording, per user, the earliest expense date that
+     * has been inserted, updated or deleted, so cached analytics for closed periods are
+     * only thrown away from that date on. Every write path is covered, bulk imports and
+     * recurring occurrences included.
+     */
+    private void createAnalyticsTracking(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_ANALYTICS_DIRTY + "("
+                + COL_DIRTY_USER_ID + " INTEGER PRIMARY KEY,"
+                + COL_DIRTY_DAY + " INTEGER" + ")");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_expenses_analytics_insert AFTER INSERT ON " + TABLE_EXPENSES
+                + " BEGIN " + markDirty("NEW") + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_expenses_analytics_delete AFTER DELETE ON " + TABLE_EXPENSES
+                + " BEGIN " + markDirty("OLD") + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_expenses_analytics_update AFTER UPDATE OF "
+                + COL_AMOUNT + ", " + COL_CATEGORY + ", " + COL_DATE + ", " + COL_EXPENSE_USER_ID
+                + " ON " + TABLE_EXPENSES + " BEGIN " + markDirty("OLD") + markDirty("NEW") + " END");
+    }
+
+    /**
+     * Trigger body statements lowering the row's user's dirty day to the row's date
+     * @param row "NEW" or "OLD"
+     */
+    private static String markDirty(String row) {
+        String user = row + "." + COL_EXPENSE_USER_ID;
+        String day = row + "." + COL_DATE;
+        // MIN() of a NULL is NULL, so start from the changed day when nothing is pending
+        return "INSERT OR IGNORE INTO " + TABLE_ANALYTICS_DIRTY + " VALUES (" + user + ", NULL); "
+                + "UPDATE " + TABLE_ANALYTICS_DIRTY + " SET " + COL_DIRTY_DAY + " = MIN(IFNULL("
+                + COL_DIRTY_DAY + ", " + day + "), " + day + ") WHERE " + COL_DIRTY_USER_ID + " = " + user + "; ";
+    }
+
+    /**
+     * Create the FTS4 index over expense titles and descriptions. It is an external content
+     * table, so the text is stored once in expenses and only the index lives in expenses_fts.
+     * Triggers remove the old entry before a row changes and add the new one after.
+     */
+    private void createSearchIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_EXPENSES_FTS + " USING fts4("
+                + "content=\"" + TABLE_EXPENSES + "\", " + COL_TITLE + ", " + COL_DESCRIPTION + ")");
+
+        String deleteOld = "DELETE FROM " + TABLE_EXPENSES_FTS + " WHERE docid = OLD." + COL_EXPENSE_ID + "; ";
+        String insertNew = "INSERT INTO " + TABLE_EXPENSES_FTS + "(docid, " + COL_TITLE + ", " + COL_DESCRIPTION
+                + ") VALUES (NEW." + COL_EXPENSE_ID + ", NEW." + COL_TITLE + ", NEW." + COL_DESCRIPTION + "); ";
+        String textColumns = COL_TITLE + ", " + COL_DESCRIPTION;
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_expenses_fts_insert AFTER INSERT ON " + TABLE_EXPENSES
+                + " BEGIN " + insertNew + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_expenses_fts_before_update BEFORE UPDATE OF " + textColumns
+                + " ON " + TABLE_EXPENSES + " BEGIN " + deleteOld + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_expenses_fts_after_update AFTER UPDATE OF " + textColumns
+                + " ON " + TABLE_EXPENSES + " BEGIN " + insertNew + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_expenses_fts_delete BEFORE DELETE ON " + TABLE_EXPENSES
+                + " BEGIN " + deleteOld + " END");
+    }
+
+    /**
+     * Trigger body statements that add ("+") or remove ("-") one expense row from both summaries
+     * @param row "NEW" or "OLD"
+     * @param sign "+" or "-"
+     */
+    private static String addToSummaries(String row, String sign) {
+        String category = row + "." + COL_CATEGORY;
+        String user = row + "." + COL_EXPENSE_USER_ID;
+        String month = monthExpr(row + "." + COL_DATE);
+        return "INSERT OR IGNORE INTO " + TABLE_CATEGORY_TOTALS + " VALUES (" + category + ", 0, 0); "
+                + "UPDATE " + TABLE_CATEGORY_TOTALS + " SET "
+                + COL_SUMMARY_TOTAL + " = " + COL_SUMMARY_TOTAL + " " + sign + " " + row + "." + COL_AMOUNT + ", "
+                + COL_SUMMARY_COUNT + " = " + COL_SUMMARY_COUNT + " " + sign + " 1"
+                + " WHERE " + COL_SUMMARY_CATEGORY + " = " + category + "; "
+                + "INSERT OR IGNORE INTO " + TABLE_MONTHLY_TOTALS + " VALUES (" + user + ", " + month + ", 0, 0); "
+                + "UPDATE " + TABLE_MONTHLY_TOTALS + " SET "
+                + COL_SUMMARY_TOTAL + " = " + COL_SUMMARY_TOTAL + " " + sign + " " + row + "." + COL_AMOUNT + ", "
+                + COL_SUMMARY_COUNT + " = " + COL_SUMMARY_COUNT + " " + sign + " 1"
+                + " WHERE " + COL_SUMMARY_USER_ID + " = " + user + " AND " + COL_SUMMARY_MONTH + " = " + month + "; ";
+    }
+
+    /**
+     * SQL expression turning an epoch-day column into a yyyyMM month key
+     */
+    private static String monthExpr(String epochDayColumn) {
+        return "CAST(strftime('%Y%m', " + epochDayColumn + " * 86400, 'unixepoch') AS INTEGER)";
+    }
+
+    /**
+     * Recompute both summary tables from the expenses table
+     */
+    public void rebuildSummaries() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            rebuildSummaries(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void rebuildSummaries(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TABLE_CATEGORY_TOTALS);
+        db.execSQL("DELETE FROM " + TABLE_MONTHLY_TOTALS);
+        db.execSQL("INSERT INTO " + TABLE_CATEGORY_TOTALS + " " + SUMMARY_BY_CATEGORY);
+        db.execSQL("INSERT INTO " + TABLE_MONTHLY_TOTALS + " " + SUMMARY_BY_MONTH);
+    }
+
+    /**
+     * Check the summary tables against totals recomputed from the expenses table
+     * @return true if every category and month total and count matches
+     */
+    public boolean verifySummaries() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return countDifferences(db, SUMMARY_BY_CATEGORY, TABLE_CATEGORY_TOTALS) == 0
+                && countDifferences(db, SUMMARY_BY_MONTH, TABLE_MONTHLY_TOTALS) == 0;
+    }
+
+    private static long countDifferences(SQLiteDatabase db, String expected, String summaryTable) {
+        // Rows whose count dropped to zero are equivalent to missing rows
+        String actual = "SELECT * FROM " + summaryTable + " WHERE " + COL_SUMMARY_COUNT + " != 0";
+        return DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM ("
+                + "SELECT * FROM (" + expected + " EXCEPT " + actual + ")"
+                + " UNION ALL "
+                + "SELECT * FROM (" + actual + " EXCEPT " + expected + "))", null);
+    }
+
+    /**
+     * Create the indexes behind the hot queries: one user's expenses in date order for
+     * history and dashboard, category lookups for totals and the category join, and
+     * username for login. Category ids belong to one user, so those indexes are already
+     * partitioned by user.
+     */
+    private void createIndexes(SQLiteDatabase db) {
+        // Rowid is implicitly part of every index, so this also serves ORDER BY date, id within a user
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_EXPENSES_USER_DATE
+                + " ON " + TABLE_EXPENSES + "(" + COL_EXPENSE_USER_ID + ", " + COL_DATE + ")");
+        // Covers SUM(amount) per category without touching the table rows
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_EXPENSES_CATEGORY
+                + " ON " + TABLE_EXPENSES + "(" + COL_CATEGORY + ", " + COL_AMOUNT + ")");
+        // Serves filtered history: category equality plus a date range, already in date order
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_EXPENSES_CATEGORY_DATE
+                + " ON " + TABLE_EXPENSES + "(" + COL_CATEGORY + ", " + COL_DATE + ")");
+        // Covers the credential check
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_USERS_USERNAME
+                + " ON " + TABLE_USERS + "(" + COL_USERNAME + ", " + COL_PASSWORD + ")");
+    }
+
+    private void insertDefaultCategories(SQLiteDatabase db, int userId) {
         String[] defaultCategories = {"Food", "Transportation", "Entertainment", "Shopping", "Bills", "Healthcare", "Other"};
         String[] defaultColors = {"#FF5722", "#2196F3", "#FF9800", "#9C27B0", "#4CAF50", "#F44336", "#607D8B"};
 
@@ -99,6 +715,7 @@ public class DBHelper extends SQLiteOpenHelper {
             ContentValues values = new ContentValues();
             values.put(COL_CATEGORY_NAME, defaultCategories[i]);
             values.put(COL_CATEGORY_COLOR, defaultColors[i]);
+            values.put(COL_CATEGORY_USER_ID, userId);
             db.insert(TABLE_CATEGORIES, null, values);
         }
     }
@@ -106,77 +723,129 @@ public class DBHelper extends SQLiteOpenHelper {
     // User Authentication Methods
 
     /**
-     * Hash password using SHA-256
+     * Insert new user into database
+     * @param username The username
+     * @param password The password; hashed here, so call this off the main thread
+     * @return true if user was inserted successfully, false if username already exists
      */
-    private String hashPassword(String password) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(password.getBytes());
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-            return password; // Fallback to plain text (not recommended for production)
-        }
+    public boolean insertUser(String username, String password) {
+        return !isUsernameExists(username) && insertUserWithHash(username, hashPassword(password));
+    }
+
+    /**
+     * Hash a password for {@link #insertUserWithHash(String, String)}. This is the slow part of
+     * registering, so it can run outside the write that inserts the user.
+     * @param password The password
+     * @return the encoded hash to store
+     */
+    public String hashPassword(String password) {
+        return passwordHasher().hash(password);
+    }
+
+    /**
+     * The hasher reads its saved cost from preferences and may calibrate it, so it is only loaded
+     * by the slow password calls, which run on a background thread, rather than when the
+     * helper is opened, which can happen on the main thread
+     */
+    private PasswordHasher passwordHasher() {
+        return DevicePasswordHasher.getInstance(context);
     }
 
     /**
      * Insert new user into database
      * @param username The username
-     * @param password The password (will be hashed)
+     * @param passwordHash The password hashed with {@link #hashPassword(String)}
      * @return true if user was inserted successfully, false if username already exists
      */
-    public boolean insertUser(String username, String password) {
+    public boolean insertUserWithHash(String username, String passwordHash) {
         SQLiteDatabase db = this.getWritableDatabase();
 
         // Check if username already exists
-        Cursor cursor = db.query(TABLE_USERS, null, COL_USERNAME + "=?",
-                new String[]{username}, null, null, null);
-
-        if (cursor.getCount() > 0) {
-            cursor.close();
-            db.close();
+        if (isUsernameExists(username)) {
             return false; // Username already exists
         }
-        cursor.close();
 
         // Insert new user
         ContentValues values = new ContentValues();
         values.put(COL_USERNAME, username);
-        values.put(COL_PASSWORD, hashPassword(password));
+        values.put(COL_PASSWORD, passwordHash);
 
-        long result = db.insert(TABLE_USERS, null, values);
-        db.close();
+        db.beginTransaction();
+        try {
+            long result = db.insert(TABLE_USERS, null, values);
+            if (result == -1) {
+                return false;
+            }
+            // The first account adopts data from before accounts were separated;
+            // everyone else starts with the default categories
+            if (!adoptUnownedData(db, (int) result)) {
+                insertDefaultCategories(db, (int) result);
+            }
+            db.setTransactionSuccessful();
+            return true;
+        } finally {
+            db.endTransaction();
+            categoryCaches.remove(UNOWNED_USER_ID);
+        }
+    }
 
-        return result != -1;
+    /**
+     * Give categories and expenses without an owner to a user
+     * @return true if there was any such data
+     */
+    private boolean adoptUnownedData(SQLiteDatabase db, int userId) {
+        String[] unowned = {String.valueOf(UNOWNED_USER_ID)};
+        ContentValues categoryOwner = new ContentValues();
+        categoryOwner.put(COL_CATEGORY_USER_ID, userId);
+        if (db.update(TABLE_CATEGORIES, categoryOwner, COL_CATEGORY_USER_ID + " = ?", unowned) == 0) {
+            return false;
+        }
+        ContentValues expenseOwner = new ContentValues();
+        expenseOwner.put(COL_EXPENSE_USER_ID, userId);
+        db.update(TABLE_EXPENSES, expenseOwner, COL_EXPENSE_USER_ID + " = ?", unowned);
+        return true;
     }
 
     /**
-     * Check if user credentials are valid
+     * Check a user's credentials and get their id with one lookup. Hashes from older
+     * versions or with fewer iterations than this device now uses are replaced on success.
+     * Verifying is deliberately slow, so call this off the main thread.
      * @param username The username
      * @param password The password
-     * @return true if credentials are valid, false otherwise
+     * @return the user ID if the credentials are valid, -1 otherwise
      */
-    public boolean checkUser(String username, String password) {
+    public int authenticate(String username, String password) {
+        long start = metrics.begin();
         SQLiteDatabase db = this.getReadableDatabase();
-        String hashedPassword = hashPassword(password);
-
-        Cursor cursor = db.query(TABLE_USERS, null,
-                COL_USERNAME + "=? AND " + COL_PASSWORD + "=?",
-                new String[]{username, hashedPassword}, null, null, null);
-
-        boolean isValid = cursor.getCount() > 0;
+        Cursor cursor = db.rawQuery(QUERY_CREDENTIALS, new String[]{username});
+        int userId = -1;
+        String stored = null;
+        if (cursor.moveToFirst()) {
+            userId = cursor.getInt(0);
+            stored = cursor.getString(1);
+        }
         cursor.close();
-        db.close();
 
-        return isValid;
+        PasswordHasher passwordHasher = passwordHasher();
+        if (stored == null) {
+            // Cost the same as a wrong password, so timing does not reveal which usernames exist
+            passwordHasher.verifyUnknownUser(password);
+            metrics.end("authenticate", start, 0);
+            return -1;
+        }
+        if (!passwordHasher.verify(password, stored)) {
+            metrics.end("authenticate", start, 0);
+            return -1;
+        }
+        if (passwordHasher.needsRehash(stored)) {
+            ContentValues values = new ContentValues();
+            values.put(COL_PASSWORD, passwordHasher.hash(password));
+            // Only replace the hash that was verified, in case it changed meanwhile
+            getWritableDatabase().update(TABLE_USERS, values, COL_USER_ID + " = ? AND " + COL_PASSWORD + " = ?",
+                    new String[]{String.valueOf(userId), stored});
+        }
+        metrics.end("authenticate", start, 1);
+        return userId;
     }
 
     /**
@@ -185,15 +854,7 @@ public class DBHelper extends SQLiteOpenHelper {
      * @return true if username exists, false otherwise
      */
     public boolean isUsernameExists(String username) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_USERS, null, COL_USERNAME + "=?",
-                new String[]{username}, null, null, null);
-
-        boolean exists = cursor.getCount() > 0;
-        cursor.close();
-        db.close();
-
-        return exists;
+        return queryForLong(QUERY_USERNAME_EXISTS, username) == 1;
     }
 
     /**
@@ -202,123 +863,754 @@ public class DBHelper extends SQLiteOpenHelper {
      * @return user ID if found, -1 otherwise
      */
     public int getUserId(String username) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_USERS, new String[]{COL_USER_ID},
-                COL_USERNAME + "=?", new String[]{username}, null, null, null);
-
-        int userId = -1;
-        if (cursor.moveToFirst()) {
-            userId = cursor.getInt(0);
-        }
-        cursor.close();
-        db.close();
-
+        long start = metrics.begin();
+        int userId = (int) queryForLong(QUERY_USER_ID, username);
+        metrics.end("getUserId", start, 1);
         return userId;
     }
 
-    // Expense CRUD operations (existing methods remain unchanged)
-    public long addExpense(Expense expense) {
+    // Expense CRUD operations, each scoped to the user owning the expenses
+    public long addExpense(int userId, Expense expense) {
+        long start = metrics.begin();
         SQLiteDatabase db = this.getWritableDatabase();
+        Map<String, Integer> createdCategories = new HashMap<>();
         ContentValues values = new ContentValues();
         values.put(COL_TITLE, expense.getTitle());
         values.put(COL_DESCRIPTION, expense.getDescription());
-        values.put(COL_AMOUNT, expense.getAmount());
-        values.put(COL_CATEGORY, expense.getCategory());
-        values.put(COL_DATE, expense.getDate());
+        values.put(COL_AMOUNT, expense.getAmountCents());
+        values.put(COL_CATEGORY, resolveCategoryId(db, userId, expense, createdCategories));
+        values.put(COL_DATE, expense.getEpochDay());
         values.put(COL_IS_RECURRING, expense.isRecurring() ? 1 : 0);
         values.put(COL_RECURRING_TYPE, expense.getRecurringType());
+        values.put(COL_EXPENSE_USER_ID, userId);
 
         long id = db.insert(TABLE_EXPENSES, null, values);
-        db.close();
+        invalidateIfCreated(userId, createdCategories);
+        metrics.end("addExpense", start, id != -1 ? 1 : 0);
         return id;
     }
 
-    public List<Expense> getAllExpenses() {
-        List<Expense> expenseList = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + TABLE_EXPENSES + " ORDER BY " + COL_DATE + " DESC";
+    /**
+     * Receives progress while {@link #addExpenses(int, Iterable, ProgressListener)} or
+     * {@link #exportExpenses} runs
+     */
+    public interface ProgressListener {
+        void onProgress(int rows);
+    }
 
+    /**
+     * Insert many expenses in a single transaction, reusing one compiled INSERT statement.
+     * The expenses are pulled from the iterable one at a time, so a streaming reader is never
+     * materialised. Either every expense is inserted or, on failure, none are.
+     * @param userId The user the expenses belong to
+     * @param expenses The expenses to insert
+     * @param listener Receives the running count every {@link #PROGRESS_INTERVAL} rows and at the end; may be null
+     * @return the number of expenses inserted
+     */
+    public int addExpenses(int userId, Iterable<Expense> expenses, ProgressListener listener) {
+        long start = metrics.begin();
         SQLiteDatabase db = this.getWritableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, null);
+        SQLiteStatement statement = db.compileStatement(INSERT_EXPENSE);
+        // Categories created by this import; the cache only learns of them once the transaction ends
+        Map<String, Integer> createdCategories = new HashMap<>();
+        int count = 0;
+
+        db.beginTransaction();
+        try {
+            for (Expense expense : expenses) {
+                statement.clearBindings();
+                bindStringOrNull(statement, 1, expense.getTitle());
+                bindStringOrNull(statement, 2, expense.getDescription());
+                statement.bindLong(3, expense.getAmountCents());
+                statement.bindLong(4, resolveCategoryId(db, userId, expense, createdCategories));
+                statement.bindLong(5, expense.getEpochDay());
+                statement.bindLong(6, expense.isRecurring() ? 1 : 0);
+                bindStringOrNull(statement, 7, expense.getRecurringType());
+                statement.bindLong(8, userId);
+                statement.executeInsert();
+
+                count++;
+                if (listener != null && count % PROGRESS_INTERVAL == 0) {
+                    listener.onProgress(count);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            statement.close();
+            // Committed or rolled back, a reload now sees exactly the categories that exist
+            invalidateIfCreated(userId, createdCategories);
+        }
+
+        if (listener != null) {
+            listener.onProgress(count);
+        }
+        metrics.end("addExpenses", start, count);
+        return count;
+    }
+
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    /**
+     * Get every recurring expense with the date its occurrences have been created up to
+     * @return the recurring series
+     */
+    public List<RecurringSeries> getRecurringSeries() {
+        long start = metrics.begin();
+        List<RecurringSeries> seriesList = new ArrayList<>();
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_RECURRING_SERIES, null);
+        int watermarkIndex = cursor.getColumnCount() - 1;
 
         if (cursor.moveToFirst()) {
             do {
-                Expense expense = new Expense();
-                expense.setId(cursor.getInt(0));
-                expense.setTitle(cursor.getString(1));
-                expense.setDescription(cursor.getString(2));
-                expense.setAmount(cursor.getDouble(3));
-                expense.setCategory(cursor.getString(4));
-                expense.setDate(cursor.getString(5));
-                expense.setRecurring(cursor.getInt(6) == 1);
-                expense.setRecurringType(cursor.getString(7));
-                expenseList.add(expense);
+                seriesList.add(new RecurringSeries(cursorToExpense(cursor), cursor.getLong(watermarkIndex)));
             } while (cursor.moveToNext());
         }
 
         cursor.close();
-        db.close();
+        metrics.end("getRecurringSeries", start, seriesList.size());
+        return seriesList;
+    }
+
+    /**
+     * Insert a batch of occurrences of a recurring expense and advance its watermark in the
+     * same transaction. Occurrences that already exist are skipped, so a batch interrupted
+     * before commit can simply be run again.
+     * @param template The recurring expense; its id identifies the series and the occurrences get its user
+     * @param epochDays Dates of the occurrences, in increasing order
+     * @param count Number of dates to use from epochDays
+     * @param watermark Date the series is complete up to once the batch commits
+     * @return the number of occurrences inserted
+     */
+    public int addOccurrences(Expense template, long[] epochDays, int count, long watermark) {
+        long start = metrics.begin();
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement(INSERT_OCCURRENCE);
+        SQLiteStatement upsertWatermark = db.compileStatement(UPSERT_WATERMARK);
+        int inserted = 0;
+
+        db.beginTransaction();
+        try {
+            bindStringOrNull(insert, 1, template.getTitle());
+            bindStringOrNull(insert, 2, template.getDescription());
+            insert.bindLong(3, template.getAmountCents());
+            insert.bindLong(4, template.getCategoryId());
+            insert.bindLong(6, template.getId());
+            insert.bindLong(7, template.getUserId());
+            for (int i = 0; i < count; i++) {
+                insert.bindLong(5, epochDays[i]);
+                if (insert.executeInsert() != -1) {
+                    inserted++;
+                }
+            }
+
+            upsertWatermark.bindLong(1, template.getId());
+            upsertWatermark.bindLong(2, watermark);
+            upsertWatermark.executeInsert();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+            upsertWatermark.close();
+        }
+        metrics.end("addOccurrences", start, inserted);
+        return inserted;
+    }
+
+    /**
+     * Drop watermarks of series whose expense was deleted or is no longer recurring
+     */
+    public void deleteStaleWatermarks() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_RECURRING_WATERMARKS, COL_WATERMARK_SERIES_ID + " NOT IN (SELECT " + COL_EXPENSE_ID
+                + " FROM " + TABLE_EXPENSES + " WHERE " + COL_IS_RECURRING + " = 1)", null);
+    }
+
+    // Analytics
+
+    /**
+     * Get the earliest date of the user's expenses written since the last call, and reset it
+     * @return the epoch day, or null if none of the user's expenses has changed
+     */
+    public Long takeAnalyticsDirtyDay(int userId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        String[] args = {String.valueOf(userId)};
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.rawQuery("SELECT " + COL_DIRTY_DAY + " FROM " + TABLE_ANALYTICS_DIRTY
+                    + " WHERE " + COL_DIRTY_USER_ID + " = ?", args);
+            Long day = cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : null;
+            cursor.close();
+            if (day != null) {
+                db.execSQL("UPDATE " + TABLE_ANALYTICS_DIRTY + " SET " + COL_DIRTY_DAY + " = NULL WHERE "
+                        + COL_DIRTY_USER_ID + " = ?", args);
+            }
+            db.setTransactionSuccessful();
+            return day;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Sum a user's expenses per day over a date range, using the user and date index
+     * @param userId The user
+     * @param fromEpochDay First day included
+     * @param toEpochDay Last day included
+     * @return one total per day that has expenses, in date order
+     */
+    public List<PeriodTotal> getDailyTotals(int userId, long fromEpochDay, long toEpochDay) {
+        long start = metrics.begin();
+        List<PeriodTotal> totals = new ArrayList<>();
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_DAILY_TOTALS, new String[]{
+                String.valueOf(userId), String.valueOf(fromEpochDay), String.valueOf(toEpochDay)});
+
+        if (cursor.moveToFirst()) {
+            do {
+                totals.add(new PeriodTotal(cursor.getLong(0), cursor.getLong(1)));
+            } while (cursor.moveToNext());
+        }
+
+        cursor.close();
+        metrics.end("getDailyTotals", start, totals.size());
+        return totals;
+    }
+
+    /**
+     * Sum a user's expenses per calendar month and category over a date range
+     * @param userId The user
+     * @param fromEpochDay First day included
+     * @param toEpochDay Last day included
+     * @return one total per month and category that has expenses
+     */
+    public List<CategoryMonthTotal> getCategoryMonthTotals(int userId, long fromEpochDay, long toEpochDay) {
+        long start = metrics.begin();
+        List<CategoryMonthTotal> totals = new ArrayList<>();
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_CATEGORY_MONTH_TOTALS, new String[]{
+                String.valueOf(userId), String.valueOf(fromEpochDay), String.valueOf(toEpochDay)});
+
+        if (cursor.moveToFirst()) {
+            do {
+                totals.add(new CategoryMonthTotal(cursor.getInt(0), cursor.getString(1), cursor.getLong(2)));
+            } while (cursor.moveToNext());
+        }
+
+        cursor.close();
+        metrics.end("getCategoryMonthTotals", start, totals.size());
+        return totals;
+    }
+
+    public List<Expense> getAllExpenses(int userId) {
+        long start = metrics.begin();
+        List<Expense> expenseList = new ArrayList<>();
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_ALL_EXPENSES, new String[]{String.valueOf(userId)});
+
+        if (cursor.moveToFirst()) {
+            do {
+                expenseList.add(cursorToExpense(cursor));
+            } while (cursor.moveToNext());
+        }
+
+        cursor.close();
+        metrics.end("getAllExpenses", start, expenseList.size());
         return expenseList;
     }
 
-    public Expense getExpense(int id) {
+    /**
+     * Get one page of a user's expenses ordered by date and id, newest first.
+     * Uses keyset pagination so each page costs the same regardless of how deep the user scrolls.
+     * @param userId The user
+     * @param afterDate Epoch day of the last expense on the previous page, or {@link #FIRST_PAGE}
+     * @param afterId Id of the last expense on the previous page, or {@link #FIRST_PAGE_ID}
+     * @param limit Maximum number of expenses to return
+     * @return the next page of expenses, empty when there are no more
+     */
+    public List<Expense> getExpensesPage(int userId, long afterDate, int afterId, int limit) {
+        long start = metrics.begin();
+        List<Expense> expenseList = new ArrayList<>(limit);
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        String date = String.valueOf(afterDate);
+        Cursor cursor = db.rawQuery(QUERY_EXPENSES_PAGE, new String[]{
+                String.valueOf(userId), date, date, String.valueOf(afterId), String.valueOf(limit)});
+
+        if (cursor.moveToFirst()) {
+            do {
+                expenseList.add(cursorToExpense(cursor));
+            } while (cursor.moveToNext());
+        }
+
+        cursor.close();
+        metrics.end("getExpensesPage", start, expenseList.size());
+        return expenseList;
+    }
+
+    /**
+     * Get one page of a user's expenses matching a filter, ordered by date and id, newest first.
+     * The filter is compiled into the WHERE clause, so only matching rows are read.
+     * @param userId The user
+     * @param filter The criteria to match; null or empty for every expense
+     * @param afterDate Epoch day of the last expense on the previous page, or {@link #FIRST_PAGE}
+     * @param afterId Id of the last expense on the previous page, or {@link #FIRST_PAGE_ID}
+     * @param limit Maximum number of expenses to return
+     * @return the next page of matching expenses, empty when there are no more
+     */
+    public List<Expense> getExpensesPage(int userId, ExpenseFilter filter, long afterDate, int afterId, int limit) {
+        if (filter == null || filter.isEmpty()) {
+            return getExpensesPage(userId, afterDate, afterId, limit);
+        }
+        long start = metrics.begin();
+        List<String> args = new ArrayList<>();
+        String sql = buildFilteredPageQuery(userId, filter, args);
+        String date = String.valueOf(afterDate);
+        args.add(date);
+        args.add(date);
+        args.add(String.valueOf(afterId));
+        args.add(String.valueOf(limit));
+
+        List<Expense> expenseList = new ArrayList<>(limit);
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(sql, args.toArray(new String[0]));
+
+        if (cursor.moveToFirst()) {
+            do {
+                expenseList.add(cursorToExpense(cursor));
+            } while (cursor.moveToNext());
+        }
+
+        cursor.close();
+        metrics.end("getExpensesPage(filter)", start, expenseList.size());
+        return expenseList;
+    }
+
+    /**
+     * Load all of a user's expenses matching a filter into a column-oriented snapshot, newest first.
+     * Titles and descriptions are copied from the cursor window without building Strings,
+     * and each category name is read once.
+     * @param userId The user
+     * @param filter The criteria to match; null or empty for every expense
+     * @return the matching expenses
+     */
+    public ExpenseColumns getExpenseColumns(int userId, ExpenseFilter filter) {
+        long start = metrics.begin();
+        List<String> args = new ArrayList<>();
+        String sql = "SELECT " + EXPENSE_LIST_COLUMNS + " FROM " + EXPENSES_WITH_CATEGORY + " WHERE "
+                + buildFilterClause(userId, filter != null ? filter : new ExpenseFilter(), args) + ORDER_NEWEST_FIRST;
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(sql, args.toArray(new String[0]));
+        // Not sized from getCount(), which would step through the whole result an extra time
+        ExpenseColumns.Builder builder = new ExpenseColumns.Builder(COLUMNS_INITIAL_ROWS);
+        CharArrayBuffer title = new CharArrayBuffer(64);
+        CharArrayBuffer description = new CharArrayBuffer(128);
+        while (cursor.moveToNext()) {
+            int categoryId = cursor.getInt(4);
+            cursor.copyStringToBuffer(1, title);
+            cursor.copyStringToBuffer(2, description);
+            builder.add(cursor.getInt(0),
+                    CharBuffer.wrap(title.data, 0, title.sizeCopied),
+                    CharBuffer.wrap(description.data, 0, description.sizeCopied),
+                    cursor.getLong(3),
+                    categoryId,
+                    builder.hasCategory(categoryId) ? null : cursor.getString(5),
+                    cursor.getLong(6),
+                    cursor.getInt(7) == 1);
+        }
+        cursor.close();
+        ExpenseColumns columns = builder.build();
+        metrics.end("getExpenseColumns", start, columns.size());
+        return columns;
+    }
+
+    /**
+     * Stream a user's expenses matching a filter to an export writer, oldest first.
+     * Rows go straight from the forward-only cursor to the writer; text is copied through
+     * reusable buffers, so memory use does not grow with the number of rows.
+     * @param userId The user
+     * @param filter The criteria to match; null or empty for every expense
+     * @param writer Receives the header and one row per expense; flushed, not closed
+     * @param listener Receives the running count every {@link #PROGRESS_INTERVAL} rows and at the end; may be null
+     * @param signal Cancels the query and the export, which then throws
+     *               {@link android.os.OperationCanceledException}; may be null
+     * @return the number of expenses written
+     */
+    public int exportExpenses(int userId, ExpenseFilter filter, ExpenseExportWriter writer,
+                              ProgressListener listener, CancellationSignal signal) throws IOException {
+        long start = metrics.begin();
+        List<String> args = new ArrayList<>();
+        String sql = "SELECT " + EXPORT_COLUMNS + " FROM " + EXPENSES_WITH_CATEGORY + " WHERE "
+                + buildFilterClause(userId, filter != null ? filter : new ExpenseFilter(), args) + ORDER_OLDEST_FIRST;
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(sql, args.toArray(new String[0]), signal);
+        try {
+            CharArrayBuffer title = new CharArrayBuffer(64);
+            CharArrayBuffer description = new CharArrayBuffer(128);
+            CharArrayBuffer category = new CharArrayBuffer(32);
+            CharArrayBuffer recurringType = new CharArrayBuffer(16);
+            writer.writeHeader();
+            int rows = 0;
+            while (cursor.moveToNext()) {
+                if (signal != null) {
+                    signal.throwIfCanceled();
+                }
+                cursor.copyStringToBuffer(0, title);
+                cursor.copyStringToBuffer(1, description);
+                cursor.copyStringToBuffer(3, category);
+                cursor.copyStringToBuffer(6, recurringType);
+                writer.writeRow(
+                        CharBuffer.wrap(title.data, 0, title.sizeCopied),
+                        CharBuffer.wrap(description.data, 0, description.sizeCopied),
+                        cursor.getLong(2),
+                        CharBuffer.wrap(category.data, 0, category.sizeCopied),
+                        cursor.getLong(4),
+                        cursor.getInt(5) == 1,
+                        CharBuffer.wrap(recurringType.data, 0, recurringType.sizeCopied));
+                rows++;
+                if (listener != null && rows % PROGRESS_INTERVAL == 0) {
+                    listener.onProgress(rows);
+                }
+            }
+            writer.flush();
+            if (listener != null) {
+                listener.onProgress(rows);
+            }
+            metrics.end("exportExpenses", start, rows);
+            return rows;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Build the page query for a filter. The filter's arguments are added to args;
+     * the keyset and limit arguments follow them.
+     */
+    static String buildFilteredPageQuery(int userId, ExpenseFilter filter, List<String> args) {
+        return "SELECT " + EXPENSE_COLUMNS + " FROM " + EXPENSES_WITH_CATEGORY + " WHERE " + buildFilterClause(userId, filter, args)
+                + " AND " + KEYSET_CONDITION + ORDER_NEWEST_FIRST + " LIMIT ?";
+    }
+
+    /**
+     * Turn a filter into SQL conditions joined by AND, with one placeholder per value,
+     * led by the user so the user's indexes apply. The expenses table must be aliased e;
+     * the other columns are unqualified as they are unambiguous in the categories join.
+     * @param userId The user
+     * @param filter A non-empty filter
+     * @param args Receives the values for the placeholders, in order
+     * @return the conditions
+     */
+    static String buildFilterClause(int userId, ExpenseFilter filter, List<String> args) {
+        List<String> conditions = new ArrayList<>();
+        conditions.add(USER_CONDITION);
+        args.add(String.valueOf(userId));
+        if (filter.getFromEpochDay() != null) {
+            conditions.add(COL_DATE + " >= ?");
+            args.add(String.valueOf(filter.getFromEpochDay()));
+        }
+        if (filter.getToEpochDay() != null) {
+            conditions.add(COL_DATE + " <= ?");
+            args.add(String.valueOf(filter.getToEpochDay()));
+        }
+        if (!filter.getCategoryIds().isEmpty()) {
+            StringBuilder in = new StringBuilder(COL_CATEGORY).append(" IN (");
+            for (int i = 0; i < filter.getCategoryIds().size(); i++) {
+                in.append(i == 0 ? "?" : ", ?");
+                args.add(String.valueOf(filter.getCategoryIds().get(i)));
+            }
+            conditions.add(in.append(')').toString());
+        }
+        if (filter.getMinAmountCents() != null) {
+            conditions.add(COL_AMOUNT + " >= ?");
+            args.add(String.valueOf(filter.getMinAmountCents()));
+        }
+        if (filter.getMaxAmountCents() != null) {
+            conditions.add(COL_AMOUNT + " <= ?");
+            args.add(String.valueOf(filter.getMaxAmountCents()));
+        }
+        if (filter.isRecurringOnly()) {
+            conditions.add(COL_IS_RECURRING + " = 1");
+        }
+        return TextUtils.join(" AND ", conditions);
+    }
+
+    /**
+     * Get the total of a user's expenses matching a filter
+     * @param userId The user
+     * @param filter The criteria to match; null or empty for every expense
+     * @return the total in cents
+     */
+    public long getTotalExpenses(int userId, ExpenseFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return getTotalExpenses(userId);
+        }
+        long start = metrics.begin();
+        List<String> args = new ArrayList<>();
+        String sql = "SELECT COALESCE(SUM(" + COL_AMOUNT + "), 0) FROM " + TABLE_EXPENSES
+                + " e WHERE " + buildFilterClause(userId, filter, args);
+        long total = DatabaseUtils.longForQuery(getReadableDatabase(), sql, args.toArray(new String[0]));
+        metrics.end("getTotalExpenses(filter)", start, 1);
+        return total;
+    }
+
+    /**
+     * Count a user's expenses matching a filter
+     * @param userId The user
+     * @param filter The criteria to match; null or empty for every expense
+     * @return the number of matching expenses
+     */
+    public int getExpenseCount(int userId, ExpenseFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return getExpenseCount(userId);
+        }
+        long start = metrics.begin();
+        List<String> args = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM " + TABLE_EXPENSES + " e WHERE " + buildFilterClause(userId, filter, args);
+        int count = (int) DatabaseUtils.longForQuery(getReadableDatabase(), sql, args.toArray(new String[0]));
+        metrics.end("getExpenseCount(filter)", start, 1);
+        return count;
+    }
+
+    /**
+     * Get the data shown on a user's dashboard in one query: the most recent expenses
+     * plus the grand total, carried on every row as a scalar subquery.
+     * @param userId The user
+     * @param recentLimit Number of recent expenses to return
+     * @return the dashboard summary
+     */
+    public DashboardSummary getDashboardSummary(int userId, int recentLimit) {
+        long start = metrics.begin();
+        List<Expense> recentExpenses = new ArrayList<>(recentLimit);
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_DASHBOARD, new String[]{
+                String.valueOf(userId), String.valueOf(recentLimit)});
+
+        long total = 0;
+        if (cursor.moveToFirst()) {
+            total = cursor.getLong(cursor.getColumnIndexOrThrow("grand_total"));
+            do {
+                recentExpenses.add(cursorToExpense(cursor));
+            } while (cursor.moveToNext());
+        }
+
+        cursor.close();
+        metrics.end("getDashboardSummary", start, recentExpenses.size());
+        return new DashboardSummary(total, recentExpenses);
+    }
+
+    public int getExpenseCount(int userId) {
+        long start = metrics.begin();
+        int count = (int) queryForLong(QUERY_EXPENSE_COUNT, String.valueOf(userId));
+        metrics.end("getExpenseCount", start, 1);
+        return count;
+    }
+
+    /**
+     * Get one of a user's expenses by id. Row queries still need a Cursor, but the SQL text
+     * is constant, so the connection's prepared statement cache compiles it only once.
+     * @return the expense, or null if the user has no expense with this id
+     */
+    public Expense getExpense(int userId, int id) {
+        long start = metrics.begin();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_EXPENSES, null, COL_EXPENSE_ID + "=?",
-                new String[]{String.valueOf(id)}, null, null, null, null);
+        Cursor cursor = db.rawQuery(QUERY_EXPENSE_BY_ID, new String[]{
+                String.valueOf(id), String.valueOf(userId)});
 
         if (cursor != null && cursor.moveToFirst()) {
-            Expense expense = new Expense(
-                    cursor.getInt(0),
-                    cursor.getString(1),
-                    cursor.getString(2),
-                    cursor.getDouble(3),
-                    cursor.getString(4),
-                    cursor.getString(5),
-                    cursor.getInt(6) == 1,
-                    cursor.getString(7)
-            );
+            Expense expense = cursorToExpense(cursor);
             cursor.close();
-            db.close();
+            metrics.end("getExpense", start, 1);
             return expense;
         }
         if (cursor != null) cursor.close();
-        db.close();
+        metrics.end("getExpense", start, 0);
         return null;
     }
 
-    public int updateExpense(Expense expense) {
+    /**
+     * Search the titles and descriptions of a user's expenses. Every word in the query must match the start
+     * of a word in the title or description, so "cof sta" finds "Coffee at Starbucks".
+     * Expenses matching every word in the title rank first, then newer expenses.
+     * @param userId The user
+     * @param query The text typed by the user
+     * @param limit Maximum number of expenses to return
+     * @return the matching expenses, empty if the query has no searchable words
+     */
+    public List<Expense> searchExpenses(int userId, String query, int limit) {
+        String anyColumn = toPrefixMatch(query, null);
+        if (anyColumn == null) {
+            return new ArrayList<>();
+        }
+        long start = metrics.begin();
+        List<Expense> expenseList = new ArrayList<>();
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_SEARCH_EXPENSES, new String[]{
+                anyColumn, toPrefixMatch(query, COL_TITLE), String.valueOf(limit), String.valueOf(userId)});
+
+        if (cursor.moveToFirst()) {
+            do {
+                expenseList.add(cursorToExpense(cursor));
+            } while (cursor.moveToNext());
+        }
+
+        cursor.close();
+        metrics.end("searchExpenses", start, expenseList.size());
+        return expenseList;
+    }
+
+    /**
+     * Search a user's expenses as {@link #searchExpenses(int, String, int)} does, keeping only
+     * the expenses a filter lets through, so results agree with the filtered totals
+     * @param userId The user
+     * @param query The text typed by the user
+     * @param filter The criteria to match; null or empty for every expense
+     * @param limit Maximum number of expenses to return
+     * @return the matching expenses, empty if the query has no searchable words
+     */
+    public List<Expense> searchExpenses(int userId, String query, ExpenseFilter filter, int limit) {
+        if (filter == null || filter.isEmpty()) {
+            return searchExpenses(userId, query, limit);
+        }
+        String anyColumn = toPrefixMatch(query, null);
+        if (anyColumn == null) {
+            return new ArrayList<>();
+        }
+        long start = metrics.begin();
+        List<String> args = new ArrayList<>();
+        String sql = buildFilteredSearchQuery(userId, filter, anyColumn, toPrefixMatch(query, COL_TITLE), limit, args);
+        List<Expense> expenseList = new ArrayList<>();
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(sql, args.toArray(new String[0]));
+
+        if (cursor.moveToFirst()) {
+            do {
+                expenseList.add(cursorToExpense(cursor));
+            } while (cursor.moveToNext());
+        }
+
+        cursor.close();
+        metrics.end("searchExpenses(filter)", start, expenseList.size());
+        return expenseList;
+    }
+
+    /**
+     * Build {@link #QUERY_SEARCH_EXPENSES} with a filter's conditions on the matched expenses,
+     * applied before the limit. Every argument is added to args, in order.
+     */
+    static String buildFilteredSearchQuery(int userId, ExpenseFilter filter, String anyColumn, String titleOnly,
+                                           int limit, List<String> args) {
+        args.add(titleOnly);
+        args.add(anyColumn);
+        String conditions = buildFilterClause(userId, filter, args);
+        args.add(String.valueOf(limit));
+        return "SELECT " + EXPENSE_COLUMNS + " FROM ("
+                + "SELECT f.docid, f.docid IN (SELECT docid FROM " + TABLE_EXPENSES_FTS
+                + " WHERE " + TABLE_EXPENSES_FTS + " MATCH ?) AS title_hit"
+                + " FROM " + TABLE_EXPENSES_FTS + " f JOIN " + TABLE_EXPENSES + " e ON e." + COL_EXPENSE_ID
+                + " = f.docid WHERE f." + TABLE_EXPENSES_FTS + " MATCH ? AND " + conditions
+                + " ORDER BY title_hit DESC, f.docid DESC LIMIT ?) m"
+                + " JOIN " + TABLE_EXPENSES + " e ON e." + COL_EXPENSE_ID + " = m.docid"
+                + " JOIN " + TABLE_CATEGORIES + " c ON c." + COL_CATEGORY_ID + " = e." + COL_CATEGORY
+                + " ORDER BY m.title_hit DESC, m.docid DESC";
+    }
+
+    /**
+     * Turn free text into an FTS prefix query, e.g. "Cof sta" into "cof* sta*".
+     * Punctuation is dropped so user input can never form FTS operators.
+     * @param column Column to restrict every term to, or null for any column
+     * @return the MATCH expression, or null if the text has no words
+     */
+    static String toPrefixMatch(String query, String column) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        for (String word : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            if (column != null) {
+                match.append(column).append(':');
+            }
+            match.append(word).append('*');
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    /**
+     * Read an expense from a row selected with {@link #EXPENSE_COLUMNS}
+     */
+    private Expense cursorToExpense(Cursor cursor) {
+        Expense expense = new Expense(
+                cursor.getInt(0),
+                cursor.getString(1),
+                cursor.getString(2),
+                cursor.getLong(3),
+                cursor.getString(4),
+                cursor.getLong(5),
+                cursor.getInt(6) == 1,
+                cursor.getString(7)
+        );
+        expense.setCategoryId(cursor.getInt(8));
+        expense.setUserId(cursor.getInt(9));
+        return expense;
+    }
+
+    public int updateExpense(int userId, Expense expense) {
+        long start = metrics.begin();
         SQLiteDatabase db = this.getWritableDatabase();
+        Map<String, Integer> createdCategories = new HashMap<>();
         ContentValues values = new ContentValues();
         values.put(COL_TITLE, expense.getTitle());
         values.put(COL_DESCRIPTION, expense.getDescription());
-        values.put(COL_AMOUNT, expense.getAmount());
-        values.put(COL_CATEGORY, expense.getCategory());
-        values.put(COL_DATE, expense.getDate());
+        values.put(COL_AMOUNT, expense.getAmountCents());
+        values.put(COL_CATEGORY, resolveCategoryId(db, userId, expense, createdCategories));
+        values.put(COL_DATE, expense.getEpochDay());
         values.put(COL_IS_RECURRING, expense.isRecurring() ? 1 : 0);
         values.put(COL_RECURRING_TYPE, expense.getRecurringType());
 
-        int result = db.update(TABLE_EXPENSES, values, COL_EXPENSE_ID + " = ?",
-                new String[]{String.valueOf(expense.getId())});
-        db.close();
+        int result = db.update(TABLE_EXPENSES, values, COL_EXPENSE_ID + " = ? AND " + COL_EXPENSE_USER_ID + " = ?",
+                new String[]{String.valueOf(expense.getId()), String.valueOf(userId)});
+        invalidateIfCreated(userId, createdCategories);
+        metrics.end("updateExpense", start, result);
         return result;
     }
 
-    public void deleteExpense(int id) {
+    public void deleteExpense(int userId, int id) {
+        long start = metrics.begin();
         SQLiteDatabase db = this.getWritableDatabase();
-        db.delete(TABLE_EXPENSES, COL_EXPENSE_ID + " = ?", new String[]{String.valueOf(id)});
-        db.close();
+        int deleted = db.delete(TABLE_EXPENSES, COL_EXPENSE_ID + " = ? AND " + COL_EXPENSE_USER_ID + " = ?",
+                new String[]{String.valueOf(id), String.valueOf(userId)});
+        metrics.end("deleteExpense", start, deleted);
     }
 
-    // Category operations (existing methods remain unchanged)
-    public List<Category> getAllCategories() {
+    // Category operations, each scoped to the user owning the categories
+    public List<Category> getAllCategories(int userId) {
+        long start = metrics.begin();
         List<Category> categoryList = new ArrayList<>();
-        String selectQuery = "SELECT c." + COL_CATEGORY_ID + ", c." + COL_CATEGORY_NAME +
-                ", c." + COL_CATEGORY_COLOR + ", COALESCE(SUM(e." + COL_AMOUNT + "), 0) as total " +
-                "FROM " + TABLE_CATEGORIES + " c LEFT JOIN " + TABLE_EXPENSES +
-                " e ON c." + COL_CATEGORY_NAME + " = e." + COL_CATEGORY +
-                " GROUP BY c." + COL_CATEGORY_ID + ", c." + COL_CATEGORY_NAME + ", c." + COL_CATEGORY_COLOR;
 
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, null);
+        Cursor cursor = db.rawQuery(QUERY_CATEGORIES_WITH_TOTALS, new String[]{String.valueOf(userId)});
 
         if (cursor.moveToFirst()) {
             do {
@@ -326,59 +1618,203 @@ public class DBHelper extends SQLiteOpenHelper {
                 category.setId(cursor.getInt(0));
                 category.setName(cursor.getString(1));
                 category.setColor(cursor.getString(2));
-                category.setTotalAmount(cursor.getDouble(3));
+                category.setTotalAmountCents(cursor.getLong(3));
                 categoryList.add(category);
             } while (cursor.moveToNext());
         }
 
         cursor.close();
-        db.close();
+        metrics.end("getAllCategories", start, categoryList.size());
         return categoryList;
     }
 
-    public long addCategory(Category category) {
+    public long addCategory(int userId, Category category) {
+        long start = metrics.begin();
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COL_CATEGORY_NAME, category.getName());
         values.put(COL_CATEGORY_COLOR, category.getColor());
+        values.put(COL_CATEGORY_USER_ID, userId);
 
         long id = db.insert(TABLE_CATEGORIES, null, values);
-        db.close();
+        getCategoryCache(userId).invalidate();
+        metrics.end("addCategory", start, id != -1 ? 1 : 0);
         return id;
     }
 
-    public void deleteCategory(int id) {
+    /**
+     * Delete a category. Expenses reference their category with ON DELETE RESTRICT, so a
+     * category that still has expenses is kept.
+     * @param userId The user owning the category
+     * @param id The category id
+     * @return true if the category was deleted, false if expenses still use it or the user does not own it
+     */
+    public boolean deleteCategory(int userId, int id) {
+        long start = metrics.begin();
         SQLiteDatabase db = this.getWritableDatabase();
-        db.delete(TABLE_CATEGORIES, COL_CATEGORY_ID + " = ?", new String[]{String.valueOf(id)});
-        db.close();
+        db.beginTransaction();
+        try {
+            if (db.delete(TABLE_CATEGORIES, COL_CATEGORY_ID + " = ? AND " + COL_CATEGORY_USER_ID + " = ?",
+                    new String[]{String.valueOf(id), String.valueOf(userId)}) == 0) {
+                metrics.end("deleteCategory", start, 0);
+                return false;
+            }
+            // Its summary row is left at zero once the last expense is gone
+            db.delete(TABLE_CATEGORY_TOTALS, COL_SUMMARY_CATEGORY + " = ?", new String[]{String.valueOf(id)});
+            db.setTransactionSuccessful();
+            metrics.end("deleteCategory", start, 1);
+            return true;
+        } catch (SQLiteConstraintException e) {
+            metrics.end("deleteCategory", start, 0);
+            return false;
+        } finally {
+            db.endTransaction();
+            getCategoryCache(userId).invalidate();
+        }
     }
 
-    public double getTotalExpenses() {
-        SQLiteDatabase db = this.getReadableDatabase();
-        String query = "SELECT SUM(" + COL_AMOUNT + ") FROM " + TABLE_EXPENSES;
-        Cursor cursor = db.rawQuery(query, null);
+    /**
+     * Rename a category. Expenses reference it by id, so this updates a single row.
+     * @param userId The user owning the category
+     * @param id The category id
+     * @param name The new name
+     * @return true if renamed, false if the user has no such category or another of theirs already has the name
+     */
+    public boolean renameCategory(int userId, int id, String name) {
+        long start = metrics.begin();
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COL_CATEGORY_NAME, name);
+        try {
+            int renamed = db.update(TABLE_CATEGORIES, values, COL_CATEGORY_ID + " = ? AND " + COL_CATEGORY_USER_ID + " = ?",
+                    new String[]{String.valueOf(id), String.valueOf(userId)});
+            metrics.end("renameCategory", start, renamed);
+            return renamed == 1;
+        } catch (SQLiteConstraintException e) {
+            metrics.end("renameCategory", start, 0);
+            return false;
+        } finally {
+            getCategoryCache(userId).invalidate();
+        }
+    }
 
-        double total = 0;
-        if (cursor.moveToFirst()) {
-            total = cursor.getDouble(0);
+    /**
+     * Get the id to store for an expense's category. An id already on the expense is used
+     * if the user owns that category; otherwise the name is looked up in the user's category
+     * cache, ignoring case, and a category is created for names not seen before, e.g. from an import.
+     *
+     * The cache is not invalidated here: inside a transaction another thread could reload it
+     * from a connection that cannot see the new category yet, and keep that stale snapshot.
+     * New categories are collected in created instead, so later rows of the same write find
+     * them, and the caller invalidates with {@link #invalidateIfCreated} once the write has ended.
+     * @param created Categories created so far by the current write, keyed by folded name
+     */
+    private int resolveCategoryId(SQLiteDatabase db, int userId, Expense expense, Map<String, Integer> created) {
+        CategoryCache cache = getCategoryCache(userId);
+        if (expense.getCategoryId() > 0 && (cache.get().getName(expense.getCategoryId()) != null
+                || created.containsValue(expense.getCategoryId()))) {
+            return expense.getCategoryId();
         }
-        cursor.close();
-        db.close();
-        return total;
+        String name = expense.getCategory() == null || expense.getCategory().trim().isEmpty()
+                ? DEFAULT_CATEGORY : expense.getCategory().trim();
+        int id = cache.get().getId(name);
+        if (id == -1) {
+            Integer createdId = created.get(CategoryCache.fold(name));
+            if (createdId != null) {
+                return createdId;
+            }
+            ContentValues values = new ContentValues();
+            values.put(COL_CATEGORY_NAME, name);
+            values.put(COL_CATEGORY_COLOR, DEFAULT_CATEGORY_COLOR);
+            values.put(COL_CATEGORY_USER_ID, userId);
+            id = (int) db.insertOrThrow(TABLE_CATEGORIES, null, values);
+            created.put(CategoryCache.fold(name), id);
+        }
+        return id;
+    }
+
+    /**
+     * Drop the user's category snapshot if a write created categories. Call once the write
+     * has committed or rolled back.
+     */
+    private void invalidateIfCreated(int userId, Map<String, Integer> created) {
+        if (!created.isEmpty()) {
+            getCategoryCache(userId).invalidate();
+        }
+    }
+
+    /**
+     * @return the user's category cache, kept current by this helper's category writes
+     */
+    public CategoryCache getCategoryCache(int userId) {
+        return categoryCaches.computeIfAbsent(userId, id -> new CategoryCache(this, id));
     }
 
-    public double getCategoryTotal(String categoryName) {
+    /**
+     * Read a user's categories without their totals, for {@link CategoryCache}
+     */
+    CategoryCache.Snapshot loadCategorySnapshot(int userId) {
+        long start = metrics.begin();
+        List<Integer> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<String> colors = new ArrayList<>();
+
         SQLiteDatabase db = this.getReadableDatabase();
-        String query = "SELECT SUM(" + COL_AMOUNT + ") FROM " + TABLE_EXPENSES +
-                " WHERE " + COL_CATEGORY + " = ?";
-        Cursor cursor = db.rawQuery(query, new String[]{categoryName});
+        Cursor cursor = db.rawQuery(QUERY_CATEGORY_NAMES, new String[]{String.valueOf(userId)});
 
-        double total = 0;
         if (cursor.moveToFirst()) {
-            total = cursor.getDouble(0);
+            do {
+                ids.add(cursor.getInt(0));
+                names.add(cursor.getString(1));
+                colors.add(cursor.getString(2));
+            } while (cursor.moveToNext());
         }
+
         cursor.close();
-        db.close();
+        metrics.end("loadCategorySnapshot", start, ids.size());
+        return new CategoryCache.Snapshot(ids, names, colors);
+    }
+
+    public long getTotalExpenses(int userId) {
+        long start = metrics.begin();
+        long total = queryForLong(QUERY_TOTAL_EXPENSES, String.valueOf(userId));
+        metrics.end("getTotalExpenses", start, 1);
+        return total;
+    }
+
+    /**
+     * @return the category's total in cents, 0 if the user does not own it
+     */
+    public long getCategoryTotal(int userId, int categoryId) {
+        long start = metrics.begin();
+        long total = queryForLong(QUERY_CATEGORY_TOTAL, String.valueOf(categoryId), String.valueOf(userId));
+        metrics.end("getCategoryTotal(id)", start, 1);
+        return total;
+    }
+
+    /**
+     * Get the total of one of a user's categories by name, ignoring case
+     * @return the total in cents, 0 if the user has no such category
+     */
+    public long getCategoryTotal(int userId, String categoryName) {
+        long start = metrics.begin();
+        int id = getCategoryCache(userId).get().getId(categoryName);
+        long total = id != -1 ? queryForLong(QUERY_CATEGORY_TOTAL, String.valueOf(id), String.valueOf(userId)) : 0;
+        metrics.end("getCategoryTotal(name)", start, id != -1 ? 1 : 0);
+        return total;
+    }
+
+    /**
+     * Get the total a user spent in one calendar month, read from the monthly summary
+     * @param userId The user
+     * @param year The year, e.g. 2024
+     * @param month The month, 1-12
+     * @return the month's total in cents
+     */
+    public long getMonthTotal(int userId, int year, int month) {
+        long start = metrics.begin();
+        long total = queryForLong(QUERY_MONTH_TOTAL, String.valueOf(userId), String.valueOf(year * 100 + month));
+        metrics.end("getMonthTotal", start, 1);
         return total;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,221 @@
+package com.example.expensetracker.database;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import com.example.expensetracker.utils.LatencyHistogram;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in timing of {@link DBHelper} operations. While enabled, every instrumented call records
+ * its latency, the rows it returned or wrote, and whether it ran on the main thread; the first
+ * main-thread call of each operation also keeps a stack sample showing who made it.
+ * Recording is lock-free, and while disabled it costs a volatile read per call.
+ *
+ * Only calls that return normally are recorded. A call that delegates to another instrumented
+ * call is recorded under both operations.
+ */
+public class DBMetrics {
+
+    private static final String TAG = "DBMetrics";
+    private static final long NOT_RECORDING = Long.MIN_VALUE;
+    private static final int STACK_SAMPLE_FRAMES = 12;
+
+    /**
+     * What has been recorded for one operation
+     */
+    public static final class Operation {
+        private final String name;
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder mainThreadCalls = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicReference<Throwable> mainThreadSample = new AtomicReference<>();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCalls() {
+            return latency.getCount();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getMainThreadCalls() {
+            return mainThreadCalls.sum();
+        }
+
+        /**
+         * @return the call latencies in microseconds
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return the stack of the first call made on the main thread, or null if there was none
+         */
+        public Throwable getMainThreadSample() {
+            return mainThreadSample.get();
+        }
+    }
+
+    private volatile boolean enabled;
+    private volatile long enabledAt;
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start or stop recording. What was recorded so far is kept until {@link #reset()}.
+     */
+    public void setEnabled(boolean enabled) {
+        if (enabled && !this.enabled) {
+            enabledAt = SystemClock.elapsedRealtime();
+        }
+        this.enabled = enabled;
+    }
+
+    /**
+     * Forget everything recorded so far
+     */
+    public void reset() {
+        operations.clear();
+        enabledAt = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Mark the start of an operation
+     * @return the start time to pass to {@link #end(String, long, long)}
+     */
+    long begin() {
+        return enabled ? System.nanoTime() : NOT_RECORDING;
+    }
+
+    /**
+     * Record an operation started with {@link #begin()}
+     * @param name The operation, e.g. the DBHelper method name
+     * @param start The value begin() returned
+     * @param rows Rows returned, or written for a write
+     */
+    void end(String name, long start, long rows) {
+        if (start == NOT_RECORDING) {
+            return;
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+        Operation operation = operations.get(name);
+        if (operation == null) {
+            operation = operations.computeIfAbsent(name, Operation::new);
+        }
+        operation.latency.record(micros);
+        operation.rows.add(rows);
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            operation.mainThreadCalls.increment();
+            if (operation.mainThreadSample.get() == null) {
+                operation.mainThreadSample.compareAndSet(null, new Throwable("Main thread call to " + name));
+            }
+        }
+    }
+
+    /**
+     * @return what has been recorded for an operation, or null if it was not called while enabled
+     */
+    public Operation getOperation(String name) {
+        return operations.get(name);
+    }
+
+    /**
+     * @return every operation recorded, the one that took the most time in total first
+     */
+    public List<Operation> getOperations() {
+        List<Operation> list = new ArrayList<>(operations.values());
+        list.sort((a, b) -> Double.compare(totalMicros(b), totalMicros(a)));
+        return list;
+    }
+
+    /**
+     * Write a table of every operation recorded, followed by the main-thread stack samples
+     */
+    public void dump(PrintWriter out) {
+        out.printf(Locale.ROOT, "DBHelper metrics over %d s, recording %s%n",
+                (SystemClock.elapsedRealtime() - enabledAt) / 1000, enabled ? "on" : "off");
+        out.printf(Locale.ROOT, "%-28s %8s %10s %9s %9s %9s %9s %9s %9s %6s%n", "operation", "calls", "rows",
+                "rows/call", "total ms", "p50 us", "p90 us", "p99 us", "max us", "main");
+        List<Operation> list = getOperations();
+        for (Operation operation : list) {
+            LatencyHistogram latency = operation.latency;
+            long calls = latency.getCount();
+            out.printf(Locale.ROOT, "%-28s %8d %10d %9d %9d %9d %9d %9d %9d %6d%n", operation.name, calls,
+                    operation.getRows(), calls == 0 ? 0 : operation.getRows() / calls,
+                    (long) totalMicros(operation) / 1000, latency.getValueAtPercentile(50),
+                    latency.getValueAtPercentile(90), latency.getValueAtPercentile(99), latency.getMax(),
+                    operation.getMainThreadCalls());
+        }
+        for (Operation operation : list) {
+            Throwable sample = operation.getMainThreadSample();
+            if (sample != null) {
+                out.println();
+                out.println(sample.getMessage());
+                // Skip the frames inside this class; the caller is what matters
+                StackTraceElement[] frames = sample.getStackTrace();
+                int first = 0;
+                while (first < frames.length && DBMetrics.class.getName().equals(frames[first].getClassName())) {
+                    first++;
+                }
+                for (int i = first; i < frames.length && i < first + STACK_SAMPLE_FRAMES; i++) {
+                    out.println("    at " + frames[i]);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Write {@link #dump(PrintWriter)} to logcat, one line per entry so long tables are not cut off
+     */
+    public void dumpToLogcat() {
+        StringWriter text = new StringWriter();
+        dump(new PrintWriter(text));
+        for (String line : text.toString().split("\n")) {
+            Log.i(TAG, line);
+        }
+    }
+
+    /**
+     * Write {@link #dump(PrintWriter)} to a file, replacing its contents
+     */
+    public void dumpToFile(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            dump(out);
+            if (out.checkError()) {
+                throw new IOException("Cannot write " + file);
+            }
+        }
+    }
+
+    private static double totalMicros(Operation operation) {
+        return operation.latency.getMean() * operation.latency.getCount();
+    }
+}
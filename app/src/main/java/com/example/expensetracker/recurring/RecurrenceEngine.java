@@ -0,0 +1,102 @@
+package com.example.expensetracker.recurring;
+
+import android.util.Log;
+import com.example.expensetracker.database.DBHelper;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.RecurringSeries;
+import com.example.expensetracker.utils.DateUtils;
+
+/**
+ * Creates the occurrences of recurring expenses that have fallen due.
+ *
+ * Each series keeps a watermark, the date it has occurrences up to, so a run only walks
+ * forward from there: catching up years of a daily expense costs one step per missing day
+ * and never rescans earlier occurrences. Occurrences are inserted in batches, each batch
+ * committing together with its watermark, and duplicates are ignored by a unique index,
+ * so a run that is interrupted at any point can be repeated safely.
+ */
+public class RecurrenceEngine {
+
+    private static final String TAG = "RecurrenceEngine";
+    static final int BATCH_SIZE = 500; // occurrences per transaction
+
+    public static final String DAILY = "Daily";
+    public static final String WEEKLY = "Weekly";
+    public static final String MONTHLY = "Monthly";
+
+    private final DBHelper dbHelper;
+
+    public RecurrenceEngine(DBHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    /**
+     * Create every occurrence dated on or before today that does not exist yet
+     * @param today The current date as an epoch day
+     * @return the number of occurrences created
+     */
+    public int materializeDue(long today) {
+        dbHelper.deleteStaleWatermarks();
+        int created = 0;
+        for (RecurringSeries series : dbHelper.getRecurringSeries()) {
+            created += materialize(series, today);
+        }
+        return created;
+    }
+
+    private int materialize(RecurringSeries series, long today) {
+        Expense template = series.getTemplate();
+        String type = template.getRecurringType();
+        if (!DAILY.equals(type) && !WEEKLY.equals(type) && !MONTHLY.equals(type)) {
+            Log.w(TAG, "Skipping expense " + template.getId() + " with unknown recurrence " + type);
+            return 0;
+        }
+        // Monthly occurrences keep the template's day of month, clamped in shorter months
+        int anchorDay = (int) DateUtils.toYearMonthDay(template.getEpochDay())[2];
+
+        long[] batch = new long[BATCH_SIZE];
+        int batchSize = 0;
+        int created = 0;
+        long day = series.getLastMaterializedDay();
+        while (true) {
+            long next = nextOccurrence(day, type, anchorDay);
+            if (next > today) {
+                break;
+            }
+            batch[batchSize++] = next;
+            day = next;
+            if (batchSize == BATCH_SIZE) {
+                created += dbHelper.addOccurrences(template, batch, batchSize, day);
+                batchSize = 0;
+            }
+        }
+        if (batchSize > 0) {
+            created += dbHelper.addOccurrences(template, batch, batchSize, day);
+        }
+        return created;
+    }
+
+    /**
+     * @param epochDay Date of the previous occurrence
+     * @param type {@link #DAILY}, {@link #WEEKLY} or {@link #MONTHLY}
+     * @param anchorDay Day of month monthly occurrences fall on, 1-31
+     * @return the date of the following occurrence
+     */
+    static long nextOccurrence(long epochDay, String type, int anchorDay) {
+        switch (type) {
+            case DAILY:
+                return epochDay + 1;
+            case WEEKLY:
+                return epochDay + 7;
+            default:
+                long[] ymd = DateUtils.toYearMonthDay(epochDay);
+                int year = (int) ymd[0];
+                int month = (int) ymd[1] + 1;
+                if (month > 12) {
+                    month = 1;
+                    year++;
+                }
+                return DateUtils.toEpochDay(year, month, Math.min(anchorDay, DateUtils.lengthOfMonth(year, month)));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.expensetracker.recurring;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Log;
+import com.example.expensetracker.repository.ExpenseRepository;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@link RecurrenceEngine} from JobScheduler, so due occurrences are created in
+ * the background instead of when an activity starts.
+ */
+public class RecurringExpenseJobService extends JobService {
+
+    private static final String TAG = "RecurringExpenseJob";
+    private static final int PERIODIC_JOB_ID = 1001;
+    private static final int ONE_OFF_JOB_ID = 1002;
+    private static final long PERIOD_MS = TimeUnit.HOURS.toMillis(12);
+
+    /**
+     * Schedule the periodic run if it is not already scheduled. Cheap enough to call on every launch.
+     */
+    public static void schedule(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler == null || scheduler.getPendingJob(PERIODIC_JOB_ID) != null) {
+            return;
+        }
+        JobInfo job = new JobInfo.Builder(PERIODIC_JOB_ID, new ComponentName(context, RecurringExpenseJobService.class))
+                .setPeriodic(PERIOD_MS)
+                .setPersisted(true) // survives reboots
+                .build();
+        scheduler.schedule(job);
+    }
+
+    /**
+     * Run once as soon as possible, e.g. after a recurring expense was added or changed
+     */
+    public static void runSoon(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler == null) {
+            return;
+        }
+        JobInfo job = new JobInfo.Builder(ONE_OFF_JOB_ID, new ComponentName(context, RecurringExpenseJobService.class))
+                .setOverrideDeadline(0)
+                .build();
+        scheduler.schedule(job);
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        ExpenseRepository.getInstance(this).materializeRecurring(new ExpenseRepository.Callback<Integer>() {
+            @Override
+            public void onResult(Integer created) {
+                Log.d(TAG, "Created " + created + " recurring occurrences");
+                jobFinished(params, false);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Recurring expense run failed", e);
+                jobFinished(params, true);
+            }
+        });
+        return true; // work continues on the repository's write thread
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Committed batches are kept and the rest is redone next time, so just reschedule
+        return true;
+    }
+}
@@ -0,0 +1,486 @@
+package com.example.expensetracker.repository;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.example.expensetracker.analytics.SpendingAnalytics;
+import com.example.expensetracker.database.CategoryCache;
+import com.example.expensetracker.database.DBHelper;
+import com.example.expensetracker.exporter.ExpenseExportWriter;
+import com.example.expensetracker.importer.CsvExpenseReader;
+import com.example.expensetracker.importer.OfxExpenseReader;
+import com.example.expensetracker.model.Category;
+import com.example.expensetracker.model.DashboardSummary;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseColumns;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.model.ImportResult;
+import com.example.expensetracker.model.SpendingOverview;
+import com.example.expensetracker.recurring.RecurrenceEngine;
+import com.example.expensetracker.utils.DateUtils;
+import com.example.expensetracker.utils.SessionManager;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs DBHelper calls off the main thread and delivers results on the main looper.
+ * Reads go to a small fixed pool (WAL lets them run alongside writes); writes go to a
+ * single thread so they are applied in the order they were requested. A read requested
+ * while writes are queued waits for them, so it sees their results. Identical reads
+ * that are already in flight are coalesced into one query.
+ *
+ * Expense and category calls act on the user logged in when the call is made.
+ */
+public class ExpenseRepository {
+
+    private static final String TAG = "ExpenseRepository";
+    private static final int READ_THREADS = 2;
+
+    /**
+     * Receives the result of a repository call on the main thread. The default onError only
+     * logs, so a caller that disables a control or tracks a request in flight must override it.
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+
+        default void onError(Exception e) {
+            Log.e(TAG, "Database operation failed", e);
+        }
+    }
+
+    private static volatile ExpenseRepository instance;
+
+    private final DBHelper dbHelper;
+    private final SessionManager sessionManager;
+    private final RecurrenceEngine recurrenceEngine;
+    // One analytics cache per user, created on first use
+    private final Map<Integer, SpendingAnalytics> analytics = new ConcurrentHashMap<>();
+    private final ExecutorService readExecutor;
+    private final ExecutorService writeExecutor;
+    // Password hashing and checks take a calibrated ~200 ms, so they get their own thread instead of a read slot
+    private final ExecutorService authExecutor;
+    // Exports can run for seconds, so they get their own thread as well
+    private final ExecutorService exportExecutor;
+    private final Handler mainHandler;
+    // Callbacks waiting on each in-flight read, keyed by query and arguments
+    private final Map<String, List<Callback<?>>> inFlightReads = new HashMap<>();
+    // Writes queued on writeExecutor that have not finished yet
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+
+    /**
+     * Get the application-scoped repository
+     * @param context Any context; only its application context is retained
+     * @return the shared ExpenseRepository instance
+     */
+    public static ExpenseRepository getInstance(Context context) {
+        ExpenseRepository repository = instance;
+        if (repository == null) {
+            synchronized (ExpenseRepository.class) {
+                repository = instance;
+                if (repository == null) {
+                    repository = new ExpenseRepository(DBHelper.getInstance(context),
+                            SessionManager.getInstance(context));
+                    instance = repository;
+                }
+            }
+        }
+        return repository;
+    }
+
+    private ExpenseRepository(DBHelper dbHelper, SessionManager sessionManager) {
+        this.dbHelper = dbHelper;
+        this.sessionManager = sessionManager;
+        this.recurrenceEngine = new RecurrenceEngine(dbHelper);
+        this.readExecutor = Executors.newFixedThreadPool(READ_THREADS, namedThreadFactory("db-read"));
+        this.writeExecutor = Executors.newSingleThreadExecutor(namedThreadFactory("db-write"));
+        this.authExecutor = Executors.newSingleThreadExecutor(namedThreadFactory("auth"));
+        this.exportExecutor = Executors.newSingleThreadExecutor(namedThreadFactory("export"));
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    // Expense operations
+
+    public void getDashboardSummary(int recentLimit, Callback<DashboardSummary> callback) {
+        int userId = currentUserId();
+        read(userId + ":dashboard:" + recentLimit, () -> dbHelper.getDashboardSummary(userId, recentLimit), callback);
+    }
+
+    public void getSpendingOverview(Callback<SpendingOverview> callback) {
+        int userId = currentUserId();
+        read(userId + ":spendingOverview", () -> analyticsFor(userId).getOverview(DateUtils.today()), callback);
+    }
+
+    public void getExpensesPage(long afterDate, int afterId, int limit, Callback<List<Expense>> callback) {
+        int userId = currentUserId();
+        read(userId + ":expensesPage:" + afterDate + ":" + afterId + ":" + limit,
+                () -> dbHelper.getExpensesPage(userId, afterDate, afterId, limit), callback);
+    }
+
+    public void getExpensesPage(ExpenseFilter filter, long afterDate, int afterId, int limit,
+                                Callback<List<Expense>> callback) {
+        int userId = currentUserId();
+        read(userId + ":filteredPage:" + filter.toKey() + ":" + afterDate + ":" + afterId + ":" + limit,
+                () -> dbHelper.getExpensesPage(userId, filter, afterDate, afterId, limit), callback);
+    }
+
+    /**
+     * Load every expense matching a filter as one column-oriented snapshot, for lists
+     * that are scrolled through whole rather than paged
+     */
+    public void getExpenseColumns(ExpenseFilter filter, Callback<ExpenseColumns> callback) {
+        int userId = currentUserId();
+        read(userId + ":columns:" + filter.toKey(), () -> dbHelper.getExpenseColumns(userId, filter), callback);
+    }
+
+    public void getTotalExpenses(ExpenseFilter filter, Callback<Long> callback) {
+        int userId = currentUserId();
+        read(userId + ":filteredTotal:" + filter.toKey(), () -> dbHelper.getTotalExpenses(userId, filter), callback);
+    }
+
+    public void getExpenseCount(ExpenseFilter filter, Callback<Integer> callback) {
+        int userId = currentUserId();
+        read(userId + ":filteredCount:" + filter.toKey(), () -> dbHelper.getExpenseCount(userId, filter), callback);
+    }
+
+    public void searchExpenses(String query, int limit, Callback<List<Expense>> callback) {
+        int userId = currentUserId();
+        read(userId + ":search:" + limit + ":" + query, () -> dbHelper.searchExpenses(userId, query, limit), callback);
+    }
+
+    /**
+     * Search only the expenses a filter lets through
+     */
+    public void searchExpenses(String query, ExpenseFilter filter, int limit, Callback<List<Expense>> callback) {
+        int userId = currentUserId();
+        read(userId + ":filteredSearch:" + filter.toKey() + ":" + limit + ":" + query,
+                () -> dbHelper.searchExpenses(userId, query, filter, limit), callback);
+    }
+
+    public void getExpenseCount(Callback<Integer> callback) {
+        int userId = currentUserId();
+        read(userId + ":expenseCount", () -> dbHelper.getExpenseCount(userId), callback);
+    }
+
+    public void getTotalExpenses(Callback<Long> callback) {
+        int userId = currentUserId();
+        read(userId + ":totalExpenses", () -> dbHelper.getTotalExpenses(userId), callback);
+    }
+
+    public void getExpense(int id, Callback<Expense> callback) {
+        int userId = currentUserId();
+        read(userId + ":expense:" + id, () -> dbHelper.getExpense(userId, id), callback);
+    }
+
+    public void addExpense(Expense expense, Callback<Long> callback) {
+        int userId = currentUserId();
+        write(() -> dbHelper.addExpense(userId, expense), callback);
+    }
+
+    public void updateExpense(Expense expense, Callback<Integer> callback) {
+        int userId = currentUserId();
+        write(() -> dbHelper.updateExpense(userId, expense), callback);
+    }
+
+    public void deleteExpense(int id, Callback<Void> callback) {
+        int userId = currentUserId();
+        write(() -> {
+            dbHelper.deleteExpense(userId, id);
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Stream expenses out of a CSV or OFX file and insert them in one transaction
+     * @param input The file contents; closed when the import finishes
+     * @param ofx true for OFX, false for CSV
+     * @param progress Receives the running row count on the main thread
+     * @param callback Receives the number of expenses imported and of rows skipped
+     */
+    public void importExpenses(InputStream input, boolean ofx, DBHelper.ProgressListener progress,
+                               Callback<ImportResult> callback) {
+        int userId = currentUserId();
+        DBHelper.ProgressListener mainThreadProgress = rows -> mainHandler.post(() -> progress.onProgress(rows));
+        write(() -> {
+            try (Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+                if (ofx) {
+                    OfxExpenseReader source = new OfxExpenseReader(reader);
+                    int imported = dbHelper.addExpenses(userId, source, mainThreadProgress);
+                    return new ImportResult(imported, source.getSkippedRows());
+                }
+                CsvExpenseReader source = new CsvExpenseReader(reader);
+                int imported = dbHelper.addExpenses(userId, source, mainThreadProgress);
+                return new ImportResult(imported, source.getSkippedRows());
+            }
+        }, callback);
+    }
+
+    /**
+     * Stream the expenses matching a filter to a file, oldest first, on a background thread
+     * @param output The file to write; closed when the export finishes
+     * @param format The file format
+     * @param filter The criteria to match; empty for every expense
+     * @param progress Receives the running row count on the main thread
+     * @param callback Receives the number of expenses exported, or an
+     *                 {@link android.os.OperationCanceledException} if the export was cancelled
+     * @return a signal that cancels the export
+     */
+    public CancellationSignal exportExpenses(OutputStream output, ExpenseExportWriter.Format format,
+                                             ExpenseFilter filter, DBHelper.ProgressListener progress,
+                                             Callback<Integer> callback) {
+        int userId = currentUserId();
+        CancellationSignal signal = new CancellationSignal();
+        DBHelper.ProgressListener mainThreadProgress = rows -> mainHandler.post(() -> progress.onProgress(rows));
+        executeAfterPendingWrites(exportExecutor, () -> {
+            try (ExpenseExportWriter writer = ExpenseExportWriter.create(format,
+                    new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                int rows = dbHelper.exportExpenses(userId, filter, writer, mainThreadProgress, signal);
+                mainHandler.post(() -> callback.onResult(rows));
+            } catch (Exception e) {
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+        return signal;
+    }
+
+    /**
+     * Create the occurrences of recurring expenses that are due up to today, for every user
+     * @param callback Receives the number of occurrences created
+     */
+    public void materializeRecurring(Callback<Integer> callback) {
+        write(() -> recurrenceEngine.materializeDue(DateUtils.today()), callback);
+    }
+
+    // Category operations
+
+    public void getAllCategories(Callback<List<Category>> callback) {
+        int userId = currentUserId();
+        read(userId + ":categories", () -> dbHelper.getAllCategories(userId), callback);
+    }
+
+    /**
+     * Get the cached category names, ids and colours; only queries the database after a category write
+     */
+    public void getCategories(Callback<CategoryCache.Snapshot> callback) {
+        int userId = currentUserId();
+        CategoryCache cache = dbHelper.getCategoryCache(userId);
+        CategoryCache.Snapshot snapshot = cache.peek();
+        // A queued write may still change the categories, so only a quiet cache can answer
+        if (snapshot != null && pendingWrites.get() == 0) {
+            // Still delivered asynchronously so callers see the same ordering either way
+            mainHandler.post(() -> callback.onResult(snapshot));
+            return;
+        }
+        read(userId + ":categorySnapshot", cache::get, callback);
+    }
+
+    public void getCategoryTotal(int categoryId, Callback<Long> callback) {
+        int userId = currentUserId();
+        read(userId + ":categoryTotal:" + categoryId, () -> dbHelper.getCategoryTotal(userId, categoryId), callback);
+    }
+
+    public void addCategory(Category category, Callback<Long> callback) {
+        int userId = currentUserId();
+        write(() -> dbHelper.addCategory(userId, category), callback);
+    }
+
+    /**
+     * Delete a category; the result is false if expenses still use it
+     */
+    public void deleteCategory(int id, Callback<Boolean> callback) {
+        int userId = currentUserId();
+        write(() -> dbHelper.deleteCategory(userId, id), callback);
+    }
+
+    /**
+     * Rename a category; the result is false if the name is taken
+     */
+    public void renameCategory(int id, String name, Callback<Boolean> callback) {
+        int userId = currentUserId();
+        write(() -> dbHelper.renameCategory(userId, id, name), callback);
+    }
+
+    // User operations
+
+    /**
+     * Register a user. The password is hashed on the auth thread first, so the slow KDF does
+     * not hold up the writes queued behind it; only the insert goes through the write thread.
+     * @param callback Receives true if the user was created, false if the username is taken
+     */
+    public void insertUser(String username, String password, Callback<Boolean> callback) {
+        authExecutor.execute(() -> {
+            String passwordHash;
+            try {
+                if (dbHelper.isUsernameExists(username)) {
+                    mainHandler.post(() -> callback.onResult(false));
+                    return;
+                }
+                passwordHash = dbHelper.hashPassword(password);
+            } catch (Exception e) {
+                mainHandler.post(() -> callback.onError(e));
+                return;
+            }
+            write(() -> dbHelper.insertUserWithHash(username, passwordHash), callback);
+        });
+    }
+
+    /**
+     * Check credentials and look up the user id in one background task; a legacy
+     * password hash is upgraded on success
+     * @param callback Receives the user id, or -1 if the credentials are invalid
+     */
+    public void login(String username, String password, Callback<Integer> callback) {
+        authExecutor.execute(() -> {
+            try {
+                int userId = dbHelper.authenticate(username, password);
+                mainHandler.post(() -> callback.onResult(userId));
+            } catch (Exception e) {
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    // Diagnostics
+
+    /**
+     * Start or stop timing DBHelper calls; what was recorded is kept until the process ends
+     */
+    public void setDatabaseMetricsEnabled(boolean enabled) {
+        dbHelper.getMetrics().setEnabled(enabled);
+    }
+
+    public boolean isDatabaseMetricsEnabled() {
+        return dbHelper.getMetrics().isEnabled();
+    }
+
+    /**
+     * Write the DBHelper timings recorded so far to a file and to logcat, on a background thread
+     * @param file The file to write; replaced if it exists
+     * @param callback Receives the file
+     */
+    public void dumpDatabaseMetrics(File file, Callback<File> callback) {
+        exportExecutor.execute(() -> {
+            try {
+                dbHelper.getMetrics().dumpToFile(file);
+                dbHelper.getMetrics().dumpToLogcat();
+                mainHandler.post(() -> callback.onResult(file));
+            } catch (Exception e) {
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    /**
+     * @return the id of the logged in user, read when a call is made so a later login
+     * never sees results queued for the previous user
+     */
+    private int currentUserId() {
+        return sessionManager.getUserId();
+    }
+
+    private SpendingAnalytics analyticsFor(int userId) {
+        return analytics.computeIfAbsent(userId, id -> new SpendingAnalytics(dbHelper, id));
+    }
+
+    private <T> void read(String key, Callable<T> query, Callback<T> callback) {
+        List<Callback<?>> waiting;
+        synchronized (inFlightReads) {
+            waiting = inFlightReads.get(key);
+            if (waiting != null) {
+                // The same query is already running; share its result
+                waiting.add(callback);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            inFlightReads.put(key, waiting);
+        }
+
+        final List<Callback<?>> callbacks = waiting;
+        Runnable task = () -> {
+            T result = null;
+            Exception error = null;
+            try {
+                result = query.call();
+            } catch (Exception e) {
+                error = e;
+            }
+            synchronized (inFlightReads) {
+                // A write may already have detached this list; only remove our own entry
+                if (inFlightReads.get(key) == callbacks) {
+                    inFlightReads.remove(key);
+                }
+            }
+            deliver(callbacks, result, error);
+        };
+        executeAfterPendingWrites(readExecutor, task);
+    }
+
+    /**
+     * Run a read on an executor once the writes queued so far have finished
+     */
+    private void executeAfterPendingWrites(ExecutorService executor, Runnable task) {
+        if (pendingWrites.get() > 0) {
+            // Hop through the write thread so the task starts after the writes queued before it
+            writeExecutor.execute(() -> executor.execute(task));
+        } else {
+            executor.execute(task);
+        }
+    }
+
+    private <T> void write(Callable<T> operation, Callback<T> callback) {
+        synchronized (inFlightReads) {
+            // Reads requested after this write must not join a read that started before it
+            inFlightReads.clear();
+        }
+        pendingWrites.incrementAndGet();
+        writeExecutor.execute(() -> {
+            try {
+                T result = operation.call();
+                mainHandler.post(() -> callback.onResult(result));
+            } catch (Exception e) {
+                mainHandler.post(() -> callback.onError(e));
+            } finally {
+                pendingWrites.decrementAndGet();
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void deliver(List<Callback<?>> callbacks, T result, Exception error) {
+        mainHandler.post(() -> {
+            for (Callback<?> callback : callbacks) {
+                if (error != null) {
+                    callback.onError(error);
+                } else {
+                    ((Callback<T>) callback).onResult(result);
+                }
+            }
+        });
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
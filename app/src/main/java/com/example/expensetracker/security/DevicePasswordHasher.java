@@ -0,0 +1,48 @@
+package com.example.expensetracker.security;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Holds the application-scoped {@link PasswordHasher}. Its iteration count is read from
+ * preferences, or calibrated on the first hash and then saved there.
+ */
+public final class DevicePasswordHasher {
+    private static final String PREF_NAME = "password_hasher";
+    private static final String KEY_ITERATIONS = "iterations";
+
+    private static volatile PasswordHasher instance;
+
+    private DevicePasswordHasher() {}
+
+    /**
+     * Get the application-scoped hasher
+     * @param context Any context; only its application context is retained
+     * @return the shared PasswordHasher instance
+     */
+    public static PasswordHasher getInstance(Context context) {
+        PasswordHasher hasher = instance;
+        if (hasher == null) {
+            synchronized (DevicePasswordHasher.class) {
+                hasher = instance;
+                if (hasher == null) {
+                    SharedPreferences preferences = context.getApplicationContext()
+                            .getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+                    hasher = new PasswordHasher(new PasswordHasher.IterationStore() {
+                        @Override
+                        public int load(String algorithm) {
+                            return preferences.getInt(KEY_ITERATIONS + "_" + algorithm, 0);
+                        }
+
+                        @Override
+                        public void save(String algorithm, int iterations) {
+                            preferences.edit().putInt(KEY_ITERATIONS + "_" + algorithm, iterations).apply();
+                        }
+                    });
+                    instance = hasher;
+                }
+            }
+        }
+        return hasher;
+    }
+}
@@ -3,30 +3,127 @@ package com.example.expensetracker.utils;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+/**
+ * Application-scoped login session. The session is read from SharedPreferences once, when
+ * the instance is created, and then kept as an immutable {@link Session} in a volatile field,
+ * so checking it from onResume or a background thread never touches SharedPreferences.
+ * Writes replace the snapshot immediately and are persisted with apply(), off the caller's thread.
+ */
 public class SessionManager {
     private static final String PREF_NAME = "ExpenseTrackerSession";
     private static final String KEY_IS_LOGGED_IN = "isLoggedIn";
     private static final String KEY_USERNAME = "username";
     private static final String KEY_USER_ID = "userId";
+    private static final String KEY_MIGRATED = "migrated";
 
-    private SharedPreferences sharedPreferences;
-    private SharedPreferences.Editor editor;
-    private Context context;
+    // Written by an older SessionManager that stored the username only
+    private static final String LEGACY_PREF_NAME = "user_session";
+    private static final String LEGACY_KEY_USERNAME = "username";
 
-    public SessionManager(Context context) {
-        this.context = context;
+    /**
+     * An immutable view of the session
+     */
+    public static final class Session {
+        static final Session LOGGED_OUT = new Session(null, -1);
+
+        private final String username;
+        private final int userId;
+
+        Session(String username, int userId) {
+            this.username = username;
+            this.userId = userId;
+        }
+
+        /**
+         * Data is kept per user, so a session without a user ID does not count as logged in
+         */
+        public boolean isLoggedIn() {
+            return userId != -1;
+        }
+
+        /**
+         * @return the logged in username, or the last known one if logged out; null if there is none
+         */
+        public String getUsername() {
+            return username;
+        }
+
+        /**
+         * @return the logged in user ID, or -1 if logged out
+         */
+        public int getUserId() {
+            return userId;
+        }
+    }
+
+    private static volatile SessionManager instance;
+
+    private final SharedPreferences sharedPreferences;
+    private volatile Session session;
+
+    /**
+     * Get the application-scoped session manager, loading the session on first use
+     * @param context Any context; only its application context is retained
+     * @return the shared SessionManager instance
+     */
+    public static SessionManager getInstance(Context context) {
+        SessionManager manager = instance;
+        if (manager == null) {
+            synchronized (SessionManager.class) {
+                manager = instance;
+                if (manager == null) {
+                    manager = new SessionManager(context.getApplicationContext());
+                    instance = manager;
+                }
+            }
+        }
+        return manager;
+    }
+
+    /**
+     * Forget the shared instance so the next {@link #getInstance(Context)} reloads from preferences
+     */
+    static void clearInstance() {
+        synchronized (SessionManager.class) {
+            instance = null;
+        }
+    }
+
+    private SessionManager(Context context) {
         sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        editor = sharedPreferences.edit();
+        if (!sharedPreferences.getBoolean(KEY_MIGRATED, false)) {
+            migrate(context);
+        }
+        session = load();
     }
 
     /**
-     * Save user login session
-     * @param username The logged in username
+     * Fold the legacy preferences file into this one, once. It only holds a username, which
+     * is kept to pre-fill the login screen; without a user ID it cannot restore a session.
+     */
+    private void migrate(Context context) {
+        SharedPreferences legacy = context.getSharedPreferences(LEGACY_PREF_NAME, Context.MODE_PRIVATE);
+        String legacyUsername = legacy.getString(LEGACY_KEY_USERNAME, null);
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        if (legacyUsername != null && !sharedPreferences.contains(KEY_USERNAME)) {
+            editor.putString(KEY_USERNAME, legacyUsername);
+        }
+        editor.putBoolean(KEY_MIGRATED, true).apply();
+        context.deleteSharedPreferences(LEGACY_PREF_NAME);
+    }
+
+    private Session load() {
+        String username = sharedPreferences.getString(KEY_USERNAME, null);
+        int userId = sharedPreferences.getBoolean(KEY_IS_LOGGED_IN, false)
+                ? sharedPreferences.getInt(KEY_USER_ID, -1) : -1;
+        return username == null && userId == -1 ? Session.LOGGED_OUT : new Session(username, userId);
+    }
+
+    /**
+     * @return the current session; never null
      */
-    public void saveLogin(String username) {
-        editor.putBoolean(KEY_IS_LOGGED_IN, true);
-        editor.putString(KEY_USERNAME, username);
-        editor.apply();
+    public Session getSession() {
+        return session;
     }
 
     /**
@@ -34,11 +131,13 @@ public class SessionManager {
      * @param username The logged in username
      * @param userId The user ID
      */
-    public void saveLogin(String username, int userId) {
-        editor.putBoolean(KEY_IS_LOGGED_IN, true);
-        editor.putString(KEY_USERNAME, username);
-        editor.putInt(KEY_USER_ID, userId);
-        editor.apply();
+    public synchronized void saveLogin(String username, int userId) {
+        session = new Session(username, userId);
+        sharedPreferences.edit()
+                .putBoolean(KEY_IS_LOGGED_IN, true)
+                .putString(KEY_USERNAME, username)
+                .putInt(KEY_USER_ID, userId)
+                .apply();
     }
 
     /**
@@ -46,7 +145,7 @@ public class SessionManager {
      * @return true if user is logged in, false otherwise
      */
     public boolean isLoggedIn() {
-        return sharedPreferences.getBoolean(KEY_IS_LOGGED_IN, false);
+        return session.isLoggedIn();
     }
 
     /**
@@ -54,10 +153,8 @@ public class SessionManager {
      * @return username if logged in, null otherwise
      */
     public String getUsername() {
-        if (isLoggedIn()) {
-            return sharedPreferences.getString(KEY_USERNAME, null);
-        }
-        return null;
+        Session current = session;
+        return current.isLoggedIn() ? current.getUsername() : null;
     }
 
     /**
@@ -65,25 +162,18 @@ public class SessionManager {
      * @return user ID if logged in, -1 otherwise
      */
     public int getUserId() {
-        if (isLoggedIn()) {
-            return sharedPreferences.getInt(KEY_USER_ID, -1);
-        }
-        return -1;
+        return session.getUserId();
     }
 
     /**
      * Clear user session (logout)
      */
-    public void logout() {
-        editor.clear();
-        editor.apply();
-    }
-
-    /**
-     * Check login status and get username in one call
-     * @return username if logged in, null if not logged in
-     */
-    public String getLoggedInUsername() {
-        return isLoggedIn() ? getUsername() : null;
+    public synchronized void logout() {
+        session = Session.LOGGED_OUT;
+        sharedPreferences.edit()
+                .remove(KEY_IS_LOGGED_IN)
+                .remove(KEY_USERNAME)
+                .remove(KEY_USER_ID)
+                .apply();
     }
-}
\ No newline at end of file
+}
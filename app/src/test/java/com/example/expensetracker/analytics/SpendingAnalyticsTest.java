@@ -0,0 +1,116 @@
+package com.example.expensetracker.analytics;
+
+import com.example.expensetracker.database.DBHelper;
+import com.example.expensetracker.model.CategoryMonthTotal;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.PeriodTotal;
+import com.example.expensetracker.model.SpendingOverview;
+import com.example.expensetracker.utils.DateUtils;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the day, week and month rollups, and that cached closed periods are reused
+ * until an expense in them changes.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SpendingAnalyticsTest {
+
+    private static final long TODAY = DateUtils.parse("2024-03-13"); // a Wednesday
+
+    private DBHelper dbHelper;
+    private int userId;
+    private SpendingAnalytics analytics;
+
+    @Before
+    public void setUp() {
+        dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+        dbHelper.insertUser("alice", "secret");
+        userId = dbHelper.getUserId("alice");
+        analytics = new SpendingAnalytics(dbHelper, userId);
+        add("2024-02-10", 1000, "Food");
+        add("2024-02-29", 500, "Bills");
+        add("2024-03-11", 200, "Food"); // Monday of this week
+        add("2024-03-12", 300, "Transportation");
+        add("2024-03-13", 400, "Food");
+    }
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void rollups_matchExpenses() {
+        List<PeriodTotal> days = analytics.getDailyTotals(TODAY, 3);
+        assertEquals(3, days.size());
+        assertEquals(200, days.get(0).getTotalCents());
+        assertEquals(400, days.get(2).getTotalCents());
+
+        List<PeriodTotal> weeks = analytics.getWeeklyTotals(TODAY, 2);
+        assertEquals(DateUtils.parse("2024-03-11"), weeks.get(1).getStartEpochDay());
+        assertEquals(900, weeks.get(1).getTotalCents());
+        assertEquals(0, weeks.get(0).getTotalCents());
+
+        List<PeriodTotal> months = analytics.getMonthlyTotals(TODAY, 2);
+        assertEquals(1500, months.get(0).getTotalCents());
+        assertEquals(900, months.get(1).getTotalCents());
+
+        List<CategoryMonthTotal> byCategory = analytics.getCategoryMonthlyTotals(TODAY, 2);
+        assertEquals(4, byCategory.size());
+        assertEquals(202402, byCategory.get(0).getMonth());
+
+        SpendingOverview overview = analytics.getOverview(TODAY);
+        assertEquals(400, overview.getTodayCents());
+        assertEquals(900, overview.getThisWeekCents());
+        assertEquals(900, overview.getThisMonthCents());
+        assertEquals(1500, overview.getLastMonthCents());
+        assertEquals("Food", overview.getThisMonthByCategory().get(0).getCategory());
+    }
+
+    @Test
+    public void closedPeriods_areCachedUntilChanged() {
+        assertEquals(1500, analytics.getMonthlyTotals(TODAY, 2).get(0).getTotalCents());
+
+        // A write whose change record is discarded is invisible for closed days: they come from the cache
+        add("2024-02-11", 50, "Food");
+        dbHelper.takeAnalyticsDirtyDay(userId);
+        assertEquals(1500, analytics.getMonthlyTotals(TODAY, 2).get(0).getTotalCents());
+
+        // Today is always queried again
+        add("2024-03-13", 100, "Food");
+        dbHelper.takeAnalyticsDirtyDay(userId);
+        assertEquals(500, analytics.getDailyTotals(TODAY, 1).get(0).getTotalCents());
+
+        // A recorded change to a past day drops the cache from that day on; days before it,
+        // including the unrecorded write above, are still served from the cache
+        add("2024-02-20", 25, "Food");
+        assertEquals(1525, analytics.getMonthlyTotals(TODAY, 2).get(0).getTotalCents());
+    }
+
+    @Test
+    public void emptyPeriods_areRejected() {
+        assertThrows(IllegalArgumentException.class, () -> analytics.getDailyTotals(TODAY, 0));
+        assertThrows(IllegalArgumentException.class, () -> analytics.getWeeklyTotals(TODAY, -1));
+        assertThrows(IllegalArgumentException.class, () -> analytics.getMonthlyTotals(TODAY, 0));
+        assertThrows(IllegalArgumentException.class, () -> analytics.getCategoryMonthlyTotals(TODAY, 0));
+    }
+
+    @Test
+    public void weekStart_isMonday() {
+        assertEquals(DateUtils.parse("2024-03-11"), SpendingAnalytics.weekStart(TODAY));
+        assertEquals(DateUtils.parse("2024-03-11"), SpendingAnalytics.weekStart(DateUtils.parse("2024-03-11")));
+        assertEquals(DateUtils.parse("2024-03-11"), SpendingAnalytics.weekStart(DateUtils.parse("2024-03-17")));
+    }
+
+    private void add(String date, long cents, String category) {
+        dbHelper.addExpense(userId, new Expense("Expense", "", cents, category, date, false, ""));
+    }
+}
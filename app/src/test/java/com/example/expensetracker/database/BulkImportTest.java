@@ -0,0 +1,76 @@
+package com.example.expensetracker.database;
+
+import com.example.expensetracker.importer.CsvExpenseReader;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.utils.DateUtils;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a CSV import through {@link DBHelper#addExpenses(int, Iterable, DBHelper.ProgressListener)}
+ * inserts every row and reports progress. Import speed is measured by {@link DBHelperBenchmarkSuite}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BulkImportTest {
+
+    // Not a multiple of the progress interval, so the final report is checked too
+    private static final int IMPORT_ROWS = 2_500;
+
+    private DBHelper dbHelper;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+        dbHelper.insertUser("alice", "secret");
+        userId = dbHelper.getUserId("alice");
+    }
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void importCsv_insertsEveryRow() throws IOException {
+        List<Integer> progress = new ArrayList<>();
+        int inserted;
+        try (CsvExpenseReader reader = new CsvExpenseReader(new StringReader(buildCsv(IMPORT_ROWS)))) {
+            inserted = dbHelper.addExpenses(userId, reader, progress::add);
+        }
+
+        assertEquals(IMPORT_ROWS, inserted);
+        assertEquals(Arrays.asList(1_000, 2_000, IMPORT_ROWS), progress);
+        assertEquals(IMPORT_ROWS, dbHelper.getExpenseCount(userId));
+        Expense first = dbHelper.getExpensesPage(userId, DBHelper.FIRST_PAGE, DBHelper.FIRST_PAGE_ID, 1).get(0);
+        assertEquals("Imported, row " + first.getTitle().substring("Expense ".length()), first.getDescription());
+    }
+
+    /**
+     * @return a CSV export with a header and quoted descriptions, as another app would write it
+     */
+    static String buildCsv(int rows) {
+        String[] categories = {"Food", "Transportation", "Entertainment", "Shopping", "Bills"};
+        long firstDay = DateUtils.parse("2020-01-01");
+        StringBuilder csv = new StringBuilder(rows * 60);
+        csv.append("title,description,amount,category,date\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append("Expense ").append(i).append(",\"Imported, row ").append(i).append("\",")
+                    .append(i % 500).append('.').append(i % 90 + 10).append(',')
+                    .append(categories[i % categories.length]).append(',')
+                    .append(DateUtils.format(firstDay + i % 1500)).append('\n');
+        }
+        return csv.toString();
+    }
+}
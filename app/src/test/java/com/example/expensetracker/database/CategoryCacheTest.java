@@ -0,0 +1,124 @@
+package com.example.expensetracker.database;
+
+import com.example.expensetracker.model.Category;
+import com.example.expensetracker.model.Expense;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the category cache ignores case and is reloaded after category writes,
+ * including categories an import creates, once its transaction has ended.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CategoryCacheTest {
+
+    private DBHelper dbHelper;
+    private int userId;
+    private CategoryCache cache;
+
+    @Before
+    public void setUp() {
+        dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+        dbHelper.insertUser("alice", "secret");
+        userId = dbHelper.getUserId("alice");
+        cache = dbHelper.getCategoryCache(userId);
+    }
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void snapshot_lookupsIgnoreCase() {
+        CategoryCache.Snapshot snapshot = cache.get();
+
+        assertTrue(snapshot.contains("food"));
+        assertTrue(snapshot.contains(" FOOD "));
+        assertFalse(snapshot.contains("Groceries"));
+        assertEquals(snapshot.getId("Food"), snapshot.getId("fOOd"));
+        assertEquals(-1, snapshot.getId("Groceries"));
+        assertEquals(CategoryCache.DEFAULT_COLOR, snapshot.getColor("Groceries"));
+        assertSame(snapshot, cache.get());
+    }
+
+    @Test
+    public void categoryWrites_invalidateSnapshot() {
+        CategoryCache.Snapshot before = cache.get();
+        int id = (int) dbHelper.addCategory(userId, new Category("Groceries", "#FF112233"));
+        assertNull(cache.peek());
+
+        CategoryCache.Snapshot added = cache.get();
+        assertNotSame(before, added);
+        assertEquals(id, added.getId("groceries"));
+        assertEquals(0xFF112233, added.getColor("GROCERIES"));
+        assertEquals(before.getNames().size() + 1, added.getNames().size());
+
+        dbHelper.deleteCategory(userId, id);
+        assertFalse(cache.get().contains("Groceries"));
+    }
+
+    @Test
+    public void import_invalidatesOnceTransactionEnds() {
+        CategoryCache.Snapshot before = cache.get();
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < DBHelper.PROGRESS_INTERVAL; i++) {
+            expenses.add(new Expense("Row " + i, "", 100, i % 2 == 0 ? "Pets" : "PETS", "2024-03-01", false, ""));
+        }
+        // The first report comes from inside the transaction, after "Pets" was created
+        CategoryCache.Snapshot[] during = new CategoryCache.Snapshot[1];
+        dbHelper.addExpenses(userId, expenses, rows -> {
+            if (during[0] == null) {
+                during[0] = cache.peek();
+            }
+        });
+
+        // Other threads kept the committed snapshot until the import ended
+        assertSame(before, during[0]);
+        assertNull(cache.peek());
+        assertEquals(before.getNames().size() + 1, cache.get().getNames().size());
+        assertTrue(cache.get().contains("pets"));
+        assertNotEquals(-1, dbHelper.addExpense(userId, new Expense("Food", "", 100, "Pets", "2024-03-02", false, "")));
+    }
+
+    @Test
+    public void failedImport_leavesNoCategoryInCache() {
+        Iterable<Expense> failing = () -> new Iterator<Expense>() {
+            private boolean returned;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Expense next() {
+                if (returned) {
+                    throw new IllegalStateException("Broken file");
+                }
+                returned = true;
+                return new Expense("Flight", "", 30000, "Travel", "2024-03-01", false, "");
+            }
+        };
+        cache.get();
+        assertThrows(IllegalStateException.class, () -> dbHelper.addExpenses(userId, failing, null));
+        assertFalse(cache.get().contains("Travel"));
+        assertNotEquals(-1, dbHelper.addExpense(userId, new Expense("Flight", "", 30000, "Travel", "2024-03-01", false, "")));
+        assertTrue(cache.get().contains("Travel"));
+    }
+
+    @Test
+    public void snapshot_invalidColorFallsBackToDefault() {
+        dbHelper.addCategory(userId, new Category("Broken", "not a colour"));
+        assertEquals(CategoryCache.DEFAULT_COLOR, cache.get().getColor("Broken"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.expensetracker.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that credentials are verified in one lookup and that legacy SHA-256 hashes are
+ * replaced by salted ones on the next successful login.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DBHelperAuthenticationTest {
+
+    private DBHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+    }
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void authenticate_returnsUserIdForValidCredentials() {
+        dbHelper.insertUser("alice", "secret");
+
+        assertTrue(storedHash("alice").startsWith("pbkdf2$"));
+        assertEquals(dbHelper.getUserId("alice"), dbHelper.authenticate("alice", "secret"));
+        assertEquals(-1, dbHelper.authenticate("alice", "wrong"));
+        assertEquals(-1, dbHelper.authenticate("nobody", "secret"));
+    }
+
+    @Test
+    public void insertUserWithHash_storesHashMadeBeforehand() {
+        String hash = dbHelper.hashPassword("secret");
+
+        assertTrue(dbHelper.insertUserWithHash("bob", hash));
+        assertEquals(hash, storedHash("bob"));
+        assertEquals(dbHelper.getUserId("bob"), dbHelper.authenticate("bob", "secret"));
+        assertFalse(dbHelper.insertUserWithHash("bob", dbHelper.hashPassword("other")));
+        assertFalse(dbHelper.insertUser("bob", "other"));
+    }
+
+    @Test
+    public void authenticate_upgradesLegacyHash() throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest("secret".getBytes(StandardCharsets.UTF_8));
+        StringBuilder legacy = new StringBuilder();
+        for (byte b : digest) {
+            legacy.append(String.format("%02x", b));
+        }
+        ContentValues values = new ContentValues();
+        values.put("username", "carol");
+        values.put("password", legacy.toString());
+        dbHelper.getWritableDatabase().insert("users", null, values);
+
+        assertEquals(-1, dbHelper.authenticate("carol", "wrong"));
+        assertEquals(legacy.toString(), storedHash("carol"));
+
+        int userId = dbHelper.authenticate("carol", "secret");
+        assertEquals(dbHelper.getUserId("carol"), userId);
+        assertTrue(storedHash("carol").startsWith("pbkdf2$"));
+        assertEquals(userId, dbHelper.authenticate("carol", "secret"));
+    }
+
+    private String storedHash(String username) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT password FROM users WHERE username = ?", new String[]{username});
+        String hash = cursor.moveToFirst() ? cursor.getString(0) : null;
+        cursor.close();
+        return hash;
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.expensetracker.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import com.example.expensetracker.exporter.ExpenseExportWriter;
+import com.example.expensetracker.importer.CsvExpenseReader;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseColumns;
+import com.example.expensetracker.utils.DateUtils;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Times the main DBHelper reads, exports and inserts against synthetic data of growing size and
+ * writes a JSON report that can be diffed between releases. Runs headless under Robolectric.
+ * It also checks that an export's heap use does not grow with the rows written, and that an
+ * {@link ExpenseColumns} snapshot retains well under half the heap of the same {@link Expense} list.
+ *
+ * It only runs when the "benchmark.sizes" system property is set (comma separated expense counts,
+ * e.g. -Pbenchmark.sizes=1000,10000,100000; add 1000000 for the full run), so a plain
+ * ./gradlew test skips it. The report goes to "benchmark.report"
+ * (default build/reports/benchmarks/dbhelper.json).
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DBHelperBenchmarkSuite {
+
+    private static final String DEFAULT_REPORT = "build/reports/benchmarks/dbhelper.json";
+
+    private static final int USERS = 5;
+    private static final int CATEGORIES_PER_USER = 12;
+    private static final long SEED = 20240301L;
+    // Fixed so every run generates identical data
+    private static final long LAST_DAY = DateUtils.toEpochDay(2024, 3, 1);
+
+    private static final int WARMUP_RUNS = 2;
+    private static final int MIN_RUNS = 5;
+    private static final int MAX_RUNS = 200;
+    private static final long TARGET_NANOS_PER_METHOD = 1_000_000_000L;
+    private static final int SEARCH_LIMIT = 100;
+    // Rows exported before the heap is first sampled, and the growth allowed after that;
+    // far below the ~250 B/row the same rows take as Expense objects
+    private static final int EXPORT_BASELINE_ROWS = 10_000;
+    private static final long MAX_EXPORT_HEAP_GROWTH_BYTES = 8L * 1024 * 1024;
+    private static final int IMPORT_ROWS = 10_000; // per timed import
+    private static final int MIN_HEAP_COMPARISON_ROWS = 10_000; // fewer are lost in GC noise
+    // Scalar lookups take microseconds, so each timed run makes this many
+    private static final int LOOKUP_BATCH = 1_000;
+    private static final int REOPEN_BATCH = 100; // lookups per run that reopen the connection
+
+    private final Context context = RuntimeEnvironment.getApplication();
+
+    /**
+     * Timings of one method at one data size
+     */
+    private static final class Result {
+        final String method;
+        final int rows;
+        final int runs;
+        final long[] sortedNanos;
+
+        Result(String method, int rows, long[] nanos) {
+            this.method = method;
+            this.rows = rows;
+            this.runs = nanos.length;
+            this.sortedNanos = nanos.clone();
+            Arrays.sort(sortedNanos);
+        }
+
+        long percentile(int p) {
+            return sortedNanos[Math.min(runs - 1, (int) Math.ceil(p / 100.0 * runs) - 1)];
+        }
+    }
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void runSuite() throws Exception {
+        String sizes = System.getProperty("benchmark.sizes");
+        Assume.assumeTrue("benchmark.sizes not set", sizes != null);
+
+        List<Result> results = new ArrayList<>();
+        List<String> loads = new ArrayList<>();
+        for (String size : sizes.split(",")) {
+            int rows = Integer.parseInt(size.trim());
+            DBHelper.shutdown();
+            context.deleteDatabase("ExpenseTracker.db");
+            DBHelper dbHelper = DBHelper.getInstance(context);
+
+            long start = System.nanoTime();
+            int[] userIds = new SyntheticDataGenerator(USERS, CATEGORIES_PER_USER, rows, SEED, LAST_DAY).load(dbHelper);
+            long loadNanos = System.nanoTime() - start;
+            loads.add(String.format(Locale.ROOT, "{\"rows\": %d, \"millis\": %d}", rows, loadNanos / 1_000_000));
+
+            // The heaviest user, as the one most likely to notice slowness
+            int userId = userIds[0];
+            int categoryId = dbHelper.getCategoryCache(userId).get().getId("Food");
+            String username = SyntheticDataGenerator.username(0);
+
+            results.add(time("getAllExpenses", rows, () -> dbHelper.getAllExpenses(userId)));
+            results.add(time("getExpenseColumns", rows, () -> dbHelper.getExpenseColumns(userId, null)));
+            checkColumnsHeap(dbHelper, userId);
+            results.add(time("getAllCategories", rows, () -> dbHelper.getAllCategories(userId)));
+            results.add(time("getTotalExpenses", rows, () -> dbHelper.getTotalExpenses(userId)));
+            results.add(time("getCategoryTotal(id)", rows, () -> dbHelper.getCategoryTotal(userId, categoryId)));
+            results.add(time("getCategoryTotal(name)", rows, () -> dbHelper.getCategoryTotal(userId, "Food")));
+            // Cached statements against the rawQuery-and-Cursor path they replaced
+            SQLiteDatabase db = dbHelper.getReadableDatabase();
+            String[] foodArgs = {String.valueOf(categoryId)};
+            results.add(time("getCategoryTotal(id) x" + LOOKUP_BATCH, rows,
+                    batch(() -> dbHelper.getCategoryTotal(userId, categoryId))));
+            results.add(time("rawQuery category total x" + LOOKUP_BATCH, rows, batch(() -> queryLong(db,
+                    "SELECT total_cents FROM category_totals WHERE category_id = ?", foodArgs))));
+            results.add(time("getUserId x" + LOOKUP_BATCH, rows, batch(() -> dbHelper.getUserId(username))));
+            results.add(time("rawQuery user id x" + LOOKUP_BATCH, rows, batch(() -> queryLong(db,
+                    "SELECT id FROM users WHERE username = ?", new String[]{username}))));
+            // The shared connection against opening one for every call, as before it was kept
+            int expenseId = dbHelper.getExpensesPage(userId, DBHelper.FIRST_PAGE, DBHelper.FIRST_PAGE_ID, 1).get(0).getId();
+            results.add(time("getExpense x" + LOOKUP_BATCH, rows, batch(() -> dbHelper.getExpense(userId, expenseId))));
+            results.add(time("getExpense(reopen) x" + REOPEN_BATCH, rows, () -> {
+                Object expense = null;
+                for (int i = 0; i < REOPEN_BATCH; i++) {
+                    expense = dbHelper.getExpense(userId, expenseId);
+                    dbHelper.close();
+                }
+                return expense;
+            }));
+            results.add(time("searchExpenses", rows, () -> dbHelper.searchExpenses(userId, "pharm", SEARCH_LIMIT)));
+            results.add(time("authenticate", rows, () -> dbHelper.authenticate(username, SyntheticDataGenerator.PASSWORD)));
+            results.add(time("exportExpenses", rows, () -> dbHelper.exportExpenses(userId, null,
+                    ExpenseExportWriter.create(ExpenseExportWriter.Format.JSON_LINES, new NullWriter()), null, null)));
+            checkExportHeap(dbHelper, userId);
+
+            int total = 0;
+            for (int id : userIds) {
+                total += dbHelper.getExpenseCount(id);
+            }
+            assertEquals(rows, total);
+            assertEquals(userId, dbHelper.authenticate(username, SyntheticDataGenerator.PASSWORD));
+
+            // Writes go last, so the reads above are timed on the generated data only.
+            // They go to the lightest user, and the per-row path is the baseline for the import.
+            int writerId = userIds[USERS - 1];
+            String csv = BulkImportTest.buildCsv(IMPORT_ROWS);
+            results.add(time("addExpenses(csv " + IMPORT_ROWS + ")", rows, () -> {
+                try (CsvExpenseReader reader = new CsvExpenseReader(new StringReader(csv))) {
+                    return dbHelper.addExpenses(writerId, reader, null);
+                }
+            }));
+            Expense expense = new Expense("Lunch", "", 1250, "Food", "2024-03-01", false, "");
+            results.add(time("addExpense", rows, () -> dbHelper.addExpense(writerId, expense)));
+        }
+
+        File report = new File(System.getProperty("benchmark.report", DEFAULT_REPORT));
+        writeReport(report, loads, results);
+        System.out.println("DBHelper benchmark report written to " + report.getAbsolutePath());
+    }
+
+    /**
+     * Run a method until about {@link #TARGET_NANOS_PER_METHOD} has passed, within the run limits
+     */
+    private static Result time(String method, int rows, Callable<?> call) throws Exception {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            assertNotNull(call.call());
+        }
+        long[] nanos = new long[MAX_RUNS];
+        long spent = 0;
+        int runs = 0;
+        while (runs < MAX_RUNS && (runs < MIN_RUNS || spent < TARGET_NANOS_PER_METHOD)) {
+            long start = System.nanoTime();
+            call.call();
+            nanos[runs] = System.nanoTime() - start;
+            spent += nanos[runs++];
+        }
+        Result result = new Result(method, rows, Arrays.copyOf(nanos, runs));
+        System.out.printf(Locale.ROOT, "%-24s %8d rows: median %8d us, p90 %8d us (%d runs)%n",
+                method, rows, result.percentile(50) / 1000, result.percentile(90) / 1000, runs);
+        return result;
+    }
+
+    /**
+     * Repeat a call that is too fast to time alone
+     */
+    private static Callable<Object> batch(Callable<?> call) {
+        return () -> {
+            Object result = null;
+            for (int i = 0; i < LOOKUP_BATCH; i++) {
+                result = call.call();
+            }
+            return result;
+        };
+    }
+
+    private static long queryLong(SQLiteDatabase db, String sql, String[] args) {
+        Cursor cursor = db.rawQuery(sql, args);
+        long value = cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        cursor.close();
+        return value;
+    }
+
+    /**
+     * Export every expense of a user, sampling the heap once the first rows are written and at
+     * the end. Rows are streamed from the cursor, so the heap must not grow with their number.
+     */
+    private static void checkExportHeap(DBHelper dbHelper, int userId) throws IOException {
+        int expected = dbHelper.getExpenseCount(userId);
+        if (expected < 2 * EXPORT_BASELINE_ROWS) {
+            return; // too few rows to tell growth from noise
+        }
+        long[] heapAt = new long[2];
+        dbHelper.exportExpenses(userId, null, ExpenseExportWriter.create(ExpenseExportWriter.Format.JSON_LINES,
+                new NullWriter()), count -> {
+            if (count == EXPORT_BASELINE_ROWS) {
+                heapAt[0] = usedHeap();
+            } else if (count == expected) {
+                heapAt[1] = usedHeap();
+            }
+        }, null);
+        long growth = heapAt[1] - heapAt[0];
+        assertTrue("export heap grew by " + growth / 1024 + " KB over " + expected + " rows",
+                growth < MAX_EXPORT_HEAP_GROWTH_BYTES);
+    }
+
+    /**
+     * Compare the heap retained by a user's history as Expense objects and as a columns snapshot
+     */
+    private static void checkColumnsHeap(DBHelper dbHelper, int userId) {
+        int expenses = dbHelper.getExpenseCount(userId);
+        if (expenses < MIN_HEAP_COMPARISON_ROWS) {
+            return;
+        }
+        long objectBytes = retainedBytes(() -> dbHelper.getAllExpenses(userId));
+        long columnBytes = retainedBytes(() -> dbHelper.getExpenseColumns(userId, null));
+        System.out.printf(Locale.ROOT, "Retained heap for %d rows: Expense list %d B/row, columns %d B/row%n",
+                expenses, objectBytes / expenses, columnBytes / expenses);
+        assertTrue("columns should retain less than half the heap of Expense objects",
+                columnBytes * 2 < objectBytes);
+    }
+
+    /**
+     * Heap still in use after a load, with the result held, minus the heap in use before it
+     */
+    private static long retainedBytes(Supplier<Object> load) {
+        long before = usedHeap();
+        Object result = load.get();
+        long after = usedHeap();
+        assertNotNull(result);
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Write the report with a fixed key order and one result per line, so releases diff cleanly
+     */
+    private static void writeReport(File file, List<String> loads, List<Result> results) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            out.write("{\n");
+            out.write(String.format(Locale.ROOT, "  \"suite\": \"dbhelper\",\n  \"seed\": %d,\n  \"users\": %d,\n"
+                    + "  \"categoriesPerUser\": %d,\n  \"java\": \"%s\",\n", SEED, USERS, CATEGORIES_PER_USER,
+                    System.getProperty("java.version")));
+            out.write("  \"loads\": [\n    " + String.join(",\n    ", loads) + "\n  ],\n");
+            out.write("  \"results\": [\n");
+            for (int i = 0; i < results.size(); i++) {
+                Result result = results.get(i);
+                out.write(String.format(Locale.ROOT, "    {\"method\": \"%s\", \"rows\": %d, \"runs\": %d, "
+                                + "\"minMicros\": %d, \"medianMicros\": %d, \"p90Micros\": %d, \"maxMicros\": %d}%s\n",
+                        result.method, result.rows, result.runs, result.sortedNanos[0] / 1000,
+                        result.percentile(50) / 1000, result.percentile(90) / 1000,
+                        result.sortedNanos[result.runs - 1] / 1000, i < results.size() - 1 ? "," : ""));
+            }
+            out.write("  ]\n}\n");
+        }
+    }
+
+    private static class NullWriter extends Writer {
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.expensetracker.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import com.example.expensetracker.model.Expense;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that expenses reference categories by id: names are resolved on write, renames
+ * touch one row, categories in use cannot be deleted, and version 10 names migrate to ids.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DBHelperCategoryTest {
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void addExpense_resolvesNamesToIds() {
+        DBHelper dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+        int userId = register(dbHelper, "alice");
+        CategoryCache.Snapshot before = dbHelper.getCategoryCache(userId).get();
+
+        int lunch = (int) dbHelper.addExpense(userId, new Expense("Lunch", "", 1250, "food", "2024-03-01", false, ""));
+        int gym = (int) dbHelper.addExpense(userId, new Expense("Gym", "", 3000, "Gym", "2024-03-02", false, ""));
+        int blank = (int) dbHelper.addExpense(userId, new Expense("Blank", "", 100, " ", "2024-03-03", false, ""));
+
+        CategoryCache.Snapshot after = dbHelper.getCategoryCache(userId).get();
+        assertEquals(before.getId("Food"), dbHelper.getExpense(userId, lunch).getCategoryId());
+        assertEquals("Food", dbHelper.getExpense(userId, lunch).getCategory());
+        assertEquals(after.getId("Gym"), dbHelper.getExpense(userId, gym).getCategoryId());
+        assertEquals(DBHelper.DEFAULT_CATEGORY, dbHelper.getExpense(userId, blank).getCategory());
+        assertEquals(before.getNames().size() + 1, after.getNames().size());
+        assertTrue(dbHelper.verifySummaries());
+    }
+
+    @Test
+    public void renameCategory_isSeenByExpensesAndTotals() {
+        DBHelper dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+        int userId = register(dbHelper, "alice");
+        int lunch = (int) dbHelper.addExpense(userId, new Expense("Lunch", "", 1250, "Food", "2024-03-01", false, ""));
+        int food = dbHelper.getExpense(userId, lunch).getCategoryId();
+
+        assertTrue(dbHelper.renameCategory(userId, food, "Groceries"));
+        assertEquals("Groceries", dbHelper.getExpense(userId, lunch).getCategory());
+        assertEquals(1250, dbHelper.getCategoryTotal(userId, "Groceries"));
+        assertEquals(0, dbHelper.getCategoryTotal(userId, "Food"));
+
+        // Names stay unique
+        assertFalse(dbHelper.renameCategory(userId, food, "Bills"));
+    }
+
+    @Test
+    public void deleteCategory_isRestrictedWhileInUse() {
+        DBHelper dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+        int userId = register(dbHelper, "alice");
+        int lunch = (int) dbHelper.addExpense(userId, new Expense("Lunch", "", 1250, "Food", "2024-03-01", false, ""));
+        int food = dbHelper.getExpense(userId, lunch).getCategoryId();
+
+        assertFalse(dbHelper.deleteCategory(userId, food));
+        assertTrue(dbHelper.getCategoryCache(userId).get().contains("Food"));
+
+        dbHelper.deleteExpense(userId, lunch);
+        assertTrue(dbHelper.deleteCategory(userId, food));
+        assertFalse(dbHelper.getCategoryCache(userId).get().contains("Food"));
+        assertTrue(dbHelper.verifySummaries());
+    }
+
+    @Test
+    public void upgradeFromVersion10_mapsNamesToIds() {
+        Context context = RuntimeEnvironment.getApplication();
+        SQLiteDatabase legacy = SQLiteDatabase.openOrCreateDatabase(
+                context.getDatabasePath("ExpenseTracker.db"), null);
+        legacy.execSQL("CREATE TABLE categories(id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT UNIQUE, color TEXT)");
+        legacy.execSQL("CREATE TABLE users(id INTEGER PRIMARY KEY AUTOINCREMENT, username TEXT UNIQUE NOT NULL,"
+                + " password TEXT NOT NULL, created_at DATETIME DEFAULT CURRENT_TIMESTAMP)");
+        legacy.execSQL("CREATE TABLE expenses(id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT, description TEXT,"
+                + " amount_cents INTEGER NOT NULL, category TEXT, date INTEGER NOT NULL, is_recurring INTEGER,"
+                + " recurring_type TEXT, series_id INTEGER)");
+        legacy.execSQL("CREATE TABLE category_totals(category TEXT PRIMARY KEY NOT NULL,"
+                + " total_cents INTEGER NOT NULL, expense_count INTEGER NOT NULL)");
+        legacy.execSQL("CREATE TABLE monthly_totals(month INTEGER PRIMARY KEY,"
+                + " total_cents INTEGER NOT NULL, expense_count INTEGER NOT NULL)");
+        legacy.execSQL("CREATE VIRTUAL TABLE expenses_fts USING fts4(content=\"expenses\", title, description)");
+        legacy.execSQL("INSERT INTO categories(name, color) VALUES ('Food', '#FF5722'), ('Bills', '#4CAF50')");
+        legacy.execSQL("INSERT INTO expenses(title, description, amount_cents, category, date, is_recurring,"
+                + " recurring_type) VALUES ('Lunch', '', 1250, 'food', 19783, 0, ''),"
+                + " ('Gym', '', 3000, ' Gym ', 19784, 0, ''), ('Climbing', '', 2000, 'gym', 19785, 0, ''),"
+                + " ('Mystery', '', 500, NULL, 19786, 0, '')");
+        legacy.setVersion(10);
+        legacy.close();
+
+        DBHelper dbHelper = DBHelper.getInstance(context);
+        // No account existed yet, so the first one registered adopts the data
+        int userId = register(dbHelper, "alice");
+        List<Expense> expenses = dbHelper.getAllExpenses(userId);
+        assertEquals(4, expenses.size());
+        assertEquals("Other", expenses.get(0).getCategory());
+        assertEquals("Gym", expenses.get(1).getCategory());
+        assertEquals(expenses.get(1).getCategoryId(), expenses.get(2).getCategoryId());
+        assertEquals("Food", expenses.get(3).getCategory());
+
+        assertEquals(5000, dbHelper.getCategoryTotal(userId, "Gym"));
+        assertTrue(dbHelper.verifySummaries());
+        assertEquals(1, dbHelper.searchExpenses(userId, "clim", 10).size());
+        assertFalse(dbHelper.deleteCategory(userId, expenses.get(3).getCategoryId()));
+
+        // Later accounts start with the defaults only
+        int bobId = register(dbHelper, "bob");
+        assertTrue(dbHelper.getAllExpenses(bobId).isEmpty());
+        assertFalse(dbHelper.getCategoryCache(bobId).get().contains("Gym"));
+        assertTrue(dbHelper.getCategoryCache(bobId).get().contains("Food"));
+    }
+
+    private static int register(DBHelper dbHelper, String username) {
+        dbHelper.insertUser(username, "secret");
+        return dbHelper.getUserId(username);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.expensetracker.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import com.example.expensetracker.model.Expense;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link DBHelper#getExpense(int, int)} works on the shared connection and
+ * reopens it after a close. The cost of reopening per call is measured by {@link DBHelperBenchmarkSuite}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DBHelperConnectionTest {
+
+    private static final int ROWS = 100;
+
+    private DBHelper dbHelper;
+    private int userId;
+    private int[] ids;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.getApplication();
+        dbHelper = DBHelper.getInstance(context);
+        dbHelper.insertUser("alice", "secret");
+        userId = dbHelper.getUserId("alice");
+        ids = new int[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            Expense expense = new Expense("Expense " + i, "Test row", i * 100L + 50,
+                    "Food", "2024-01-01", false, "");
+            ids[i] = (int) dbHelper.addExpense(userId, expense);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void getExpense_sharedConnection() {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        runLookups(2 * ROWS, false);
+        assertSame(db, dbHelper.getReadableDatabase());
+        assertTrue(db.isOpen());
+    }
+
+    @Test
+    public void getExpense_reopensAfterClose() {
+        runLookups(2 * ROWS, true);
+        assertEquals("Expense 0", dbHelper.getExpense(userId, ids[0]).getTitle());
+    }
+
+    private void runLookups(int count, boolean closeAfterEachCall) {
+        for (int i = 0; i < count; i++) {
+            Expense expense = dbHelper.getExpense(userId, ids[i % ROWS]);
+            assertNotNull(expense);
+            assertEquals(ids[i % ROWS], expense.getId());
+            if (closeAfterEachCall) {
+                dbHelper.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.expensetracker.database;
+
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import com.example.expensetracker.exporter.ExpenseExportWriter;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.utils.DateUtils;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks filtering, progress and cancellation of {@link DBHelper#exportExpenses}.
+ * Export speed and heap use at scale are measured by {@link DBHelperBenchmarkSuite}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DBHelperExportTest {
+
+    private DBHelper dbHelper;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+        dbHelper.insertUser("alice", "secret");
+        userId = dbHelper.getUserId("alice");
+    }
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void export_writesOldestFirstWithinFilter() throws IOException {
+        insert(3);
+        dbHelper.insertUser("bob", "secret");
+        dbHelper.addExpense(dbHelper.getUserId("bob"), new Expense("Not alice's", "", 1, "Food", "2024-01-01", false, ""));
+
+        StringWriter out = new StringWriter();
+        int[] progress = {-1};
+        int rows = dbHelper.exportExpenses(userId, new ExpenseFilter().setAmountRange(101L, null),
+                ExpenseExportWriter.create(ExpenseExportWriter.Format.CSV, out), count -> progress[0] = count, null);
+
+        assertEquals(2, rows);
+        assertEquals(2, progress[0]);
+        assertEquals("title,description,amount,category,date,recurring,recurring_type\n"
+                + "Expense 1,Row 1,1.01,Transportation,2020-01-02,false,\n"
+                + "Expense 2,Row 2,1.02,Entertainment,2020-01-03,false,\n", out.toString());
+    }
+
+    @Test
+    public void export_stopsWhenCancelled() throws IOException {
+        insert(5_000);
+        CancellationSignal signal = new CancellationSignal();
+        int[] progress = {0};
+
+        try {
+            dbHelper.exportExpenses(userId, null, ExpenseExportWriter.create(ExpenseExportWriter.Format.CSV,
+                    new NullWriter()), count -> {
+                progress[0] = count;
+                signal.cancel();
+            }, signal);
+            fail("Expected the export to be cancelled");
+        } catch (OperationCanceledException expected) {
+            assertEquals(DBHelper.PROGRESS_INTERVAL, progress[0]);
+        }
+    }
+
+    private void insert(int rows) {
+        String[] categories = {"Food", "Transportation", "Entertainment", "Shopping", "Bills"};
+        long firstDay = DateUtils.parse("2020-01-01");
+        List<Expense> expenses = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            expenses.add(new Expense(0, "Expense " + i, "Row " + i, 100 + i % 5000, categories[i % categories.length],
+                    firstDay + i % 1500, false, ""));
+        }
+        assertEquals(rows, dbHelper.addExpenses(userId, expenses, null));
+    }
+
+    private static class NullWriter extends Writer {
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.expensetracker.database;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.utils.DateUtils;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that filtered history pages return exactly the matching expenses, in order,
+ * and that filtered totals agree with them.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DBHelperFilterTest {
+
+    private static final String[] CATEGORIES = {"Food", "Transportation", "Bills", "Shopping"};
+
+    private DBHelper dbHelper;
+    private int userId;
+    private final List<Expense> inserted = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+        dbHelper.insertUser("alice", "secret");
+        userId = dbHelper.getUserId("alice");
+        long today = DateUtils.today();
+        for (int i = 0; i < 400; i++) {
+            Expense expense = new Expense();
+            expense.setTitle("Expense " + i);
+            expense.setDescription("");
+            expense.setAmountCents(100 + (i * 37) % 10_000);
+            expense.setCategory(CATEGORIES[i % CATEGORIES.length]);
+            expense.setEpochDay(today - i % 90);
+            expense.setRecurring(i % 7 == 0);
+            expense.setRecurringType(i % 7 == 0 ? "Monthly" : "");
+            expense.setId((int) dbHelper.addExpense(userId, expense));
+            expense.setCategoryId(dbHelper.getExpense(userId, expense.getId()).getCategoryId());
+            inserted.add(expense);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void foodLast30Days() {
+        assertFilterMatches(ExpenseFilter.lastDays(30).setCategoryIds(ids("Food")));
+    }
+
+    @Test
+    public void categorySetAmountRangeAndRecurring() {
+        assertFilterMatches(new ExpenseFilter().setCategoryIds(ids("Bills", "Food")));
+        assertFilterMatches(new ExpenseFilter().setAmountRange(1_000L, 5_000L));
+        assertFilterMatches(new ExpenseFilter().setRecurringOnly(true).setAmountRange(null, 3_000L));
+        assertFilterMatches(new ExpenseFilter());
+    }
+
+    private List<Integer> ids(String... names) {
+        CategoryCache.Snapshot categories = dbHelper.getCategoryCache(userId).get();
+        List<Integer> ids = new ArrayList<>();
+        for (String name : names) {
+            ids.add(categories.getId(name));
+        }
+        return ids;
+    }
+
+    private void assertFilterMatches(ExpenseFilter filter) {
+        List<Integer> expected = new ArrayList<>();
+        long expectedTotal = 0;
+        // Inserted ids grow, so newest-first is by date then id, both descending
+        List<Expense> sorted = new ArrayList<>(inserted);
+        sorted.sort((a, b) -> a.getEpochDay() != b.getEpochDay()
+                ? Long.compare(b.getEpochDay(), a.getEpochDay())
+                : Integer.compare(b.getId(), a.getId()));
+        for (Expense expense : sorted) {
+            if (matches(filter, expense)) {
+                expected.add(expense.getId());
+                expectedTotal += expense.getAmountCents();
+            }
+        }
+
+        List<Integer> actual = new ArrayList<>();
+        long afterDate = DBHelper.FIRST_PAGE;
+        int afterId = DBHelper.FIRST_PAGE_ID;
+        List<Expense> page;
+        do {
+            page = dbHelper.getExpensesPage(userId, filter, afterDate, afterId, 25);
+            for (Expense expense : page) {
+                actual.add(expense.getId());
+                afterDate = expense.getEpochDay();
+                afterId = expense.getId();
+            }
+        } while (page.size() == 25);
+
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), dbHelper.getExpenseCount(userId, filter));
+        assertEquals(expectedTotal, dbHelper.getTotalExpenses(userId, filter));
+    }
+
+    private static boolean matches(ExpenseFilter filter, Expense expense) {
+        return (filter.getFromEpochDay() == null || expense.getEpochDay() >= filter.getFromEpochDay())
+                && (filter.getToEpochDay() == null || expense.getEpochDay() <= filter.getToEpochDay())
+                && (filter.getCategoryIds().isEmpty() || filter.getCategoryIds().contains(expense.getCategoryId()))
+                && (filter.getMinAmountCents() == null || expense.getAmountCents() >= filter.getMinAmountCents())
+                && (filter.getMaxAmountCents() == null || expense.getAmountCents() <= filter.getMaxAmountCents())
+                && (!filter.isRecurringOnly() || expense.isRecurring());
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.expensetracker.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import com.example.expensetracker.model.ExpenseFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs EXPLAIN QUERY PLAN over every DBHelper query and fails if one of them
+ * falls back to a full table scan instead of using an index.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DBHelperQueryPlanTest {
+
+    // Matches plan rows for a plain table scan in both the old ("SCAN TABLE expenses AS e")
+    // and the new ("SCAN e") SQLite formats; index scans carry a trailing "USING ... INDEX"
+    private static final Pattern TABLE_SCAN = Pattern.compile("^SCAN (?:TABLE )?(\\w+)(?: AS (\\w+))?$");
+
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        db = DBHelper.getInstance(RuntimeEnvironment.getApplication()).getReadableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void expenseQueries_useIndexes() {
+        assertNoTableScan(DBHelper.QUERY_ALL_EXPENSES, "1");
+        assertNoTableScan(DBHelper.QUERY_EXPENSES_PAGE, "1", "19723", "19723", "10", "50");
+        assertNoTableScan(DBHelper.QUERY_EXPENSE_BY_ID, "1", "1");
+        assertNoTableScan(DBHelper.QUERY_RECURRING_SERIES);
+        assertNoTableScan(DBHelper.QUERY_DAILY_TOTALS, "1", "19700", "19760");
+        assertNoTableScan(DBHelper.QUERY_CATEGORY_MONTH_TOTALS, "1", "19700", "19760");
+        assertNoTableScan(DBHelper.QUERY_CATEGORY_TOTAL, "1", "1");
+        assertNoTableScan(DBHelper.QUERY_MONTH_TOTAL, "1", "202401");
+        // Grand totals are read from the user's rows in monthly_totals
+        assertNoTableScan(DBHelper.QUERY_DASHBOARD, "1", "5");
+        assertNoTableScan(DBHelper.QUERY_TOTAL_EXPENSES, "1");
+        assertNoTableScan(DBHelper.QUERY_EXPENSE_COUNT, "1");
+        // Only the ranked, limited FTS matches are scanned
+        assertNoTableScanExcept(DBHelper.QUERY_SEARCH_EXPENSES, new String[]{"cof*", "title:cof*", "100", "1"}, "m");
+    }
+
+    @Test
+    public void filteredPageQueries_useIndexes() {
+        String[] keyset = {"19723", "19723", "10", "50"};
+        assertFilteredPageUsesIndex(ExpenseFilter.lastDays(30), keyset);
+        assertFilteredPageUsesIndex(ExpenseFilter.lastDays(30).setCategoryIds(Arrays.asList(1)), keyset);
+        assertFilteredPageUsesIndex(new ExpenseFilter().setCategoryIds(Arrays.asList(1, 5)), keyset);
+        assertFilteredPageUsesIndex(new ExpenseFilter().setAmountRange(100L, 5000L).setRecurringOnly(true), keyset);
+    }
+
+    @Test
+    public void filteredSearchQuery_scansOnlyMatches() {
+        List<String> args = new ArrayList<>();
+        String sql = DBHelper.buildFilteredSearchQuery(1, ExpenseFilter.lastDays(30).setCategoryIds(Arrays.asList(1)),
+                "cof*", "title:cof*", 100, args);
+        assertNoTableScanExcept(sql, args.toArray(new String[0]), "m");
+    }
+
+    private void assertFilteredPageUsesIndex(ExpenseFilter filter, String[] keyset) {
+        List<String> args = new ArrayList<>();
+        String sql = DBHelper.buildFilteredPageQuery(1, filter, args);
+        args.addAll(Arrays.asList(keyset));
+        assertNoTableScan(sql, args.toArray(new String[0]));
+    }
+
+    @Test
+    public void categoryQueries_useIndexes() {
+        // The unique (user_id, name) index finds one user's categories
+        assertNoTableScan(DBHelper.QUERY_CATEGORIES_WITH_TOTALS, "1");
+        assertNoTableScan(DBHelper.QUERY_CATEGORY_NAMES, "1");
+    }
+
+    @Test
+    public void userQueries_useIndexes() {
+        assertNoTableScan(DBHelper.QUERY_CREDENTIALS, "alice");
+        assertNoTableScan(DBHelper.QUERY_USERNAME_EXISTS, "alice");
+        assertNoTableScan(DBHelper.QUERY_USER_ID, "alice");
+    }
+
+    private void assertNoTableScan(String sql, String... args) {
+        assertNoTableScanExcept(sql, args);
+    }
+
+    private void assertNoTableScanExcept(String sql, String[] args, String... allowedScans) {
+        List<String> plan = explain(sql, args);
+        for (String detail : plan) {
+            Matcher matcher = TABLE_SCAN.matcher(detail);
+            if (!matcher.matches()) {
+                continue;
+            }
+            boolean allowed = false;
+            for (String name : allowedScans) {
+                if (name.equals(matcher.group(1)) || name.equals(matcher.group(2))) {
+                    allowed = true;
+                }
+            }
+            assertTrue("Table scan in plan " + plan + " for: " + sql, allowed);
+        }
+    }
+
+    private List<String> explain(String sql, String[] args) {
+        List<String> details = new ArrayList<>();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        int detailIndex = cursor.getColumnIndexOrThrow("detail");
+        while (cursor.moveToNext()) {
+            details.add(cursor.getString(detailIndex));
+        }
+        cursor.close();
+        assertFalse("Empty plan for: " + sql, details.isEmpty());
+        return details;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.expensetracker.database;
+
+import com.example.expensetracker.model.Expense;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the trigger-maintained summary tables follow inserts, updates and deletes.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DBHelperSummaryTest {
+
+    private DBHelper dbHelper;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+        dbHelper.insertUser("alice", "secret");
+        userId = dbHelper.getUserId("alice");
+    }
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void summaries_followInsertUpdateDelete() {
+        int lunch = (int) dbHelper.addExpense(userId, new Expense("Lunch", "", 1250, "Food", "2024-03-01", false, ""));
+        int taxi = (int) dbHelper.addExpense(userId, new Expense("Taxi", "", 700, "Transportation", "2024-03-02", false, ""));
+        dbHelper.addExpense(userId, new Expense("Dinner", "", 3000, "Food", "2024-04-10", false, ""));
+
+        assertEquals(4950, dbHelper.getTotalExpenses(userId));
+        assertEquals(4250, dbHelper.getCategoryTotal(userId, "Food"));
+        assertEquals(1950, dbHelper.getMonthTotal(userId, 2024, 3));
+        assertTrue(dbHelper.verifySummaries());
+
+        // Move lunch to another category and month
+        Expense updated = dbHelper.getExpense(userId, lunch);
+        updated.setCategory("Shopping");
+        updated.setDate("2024-04-01");
+        updated.setAmountCents(2000);
+        dbHelper.updateExpense(userId, updated);
+
+        assertEquals(3000, dbHelper.getCategoryTotal(userId, "Food"));
+        assertEquals(2000, dbHelper.getCategoryTotal(userId, "Shopping"));
+        assertEquals(700, dbHelper.getMonthTotal(userId, 2024, 3));
+        assertEquals(5000, dbHelper.getMonthTotal(userId, 2024, 4));
+        assertTrue(dbHelper.verifySummaries());
+
+        dbHelper.deleteExpense(userId, taxi);
+        assertEquals(0, dbHelper.getCategoryTotal(userId, "Transportation"));
+        assertEquals(5000, dbHelper.getTotalExpenses(userId));
+        assertTrue(dbHelper.verifySummaries());
+    }
+
+    @Test
+    public void rebuildSummaries_restoresConsistency() {
+        dbHelper.addExpense(userId, new Expense("Lunch", "", 1250, "Food", "2024-03-01", false, ""));
+        dbHelper.getWritableDatabase().execSQL("UPDATE category_totals SET total_cents = 1");
+        assertFalse(dbHelper.verifySummaries());
+
+        dbHelper.rebuildSummaries();
+        assertTrue(dbHelper.verifySummaries());
+        assertEquals(1250, dbHelper.getCategoryTotal(userId, "Food"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.expensetracker.database;
+
+import com.example.expensetracker.model.Expense;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that every read and write is confined to one user's expenses and categories.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DBHelperUserPartitionTest {
+
+    private DBHelper dbHelper;
+    private int alice;
+    private int bob;
+
+    @Before
+    public void setUp() {
+        dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+        dbHelper.insertUser("alice", "secret");
+        dbHelper.insertUser("bob", "secret");
+        alice = dbHelper.getUserId("alice");
+        bob = dbHelper.getUserId("bob");
+    }
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void reads_onlySeeOwnData() {
+        dbHelper.addExpense(alice, new Expense("Coffee", "", 450, "Food", "2024-03-01", false, ""));
+        dbHelper.addExpense(alice, new Expense("Rent", "", 100_000, "Bills", "2024-03-02", false, ""));
+        dbHelper.addExpense(bob, new Expense("Coffee beans", "", 1200, "Food", "2024-03-01", false, ""));
+
+        assertEquals(2, dbHelper.getAllExpenses(alice).size());
+        assertEquals(1, dbHelper.getAllExpenses(bob).size());
+        assertEquals(100_450, dbHelper.getTotalExpenses(alice));
+        assertEquals(1200, dbHelper.getTotalExpenses(bob));
+        assertEquals(1, dbHelper.getExpenseCount(bob));
+        assertEquals(450, dbHelper.getCategoryTotal(alice, "Food"));
+        assertEquals(1200, dbHelper.getCategoryTotal(bob, "Food"));
+        assertEquals(1200, dbHelper.getMonthTotal(bob, 2024, 3));
+        assertEquals(1200, dbHelper.getDashboardSummary(bob, 5).getTotalExpensesCents());
+        assertEquals("Coffee beans", dbHelper.searchExpenses(bob, "cof", 10).get(0).getTitle());
+        assertEquals(1, dbHelper.searchExpenses(bob, "cof", 10).size());
+        assertTrue(dbHelper.verifySummaries());
+    }
+
+    @Test
+    public void writes_cannotTouchOtherUsersData() {
+        int coffee = (int) dbHelper.addExpense(alice, new Expense("Coffee", "", 450, "Food", "2024-03-01", false, ""));
+        Expense expense = dbHelper.getExpense(alice, coffee);
+        int aliceFood = expense.getCategoryId();
+
+        assertNull(dbHelper.getExpense(bob, coffee));
+        expense.setAmountCents(1);
+        assertEquals(0, dbHelper.updateExpense(bob, expense));
+        dbHelper.deleteExpense(bob, coffee);
+        assertEquals(450, dbHelper.getExpense(alice, coffee).getAmountCents());
+
+        assertFalse(dbHelper.renameCategory(bob, aliceFood, "Groceries"));
+        dbHelper.deleteExpense(alice, coffee);
+        assertFalse(dbHelper.deleteCategory(bob, aliceFood));
+        assertTrue(dbHelper.getCategoryCache(alice).get().contains("Food"));
+
+        // Another user's category id is not honoured; the name is resolved among bob's categories
+        Expense borrowed = new Expense("Tea", "", 300, "Food", "2024-03-01", false, "");
+        borrowed.setCategoryId(aliceFood);
+        int tea = (int) dbHelper.addExpense(bob, borrowed);
+        assertEquals(dbHelper.getCategoryCache(bob).get().getId("Food"), dbHelper.getExpense(bob, tea).getCategoryId());
+        assertNotEquals(aliceFood, dbHelper.getExpense(bob, tea).getCategoryId());
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.expensetracker.database;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.utils.DateUtils;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link DBMetrics} records DBHelper calls only while enabled, flags main-thread
+ * calls with the caller's stack, and dumps what it recorded.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DBMetricsTest {
+
+    private DBHelper dbHelper;
+    private DBMetrics metrics;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+        dbHelper.insertUser("alice", "secret");
+        userId = dbHelper.getUserId("alice");
+        metrics = dbHelper.getMetrics();
+    }
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void disabled_recordsNothing() {
+        assertFalse(metrics.isEnabled());
+        dbHelper.getAllExpenses(userId);
+        dbHelper.getAllCategories(userId);
+        assertTrue(metrics.getOperations().isEmpty());
+    }
+
+    @Test
+    public void enabled_recordsCallsRowsAndLatency() {
+        insert(30);
+        metrics.setEnabled(true);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(30, dbHelper.getAllExpenses(userId).size());
+        }
+        int categories = dbHelper.getAllCategories(userId).size();
+        assertEquals(30, dbHelper.getExpenseCount(userId));
+
+        DBMetrics.Operation allExpenses = metrics.getOperation("getAllExpenses");
+        assertEquals(3, allExpenses.getCalls());
+        assertEquals(90, allExpenses.getRows());
+        assertEquals(3, allExpenses.getLatency().getCount());
+        assertTrue(allExpenses.getLatency().getValueAtPercentile(50) <= allExpenses.getLatency().getMax());
+        assertEquals(categories, metrics.getOperation("getAllCategories").getRows());
+        assertEquals(1, metrics.getOperation("getExpenseCount").getCalls());
+        assertNull(metrics.getOperation("getExpense"));
+
+        metrics.setEnabled(false);
+        dbHelper.getAllExpenses(userId);
+        assertEquals(3, metrics.getOperation("getAllExpenses").getCalls());
+
+        metrics.reset();
+        assertTrue(metrics.getOperations().isEmpty());
+    }
+
+    @Test
+    public void mainThreadCalls_flaggedWithStackSample() throws InterruptedException {
+        metrics.setEnabled(true);
+
+        // Robolectric runs tests on the main looper's thread
+        dbHelper.getTotalExpenses(userId);
+        Thread worker = new Thread(() -> dbHelper.getTotalExpenses(userId));
+        worker.start();
+        worker.join();
+
+        DBMetrics.Operation total = metrics.getOperation("getTotalExpenses");
+        assertEquals(2, total.getCalls());
+        assertEquals(1, total.getMainThreadCalls());
+        Throwable sample = total.getMainThreadSample();
+        assertNotNull(sample);
+        boolean fromTest = false;
+        for (StackTraceElement frame : sample.getStackTrace()) {
+            fromTest |= frame.getClassName().equals(DBMetricsTest.class.getName());
+        }
+        assertTrue("stack sample should show the caller", fromTest);
+    }
+
+    @Test
+    public void dump_listsOperationsAndSamples() throws Exception {
+        insert(10);
+        metrics.setEnabled(true);
+        dbHelper.getAllExpenses(userId);
+        dbHelper.getDashboardSummary(userId, 5);
+
+        StringWriter text = new StringWriter();
+        metrics.dump(new PrintWriter(text));
+        String dump = text.toString();
+        assertTrue(dump.contains("getAllExpenses"));
+        assertTrue(dump.contains("getDashboardSummary"));
+        assertTrue(dump.contains("Main thread call to getAllExpenses"));
+        assertTrue(dump.contains("at " + DBHelper.class.getName() + ".getAllExpenses"));
+
+        File file = File.createTempFile("db_metrics", ".txt");
+        try {
+            metrics.dumpToFile(file);
+            String written = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            assertTrue(written.contains("getAllExpenses"));
+            assertTrue(written.contains("Main thread call to getDashboardSummary"));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    private void insert(int rows) {
+        long firstDay = DateUtils.parse("2024-01-01");
+        List<Expense> expenses = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            expenses.add(new Expense(0, "Expense " + i, "", 100 + i, "Food", firstDay + i, false, ""));
+        }
+        assertEquals(rows, dbHelper.addExpenses(userId, expenses, null));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.expensetracker.database;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseColumns;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.utils.DateUtils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that an {@link ExpenseColumns} snapshot holds the same rows as
+ * {@link DBHelper#getAllExpenses(int)}. The heap each retains is compared by {@link DBHelperBenchmarkSuite}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ExpenseColumnsTest {
+
+    private static final String[] CATEGORIES = {"Food", "Transportation", "Entertainment", "Shopping", "Bills"};
+
+    private DBHelper dbHelper;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+        dbHelper.insertUser("alice", "secret");
+        userId = dbHelper.getUserId("alice");
+    }
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void columns_matchExpenses() {
+        insert(1_500); // more than the initial capacity, so the snapshot has to grow
+        ExpenseFilter filter = new ExpenseFilter().setCategoryIds(Collections.singletonList(
+                dbHelper.getCategoryCache(userId).get().getId("Bills")));
+
+        assertEquals(0, dbHelper.getExpenseColumns(userId, new ExpenseFilter().setDateRange(0L, 1L)).size());
+        assertEquals(300, dbHelper.getExpenseColumns(userId, filter).size());
+
+        List<Expense> expenses = dbHelper.getAllExpenses(userId);
+        ExpenseColumns columns = dbHelper.getExpenseColumns(userId, null);
+        assertEquals(expenses.size(), columns.size());
+        for (int i = 0; i < expenses.size(); i++) {
+            Expense expense = expenses.get(i);
+            assertEquals(expense.getId(), columns.getId(i));
+            assertEquals(expense.getTitle(), columns.getTitle(i));
+            assertEquals(expense.getDescription(), columns.getDescription(i));
+            assertEquals(expense.getAmountCents(), columns.getAmountCents(i));
+            assertEquals(expense.getCategory(), columns.getCategory(i));
+            assertEquals(expense.getCategoryId(), columns.getCategoryId(i));
+            assertEquals(expense.getDate(), columns.getDate(i));
+            assertEquals(expense.isRecurring(), columns.isRecurring(i));
+        }
+    }
+
+    private void insert(int rows) {
+        long firstDay = DateUtils.parse("2020-01-01");
+        List<Expense> expenses = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            expenses.add(new Expense(i, "Expense " + i, "Row " + i, 100 + i % 5000, CATEGORIES[i % CATEGORIES.length],
+                    firstDay + i % 1500, i % 20 == 0, i % 20 == 0 ? "monthly" : ""));
+        }
+        assertEquals(rows, dbHelper.addExpenses(userId, expenses, null));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.expensetracker.database;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.utils.DateUtils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the full-text index follows expense writes and still finds the right rows
+ * among 200k. Search latency is measured by {@link DBHelperBenchmarkSuite}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ExpenseSearchTest {
+
+    private static final int LARGE_ROWS = 200_000;
+    private static final int SEARCH_LIMIT = 100;
+
+    private DBHelper dbHelper;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+        dbHelper.insertUser("alice", "secret");
+        userId = dbHelper.getUserId("alice");
+    }
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void search_followsInsertUpdateDelete() {
+        int coffee = (int) dbHelper.addExpense(userId, new Expense("Coffee", "Starbucks downtown", 450, "Food", "2024-03-01", false, ""));
+        dbHelper.addExpense(userId, new Expense("Groceries", "coffee beans and milk", 2300, "Food", "2024-03-02", false, ""));
+
+        List<Expense> results = dbHelper.searchExpenses(userId, "cof", SEARCH_LIMIT);
+        assertEquals(2, results.size());
+        // A title match outranks a newer description-only match
+        assertEquals(coffee, results.get(0).getId());
+        assertEquals(1, dbHelper.searchExpenses(userId, "COF star", SEARCH_LIMIT).size());
+
+        Expense renamed = dbHelper.getExpense(userId, coffee);
+        renamed.setTitle("Espresso");
+        renamed.setDescription("");
+        dbHelper.updateExpense(userId, renamed);
+        assertEquals(1, dbHelper.searchExpenses(userId, "cof", SEARCH_LIMIT).size());
+        assertEquals(coffee, dbHelper.searchExpenses(userId, "espr", SEARCH_LIMIT).get(0).getId());
+
+        dbHelper.deleteExpense(userId, coffee);
+        assertTrue(dbHelper.searchExpenses(userId, "espr", SEARCH_LIMIT).isEmpty());
+    }
+
+    @Test
+    public void search_appliesFilter() {
+        dbHelper.addExpense(userId, new Expense("Coffee", "", 450, "Food", "2024-03-01", false, ""));
+        int beans = (int) dbHelper.addExpense(userId, new Expense("Coffee beans", "", 2300, "Shopping", "2024-03-02", false, ""));
+        dbHelper.addExpense(userId, new Expense("Coffee", "", 300, "Food", "2023-01-01", false, ""));
+
+        ExpenseFilter shopping = new ExpenseFilter().setCategoryIds(Collections.singletonList(
+                dbHelper.getCategoryCache(userId).get().getId("Shopping")));
+        List<Expense> results = dbHelper.searchExpenses(userId, "cof", shopping, SEARCH_LIMIT);
+        assertEquals(1, results.size());
+        assertEquals(beans, results.get(0).getId());
+
+        ExpenseFilter march = new ExpenseFilter().setDateRange(DateUtils.parse("2024-03-01"), DateUtils.parse("2024-03-31"));
+        assertEquals(2, dbHelper.searchExpenses(userId, "cof", march, SEARCH_LIMIT).size());
+        assertEquals(dbHelper.getExpenseCount(userId, march), dbHelper.searchExpenses(userId, "cof", march, SEARCH_LIMIT).size());
+        assertEquals(3, dbHelper.searchExpenses(userId, "cof", new ExpenseFilter(), SEARCH_LIMIT).size());
+    }
+
+    @Test
+    public void search_ignoresOperatorsAndEmptyQueries() {
+        dbHelper.addExpense(userId, new Expense("Taxi", "", 1200, "Transportation", "2024-03-01", false, ""));
+
+        assertEquals("tax* air*", DBHelper.toPrefixMatch("  Tax, \"air\" ", null));
+        assertEquals("title:tax*", DBHelper.toPrefixMatch("tax-", "title"));
+        assertNull(DBHelper.toPrefixMatch(" *- ", null));
+        assertTrue(dbHelper.searchExpenses(userId, "", SEARCH_LIMIT).isEmpty());
+        assertEquals(1, dbHelper.searchExpenses(userId, "\"taxi", SEARCH_LIMIT).size());
+        // "OR" is searched as a word rather than treated as an operator
+        assertTrue(dbHelper.searchExpenses(userId, "tax OR", SEARCH_LIMIT).isEmpty());
+    }
+
+    @Test
+    public void search_200kRows() {
+        String[] words = {"coffee", "lunch", "taxi", "groceries", "rent", "cinema",
+                "book", "gym", "pharmacy", "fuel", "dinner", "train"};
+        long firstDay = DateUtils.parse("2020-01-01");
+        List<Expense> expenses = new ArrayList<>(LARGE_ROWS);
+        for (int i = 0; i < LARGE_ROWS; i++) {
+            Expense expense = new Expense();
+            expense.setTitle(words[i % words.length] + " " + i);
+            expense.setDescription("paid at " + words[(i / words.length) % words.length]);
+            expense.setAmountCents(100 + i % 5000);
+            expense.setCategory("Food");
+            expense.setEpochDay(firstDay + i % 1500);
+            expense.setRecurringType("");
+            expenses.add(expense);
+        }
+        dbHelper.addExpenses(userId, expenses, null);
+
+        assertTrue(dbHelper.searchExpenses(userId, "nothingmatches", SEARCH_LIMIT).isEmpty());
+        assertEquals(SEARCH_LIMIT, dbHelper.searchExpenses(userId, "pharm", SEARCH_LIMIT).size());
+        assertEquals("rent 199996", dbHelper.searchExpenses(userId, "rent 199996", SEARCH_LIMIT).get(0).getTitle());
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.expensetracker.database;
+
+import com.example.expensetracker.model.Expense;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the scalar lookups that go through DBHelper's cached statements, including after the
+ * connection is reopened. Their latency against rawQuery is measured by {@link DBHelperBenchmarkSuite}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StatementCacheTest {
+
+    private DBHelper dbHelper;
+    private int userId;
+
+    @Before
+    public void setUp() {
+        dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+        dbHelper.insertUser("alice", "secret");
+        userId = dbHelper.getUserId("alice");
+        dbHelper.addExpense(userId, new Expense("Lunch", "", 1250, "Food", "2024-03-01", false, ""));
+    }
+
+    @After
+    public void tearDown() {
+        DBHelper.shutdown();
+    }
+
+    @Test
+    public void getCategoryTotal_usesCachedStatement() {
+        int food = dbHelper.getCategoryCache(userId).get().getId("Food");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1250, dbHelper.getCategoryTotal(userId, food));
+        }
+        assertEquals(1250, dbHelper.getCategoryTotal(userId, "Food"));
+        assertEquals(0, dbHelper.getCategoryTotal(userId, "Unknown"));
+    }
+
+    @Test
+    public void getUserId_usesCachedStatement() {
+        assertTrue(dbHelper.getUserId("alice") > 0);
+        assertEquals(-1, dbHelper.getUserId("bob"));
+        assertTrue(dbHelper.isUsernameExists("alice"));
+        assertEquals(dbHelper.getUserId("alice"), dbHelper.authenticate("alice", "secret"));
+        assertEquals(-1, dbHelper.authenticate("alice", "wrong"));
+    }
+
+    @Test
+    public void cachedStatements_surviveReopen() {
+        assertEquals(1, dbHelper.getExpenseCount(userId));
+        DBHelper.shutdown();
+
+        dbHelper = DBHelper.getInstance(RuntimeEnvironment.getApplication());
+        assertEquals(1, dbHelper.getExpenseCount(userId));
+        assertEquals(1250, dbHelper.getTotalExpenses(userId));
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.expensetracker.database;
+
+import com.example.expensetracker.model.Category;
+import com.example.expensetracker.model.Expense;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Generates realistic users, categories and expenses from a fixed seed and loads them
+ * through {@link DBHelper}, so performance problems that only show at production scale
+ * can be reproduced in tests.
+ *
+ * Expenses are split between users with a long tail (the first user is the heaviest),
+ * spread over a few years with more recent and weekend spending, and spread over categories
+ * with Zipf-like weights. Amounts follow a log-normal distribution around a typical amount
+ * per category. A small share are recurring templates, mostly monthly bills.
+ * Expenses are generated while they are inserted, so a million rows are never held at once.
+ */
+class SyntheticDataGenerator {
+
+    static final String PASSWORD = "benchmark";
+
+    // The categories every user starts with, with a typical amount in cents
+    private static final String[] DEFAULT_CATEGORIES = {"Food", "Transportation", "Entertainment", "Shopping",
+            "Bills", "Healthcare", "Other"};
+    private static final long[] TYPICAL_CENTS = {1_500, 2_500, 3_000, 4_500, 12_000, 6_000, 2_000};
+    private static final String[] EXTRA_CATEGORIES = {"Groceries", "Rent", "Travel", "Gifts", "Education",
+            "Pets", "Subscriptions", "Insurance", "Coffee", "Fuel", "Home", "Kids"};
+    private static final String[] MERCHANTS = {"Corner Shop", "City Market", "Metro", "Cinema", "Online Store",
+            "Pharmacy", "Cafe", "Bakery", "Gas Station", "Utility Co", "Bookshop", "Restaurant"};
+    private static final String[] RECURRING_TYPES = {"monthly", "monthly", "monthly", "weekly", "daily"};
+
+    private static final double AMOUNT_SIGMA = 0.8; // spread of the log-normal amounts
+    private static final double RECURRING_SHARE = 0.02;
+    private static final double DESCRIPTION_SHARE = 0.3;
+    // Share of days moved to the next weekend, lifting weekend spending from 2/7 to about 35%
+    private static final double WEEKEND_SHIFT = 0.1;
+    private static final int HISTORY_DAYS = 3 * 365;
+
+    private final int users;
+    private final int categoriesPerUser;
+    private final int expenses;
+    private final long seed;
+    private final long lastDay;
+
+    /**
+     * @param users Number of users
+     * @param categoriesPerUser Categories each user has; the defaults are always present
+     * @param expenses Expenses across all users
+     * @param seed Random seed; the same seed gives the same data
+     * @param lastDay Epoch day of the newest expense
+     */
+    SyntheticDataGenerator(int users, int categoriesPerUser, int expenses, long seed, long lastDay) {
+        this.users = users;
+        this.categoriesPerUser = categoriesPerUser;
+        this.expenses = expenses;
+        this.seed = seed;
+        this.lastDay = lastDay;
+    }
+
+    static String username(int index) {
+        return "user" + index;
+    }
+
+    /**
+     * Register the users, add their extra categories and insert their expenses
+     * @return the ids of the users, heaviest first
+     */
+    int[] load(DBHelper dbHelper) {
+        int[] userIds = new int[users];
+        int[] shares = expenseShares();
+        for (int i = 0; i < users; i++) {
+            dbHelper.insertUser(username(i), PASSWORD);
+            userIds[i] = dbHelper.getUserId(username(i));
+            List<String> names = categoryNames();
+            for (int c = DEFAULT_CATEGORIES.length; c < names.size(); c++) {
+                dbHelper.addCategory(userIds[i], new Category(names.get(c), String.format("#%06X", c * 0x131313 & 0xFFFFFF)));
+            }
+            dbHelper.addExpenses(userIds[i], expensesFor(i, shares[i]), null);
+        }
+        return userIds;
+    }
+
+    /**
+     * Split the expenses between users in proportion to 1 / (rank + 1)
+     */
+    int[] expenseShares() {
+        double total = 0;
+        for (int i = 0; i < users; i++) {
+            total += 1.0 / (i + 1);
+        }
+        int[] shares = new int[users];
+        int assigned = 0;
+        for (int i = 1; i < users; i++) {
+            shares[i] = (int) (expenses / (i + 1) / total);
+            assigned += shares[i];
+        }
+        shares[0] = expenses - assigned;
+        return shares;
+    }
+
+    List<String> categoryNames() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < categoriesPerUser || i < DEFAULT_CATEGORIES.length; i++) {
+            if (i < DEFAULT_CATEGORIES.length) {
+                names.add(DEFAULT_CATEGORIES[i]);
+            } else {
+                int extra = i - DEFAULT_CATEGORIES.length;
+                names.add(EXTRA_CATEGORIES[extra % EXTRA_CATEGORIES.length]
+                        + (extra < EXTRA_CATEGORIES.length ? "" : " " + (extra / EXTRA_CATEGORIES.length + 1)));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * The expenses of one user, generated as they are iterated
+     */
+    Iterable<Expense> expensesFor(int userIndex, int count) {
+        List<String> names = categoryNames();
+        double[] cumulativeWeights = new double[names.size()];
+        double total = 0;
+        for (int i = 0; i < names.size(); i++) {
+            total += 1.0 / Math.pow(i + 1, 0.9);
+            cumulativeWeights[i] = total;
+        }
+        double weightTotal = total;
+
+        return () -> new Iterator<Expense>() {
+            private final Random random = new Random(seed * 31 + userIndex);
+            private int generated;
+
+            @Override
+            public boolean hasNext() {
+                return generated < count;
+            }
+
+            @Override
+            public Expense next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                generated++;
+                int category = pick(cumulativeWeights, random.nextDouble() * weightTotal);
+                String name = names.get(category);
+                long typical = TYPICAL_CENTS[category % TYPICAL_CENTS.length];
+                long cents = Math.max(1, Math.round(typical * Math.exp(random.nextGaussian() * AMOUNT_SIGMA)));
+                boolean recurring = random.nextDouble() < RECURRING_SHARE;
+                String description = random.nextDouble() < DESCRIPTION_SHARE
+                        ? "Paid by card at " + MERCHANTS[random.nextInt(MERCHANTS.length)] : "";
+                return new Expense(0, MERCHANTS[random.nextInt(MERCHANTS.length)] + " " + name.toLowerCase(),
+                        description, cents, name, day(random), recurring,
+                        recurring ? RECURRING_TYPES[random.nextInt(RECURRING_TYPES.length)] : "");
+            }
+        };
+    }
+
+    /**
+     * A day in the history, denser towards the present and at weekends
+     */
+    private long day(Random random) {
+        // Squaring a uniform value puts more of the mass near zero, i.e. near lastDay
+        double u = random.nextDouble();
+        long day = lastDay - (long) (u * u * HISTORY_DAYS);
+        if (random.nextDouble() < WEEKEND_SHIFT) {
+            // 1970-01-01 was a Thursday, so epoch day % 7 is 2 on Saturdays and 3 on Sundays
+            long weekday = Math.floorMod(day, 7);
+            day += (weekday <= 2 ? 2 - weekday : 9 - weekday) + random.nextInt(2);
+            if (day > lastDay) {
+                day -= 7;
+            }
+        }
+        return day;
+    }
+
+    private static int pick(double[] cumulativeWeights, double target) {
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (target < cumulativeWeights[i]) {
+                return i;
+            }
+        }
+        return cumulativeWeights.length - 1;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.expensetracker.database;
+
+import com.example.expensetracker.model.Expense;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that generated data is repeatable for a seed and has the intended shape.
+ */
+public class SyntheticDataGeneratorTest {
+
+    private static final long LAST_DAY = 19_783; // 2024-03-01
+
+    @Test
+    public void sameSeed_givesSameExpenses() {
+        List<Expense> first = generate(new SyntheticDataGenerator(3, 10, 1000, 7, LAST_DAY));
+        List<Expense> second = generate(new SyntheticDataGenerator(3, 10, 1000, 7, LAST_DAY));
+
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getTitle(), second.get(i).getTitle());
+            assertEquals(first.get(i).getAmountCents(), second.get(i).getAmountCents());
+            assertEquals(first.get(i).getEpochDay(), second.get(i).getEpochDay());
+        }
+    }
+
+    @Test
+    public void expenses_haveRealisticShape() {
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(4, 15, 20_000, 1, LAST_DAY);
+        int[] shares = generator.expenseShares();
+        assertEquals(20_000, shares[0] + shares[1] + shares[2] + shares[3]);
+        assertTrue(shares[0] > shares[3]);
+        assertEquals(15, generator.categoryNames().size());
+
+        List<Expense> expenses = new ArrayList<>();
+        generator.expensesFor(0, 20_000).forEach(expenses::add);
+        int recurring = 0, weekend = 0, lastYear = 0;
+        for (Expense expense : expenses) {
+            assertTrue(expense.getAmountCents() > 0);
+            assertTrue(expense.getEpochDay() <= LAST_DAY);
+            assertTrue(generator.categoryNames().contains(expense.getCategory()));
+            recurring += expense.isRecurring() ? 1 : 0;
+            long weekday = Math.floorMod(expense.getEpochDay(), 7);
+            weekend += weekday == 2 || weekday == 3 ? 1 : 0;
+            lastYear += expense.getEpochDay() > LAST_DAY - 365 ? 1 : 0;
+        }
+        assertTrue(recurring > 200 && recurring < 600);
+        assertTrue(weekend > expenses.size() * 2 / 7);
+        assertTrue(lastYear > expenses.size() / 2);
+    }
+
+    private static List<Expense> generate(SyntheticDataGenerator generator) {
+        List<Expense> expenses = new ArrayList<>();
+        int[] shares = generator.expenseShares();
+        for (int i = 0; i < shares.length; i++) {
+            generator.expensesFor(i, shares[i]).forEach(expenses::add);
+        }
+        return expenses;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.expensetracker.utils;
+
+import android.content.Context;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the session snapshot follows writes, survives a reload and that both
+ * legacy preference files are migrated.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SessionManagerTest {
+
+    private final Context context = RuntimeEnvironment.getApplication();
+
+    @After
+    public void tearDown() {
+        SessionManager.clearInstance();
+    }
+
+    @Test
+    public void saveLogin_updatesSnapshotAndPersists() {
+        SessionManager sessionManager = SessionManager.getInstance(context);
+        assertFalse(sessionManager.isLoggedIn());
+        assertEquals(-1, sessionManager.getUserId());
+
+        sessionManager.saveLogin("alice", 7);
+        SessionManager.Session session = sessionManager.getSession();
+        assertTrue(session.isLoggedIn());
+        assertEquals("alice", sessionManager.getUsername());
+
+        SessionManager.clearInstance();
+        SessionManager reloaded = SessionManager.getInstance(context);
+        assertEquals(7, reloaded.getUserId());
+        assertEquals("alice", reloaded.getUsername());
+
+        reloaded.logout();
+        assertFalse(reloaded.isLoggedIn());
+        assertNull(reloaded.getUsername());
+        // The earlier snapshot is immutable
+        assertEquals(7, session.getUserId());
+    }
+
+    @Test
+    public void existingSession_isKept() {
+        context.getSharedPreferences("ExpenseTrackerSession", Context.MODE_PRIVATE).edit()
+                .putBoolean("isLoggedIn", true).putString("username", "alice").putInt("userId", 3).commit();
+
+        SessionManager sessionManager = SessionManager.getInstance(context);
+        assertTrue(sessionManager.isLoggedIn());
+        assertEquals(3, sessionManager.getUserId());
+    }
+
+    @Test
+    public void legacySession_onlyRemembersUsername() {
+        context.getSharedPreferences("user_session", Context.MODE_PRIVATE).edit()
+                .putString("username", "bob").commit();
+
+        SessionManager sessionManager = SessionManager.getInstance(context);
+        assertFalse(sessionManager.isLoggedIn());
+        assertEquals("bob", sessionManager.getSession().getUsername());
+        assertFalse(context.getSharedPreferences("user_session", Context.MODE_PRIVATE).contains("username"));
+    }
+}
@@ -0,0 +1,24 @@
+// JMH benchmarks for the per-row hot paths in :core. Run with ./gradlew :benchmarks:jmh;
+// results are written as JSON to build/results/jmh/results.json.
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    jmhImplementation(project(":core"))
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    // Forks, warmup and measurement counts are fixed in each benchmark's annotations;
+    // a fixed heap keeps GC behaviour the same from run to run
+    jvmArgs.set(listOf("-Xms1g", "-Xmx1g"))
+    resultFormat.set("JSON")
+    failOnError.set(true)
+}
@@ -0,0 +1,64 @@
+package com.example.expensetracker.benchmarks;
+
+import com.example.expensetracker.utils.ColorUtils;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of finding a row's category colour per bind: the adapter's former switch on
+ * toLowerCase() that parsed the colour every time, against the lookup by category id
+ * in colours parsed once, as CategoryCache.Snapshot does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CategoryColorBenchmark {
+
+    private static final int DEFAULT_COLOR = 0xFF607D8B;
+    private static final String[] NAMES = {"Food", "Transportation", "Entertainment", "Shopping", "Bills", "Health", "Other"};
+    private static final String[] COLORS = {"#FF5722", "#2196F3", "#FF9800", "#9C27B0", "#4CAF50", "#F44336", "#607D8B"};
+
+    private final Map<Integer, Integer> colorsById = new HashMap<>();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < NAMES.length; i++) {
+            colorsById.put(i + 1, ColorUtils.parseColor(COLORS[i], DEFAULT_COLOR));
+        }
+    }
+
+    @Benchmark
+    public int switchOnName() {
+        String category = NAMES[next++ % NAMES.length];
+        switch (category.toLowerCase()) {
+            case "food": return ColorUtils.parseColor("#FF5722", DEFAULT_COLOR);
+            case "transportation": return ColorUtils.parseColor("#2196F3", DEFAULT_COLOR);
+            case "entertainment": return ColorUtils.parseColor("#FF9800", DEFAULT_COLOR);
+            case "shopping": return ColorUtils.parseColor("#9C27B0", DEFAULT_COLOR);
+            case "bills": return ColorUtils.parseColor("#4CAF50", DEFAULT_COLOR);
+            case "health": return ColorUtils.parseColor("#F44336", DEFAULT_COLOR);
+            default: return ColorUtils.parseColor("#607D8B", DEFAULT_COLOR);
+        }
+    }
+
+    @Benchmark
+    public int lookupById() {
+        Integer color = colorsById.get(next++ % NAMES.length + 1);
+        return color != null ? color : DEFAULT_COLOR;
+    }
+}
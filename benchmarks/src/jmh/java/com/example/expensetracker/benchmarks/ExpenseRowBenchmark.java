@@ -0,0 +1,83 @@
+package com.example.expensetracker.benchmarks;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseColumns;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of turning a page of rows into display data: one {@link Expense} per row, with a
+ * String per text column as cursorToExpense builds them, against one {@link ExpenseColumns}
+ * snapshot that copies the text into a shared array.
+ * The rows are generated from a fixed seed and kept as char arrays, like a cursor window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ExpenseRowBenchmark {
+
+    private static final String[] CATEGORIES = {"Food", "Transportation", "Entertainment", "Shopping", "Bills"};
+
+    @Param({"50", "1000"})
+    public int rows;
+
+    private char[][] titles;
+    private char[][] descriptions;
+    private long[] amounts;
+    private long[] epochDays;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        titles = new char[rows][];
+        descriptions = new char[rows][];
+        amounts = new long[rows];
+        epochDays = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            titles[i] = ("Expense " + random.nextInt(100_000)).toCharArray();
+            descriptions[i] = ("Description " + random.nextInt(100_000)).toCharArray();
+            amounts[i] = random.nextInt(500_000);
+            epochDays[i] = 18_000 + random.nextInt(2_000);
+        }
+    }
+
+    @Benchmark
+    public List<Expense> expenseObjects() {
+        List<Expense> expenses = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Expense expense = new Expense(i, new String(titles[i]), new String(descriptions[i]), amounts[i],
+                    new String(CATEGORIES[i % CATEGORIES.length].toCharArray()), epochDays[i], false, "");
+            expense.setCategoryId(i % CATEGORIES.length + 1);
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+
+    @Benchmark
+    public ExpenseColumns expenseColumns() {
+        ExpenseColumns.Builder builder = new ExpenseColumns.Builder(rows);
+        for (int i = 0; i < rows; i++) {
+            int categoryId = i % CATEGORIES.length + 1;
+            builder.add(i, CharBuffer.wrap(titles[i]), CharBuffer.wrap(descriptions[i]), amounts[i], categoryId,
+                    builder.hasCategory(categoryId) ? null : CATEGORIES[i % CATEGORIES.length], epochDays[i], false);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.expensetracker.benchmarks;
+
+import com.example.expensetracker.exporter.ExpenseExportWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of formatting a batch of export rows in each {@link ExpenseExportWriter} format,
+ * with the output discarded so only escaping and number formatting are measured.
+ * Rows per second is rows divided by the reported time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ExportWriterBenchmark {
+
+    private static final long FIRST_DAY = 19_700; // 2023-12-09
+
+    @Param({"CSV", "JSON_LINES"})
+    public ExpenseExportWriter.Format format;
+
+    @Param({"10000"})
+    public int rows;
+
+    private final StringBuilder title = new StringBuilder();
+
+    @Benchmark
+    public long writeRows() throws IOException {
+        CountingWriter out = new CountingWriter();
+        try (ExpenseExportWriter writer = ExpenseExportWriter.create(format, out)) {
+            writer.writeHeader();
+            for (int i = 0; i < rows; i++) {
+                title.setLength(0);
+                title.append("Expense ").append(i);
+                writer.writeRow(title, "Imported, row", 100 + i % 5000, "Food", FIRST_DAY + i % 1500,
+                        i % 20 == 0, i % 20 == 0 ? "monthly" : "");
+            }
+        }
+        return out.chars;
+    }
+
+    /**
+     * Discards output, counting the characters written
+     */
+    private static class CountingWriter extends Writer {
+        long chars;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            chars += length;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
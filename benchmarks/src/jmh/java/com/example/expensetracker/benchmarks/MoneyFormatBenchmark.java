@@ -0,0 +1,54 @@
+package com.example.expensetracker.benchmarks;
+
+import com.example.expensetracker.utils.MoneyFormatter;
+import java.text.DecimalFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of formatting one amount per bind: the adapters' former "$" + DecimalFormat("#.##")
+ * on a double against {@link MoneyFormatter#format(long)} on cents.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MoneyFormatBenchmark {
+
+    private static final int AMOUNTS = 1024; // power of two so the index wraps with a mask
+
+    private final DecimalFormat decimalFormat = new DecimalFormat("#.##");
+    private long[] cents;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        cents = new long[AMOUNTS];
+        for (int i = 0; i < AMOUNTS; i++) {
+            cents[i] = random.nextInt(10_000_000);
+        }
+    }
+
+    @Benchmark
+    public String decimalFormat() {
+        return "$" + decimalFormat.format(cents[next++ & (AMOUNTS - 1)] / 100.0);
+    }
+
+    @Benchmark
+    public String moneyFormatter() {
+        return MoneyFormatter.format(cents[next++ & (AMOUNTS - 1)]);
+    }
+}
@@ -0,0 +1,14 @@
+// Plain JVM library: models, formatting, import/export and password hashing,
+// shared by the app and the benchmarks and testable without Android
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
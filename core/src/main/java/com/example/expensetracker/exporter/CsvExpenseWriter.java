@@ -0,0 +1,74 @@
+package com.example.expensetracker.exporter;
+
+import com.example.expensetracker.utils.DateUtils;
+import com.example.expensetracker.utils.MoneyFormatter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes expenses as CSV with the columns {@link com.example.expensetracker.importer.CsvExpenseReader}
+ * reads, so an export can be imported again. Fields containing a comma, quote or line break
+ * are quoted, with "" standing for a literal quote.
+ */
+public class CsvExpenseWriter extends ExpenseExportWriter {
+
+    static final String HEADER = "title,description,amount,category,date,recurring,recurring_type";
+
+    public CsvExpenseWriter(Writer out) {
+        super(out);
+    }
+
+    @Override
+    public void writeHeader() throws IOException {
+        write(HEADER);
+        write('\n');
+    }
+
+    @Override
+    public void writeRow(CharSequence title, CharSequence description, long amountCents, CharSequence category,
+                         long epochDay, boolean isRecurring, CharSequence recurringType) throws IOException {
+        writeField(title);
+        write(',');
+        writeField(description);
+        write(',');
+        write(MoneyFormatter.formatPlain(amountCents));
+        write(',');
+        writeField(category);
+        write(',');
+        write(DateUtils.format(epochDay));
+        write(',');
+        write(isRecurring ? "true" : "false");
+        write(',');
+        writeField(recurringType);
+        write('\n');
+    }
+
+    private void writeField(CharSequence value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (!needsQuotes(value)) {
+            write(value);
+            return;
+        }
+        write('"');
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                write('"');
+            }
+            write(c);
+        }
+        write('"');
+    }
+
+    private static boolean needsQuotes(CharSequence value) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.expensetracker.exporter;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes expenses to a text file one row at a time, so an export never holds more than
+ * the current row and a fixed-size buffer in memory.
+ *
+ * Rows are passed as fields rather than {@link com.example.expensetracker.model.Expense}
+ * objects, so a caller can stream them from a Cursor without building one per row.
+ * Characters are collected in an unsynchronized buffer and handed to the underlying writer
+ * in blocks. Not thread-safe.
+ */
+public abstract class ExpenseExportWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_CHARS = 16 * 1024;
+
+    /**
+     * The file formats an export can be written in
+     */
+    public enum Format {
+        CSV("text/csv", "csv"),
+        JSON_LINES("application/x-ndjson", "jsonl");
+
+        private final String mimeType;
+        private final String extension;
+
+        Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+
+        public String getMimeType() { return mimeType; }
+
+        public String getExtension() { return extension; }
+    }
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_CHARS];
+    private int position;
+
+    protected ExpenseExportWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Create a writer for a format
+     * @param format The file format
+     * @param out The destination; closed when the export writer is closed
+     */
+    public static ExpenseExportWriter create(Format format, Writer out) {
+        switch (format) {
+            case JSON_LINES:
+                return new JsonLinesExpenseWriter(out);
+            case CSV:
+            default:
+                return new CsvExpenseWriter(out);
+        }
+    }
+
+    /**
+     * Write anything that must come before the first row
+     */
+    public abstract void writeHeader() throws IOException;
+
+    /**
+     * Write one expense
+     * @param amountCents The amount in cents
+     * @param epochDay The date as days since 1970-01-01
+     */
+    public abstract void writeRow(CharSequence title, CharSequence description, long amountCents,
+                                  CharSequence category, long epochDay, boolean isRecurring,
+                                  CharSequence recurringType) throws IOException;
+
+    protected final void write(char c) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = c;
+    }
+
+    protected final void write(CharSequence text) throws IOException {
+        for (int i = 0, length = text.length(); i < length; i++) {
+            write(text.charAt(i));
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.expensetracker.exporter;
+
+import com.example.expensetracker.utils.DateUtils;
+import com.example.expensetracker.utils.MoneyFormatter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes expenses as JSON Lines: one object per line, e.g.
+ * {"title":"Coffee","description":"","amount":4.50,"category":"Food","date":"2024-03-01",
+ * "recurring":false,"recurring_type":""}. The amount is an exact decimal number.
+ */
+public class JsonLinesExpenseWriter extends ExpenseExportWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public JsonLinesExpenseWriter(Writer out) {
+        super(out);
+    }
+
+    @Override
+    public void writeHeader() {
+        // Every line stands alone; there is no header
+    }
+
+    @Override
+    public void writeRow(CharSequence title, CharSequence description, long amountCents, CharSequence category,
+                         long epochDay, boolean isRecurring, CharSequence recurringType) throws IOException {
+        write("{\"title\":");
+        writeString(title);
+        write(",\"description\":");
+        writeString(description);
+        write(",\"amount\":");
+        write(MoneyFormatter.formatPlain(amountCents));
+        write(",\"category\":");
+        writeString(category);
+        write(",\"date\":\"");
+        write(DateUtils.format(epochDay));
+        write("\",\"recurring\":");
+        write(isRecurring ? "true" : "false");
+        write(",\"recurring_type\":");
+        writeString(recurringType);
+        write("}\n");
+    }
+
+    private void writeString(CharSequence value) throws IOException {
+        write('"');
+        for (int i = 0, length = value != null ? value.length() : 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                write('\\');
+                write(c);
+            } else if (c == '\n') {
+                write("\\n");
+            } else if (c == '\r') {
+                write("\\r");
+            } else if (c == '\t') {
+                write("\\t");
+            } else if (c < 0x20) {
+                write("\\u00");
+                write(HEX[c >> 4]);
+                write(HEX[c & 0xf]);
+            } else {
+                write(c);
+            }
+        }
+        write('"');
+    }
+}
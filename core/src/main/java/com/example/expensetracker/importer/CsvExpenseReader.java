@@ -0,0 +1,210 @@
+package com.example.expensetracker.importer;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.utils.DateUtils;
+import com.example.expensetracker.utils.MoneyFormatter;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams expenses out of a CSV file one row at a time, so an import never holds
+ * more than the current row in memory.
+ *
+ * The first line is a header naming the columns; "title", "amount" and "date" (yyyy-MM-dd)
+ * are required, "description", "category", "recurring" and "recurring_type" are optional.
+ * Fields may be quoted with double quotes, with "" standing for a literal quote.
+ * Rows that cannot be parsed are skipped and counted in {@link #getSkippedRows()}.
+ */
+public class CsvExpenseReader implements Iterable<Expense>, Closeable {
+
+    private static final String DEFAULT_CATEGORY = "Other";
+    private static final char BYTE_ORDER_MARK = '\uFEFF'; // written by Excel at the start of UTF-8 files
+
+    private final BufferedReader reader;
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+
+    private int titleIndex = -1, descriptionIndex = -1, amountIndex = -1, categoryIndex = -1,
+            dateIndex = -1, recurringIndex = -1, recurringTypeIndex = -1;
+    private int skippedRows;
+    private boolean iteratorCreated;
+
+    public CsvExpenseReader(Reader reader) throws IOException {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        readHeader();
+    }
+
+    private void readHeader() throws IOException {
+        if (!readRecord()) {
+            throw new IOException("CSV file is empty");
+        }
+        if (!fields.isEmpty() && !fields.get(0).isEmpty() && fields.get(0).charAt(0) == BYTE_ORDER_MARK) {
+            fields.set(0, fields.get(0).substring(1));
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            switch (fields.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "title": titleIndex = i; break;
+                case "description": descriptionIndex = i; break;
+                case "amount": amountIndex = i; break;
+                case "category": categoryIndex = i; break;
+                case "date": dateIndex = i; break;
+                case "recurring": recurringIndex = i; break;
+                case "recurring_type": recurringTypeIndex = i; break;
+                default: break; // ignore unknown columns
+            }
+        }
+        if (titleIndex < 0 || amountIndex < 0 || dateIndex < 0) {
+            throw new IOException("CSV header must contain title, amount and date columns");
+        }
+    }
+
+    /**
+     * @return the number of rows skipped so far because they could not be parsed
+     */
+    public int getSkippedRows() {
+        return skippedRows;
+    }
+
+    /**
+     * The reader is forward-only, so it can be iterated once.
+     */
+    @Override
+    public Iterator<Expense> iterator() {
+        if (iteratorCreated) {
+            throw new IllegalStateException("CsvExpenseReader can only be iterated once");
+        }
+        iteratorCreated = true;
+        return new Iterator<Expense>() {
+            private Expense next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    next = readExpense();
+                }
+                return next != null;
+            }
+
+            @Override
+            public Expense next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Expense expense = next;
+                next = null;
+                return expense;
+            }
+        };
+    }
+
+    private Expense readExpense() {
+        try {
+            while (readRecord()) {
+                if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                    continue; // blank line
+                }
+                Expense expense = toExpense();
+                if (expense != null) {
+                    return expense;
+                }
+                skippedRows++;
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Expense toExpense() {
+        String title = get(titleIndex);
+        String amount = get(amountIndex);
+        String date = get(dateIndex);
+        // Short rows lack the trailing fields
+        if (title == null || title.trim().isEmpty() || amount == null || date == null) {
+            return null;
+        }
+        try {
+            Expense expense = new Expense();
+            expense.setTitle(title.trim());
+            expense.setDescription(valueOrEmpty(get(descriptionIndex)));
+            expense.setAmountCents(MoneyFormatter.parseCents(amount));
+            String category = get(categoryIndex);
+            expense.setCategory(category == null || category.trim().isEmpty() ? DEFAULT_CATEGORY : category.trim());
+            expense.setEpochDay(DateUtils.parse(date.trim()));
+            String recurring = get(recurringIndex);
+            boolean isRecurring = recurring != null
+                    && (recurring.trim().equals("1") || recurring.trim().equalsIgnoreCase("true"));
+            expense.setRecurring(isRecurring);
+            expense.setRecurringType(isRecurring ? valueOrEmpty(get(recurringTypeIndex)) : "");
+            return expense;
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException
+            return null;
+        }
+    }
+
+    private String get(int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index) : null;
+    }
+
+    private static String valueOrEmpty(String value) {
+        return value == null ? "" : value.trim();
+    }
+
+    /**
+     * Read one CSV record into {@link #fields}, following quoted fields across line breaks
+     * @return false at end of input
+     */
+    private boolean readRecord() throws IOException {
+        fields.clear();
+        field.setLength(0);
+        boolean inQuotes = false;
+        boolean sawAny = false;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            sawAny = true;
+            if (inQuotes) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        inQuotes = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+
+        if (!sawAny) {
+            return false;
+        }
+        fields.add(field.toString());
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
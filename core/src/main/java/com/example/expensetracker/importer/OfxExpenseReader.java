@@ -0,0 +1,189 @@
+package com.example.expensetracker.importer;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.utils.DateUtils;
+import com.example.expensetracker.utils.MoneyFormatter;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams expenses out of an OFX bank statement (SGML 1.x or XML 2.x), one
+ * &lt;STMTTRN&gt; transaction at a time.
+ *
+ * Only debits become expenses: the negative TRNAMT is stored as a positive amount.
+ * NAME becomes the title and MEMO the description. Credits and transactions that
+ * cannot be parsed are skipped and counted in {@link #getSkippedRows()}.
+ */
+public class OfxExpenseReader implements Iterable<Expense>, Closeable {
+
+    private static final String DEFAULT_CATEGORY = "Other";
+
+    private final BufferedReader reader;
+    private final StringBuilder token = new StringBuilder();
+    private int skippedRows;
+    private boolean iteratorCreated;
+
+    // Fields of the transaction being read
+    private String amount, datePosted, name, memo;
+
+    public OfxExpenseReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /**
+     * @return the number of transactions skipped so far
+     */
+    public int getSkippedRows() {
+        return skippedRows;
+    }
+
+    /**
+     * The reader is forward-only, so it can be iterated once.
+     */
+    @Override
+    public Iterator<Expense> iterator() {
+        if (iteratorCreated) {
+            throw new IllegalStateException("OfxExpenseReader can only be iterated once");
+        }
+        iteratorCreated = true;
+        return new Iterator<Expense>() {
+            private Expense next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    next = readExpense();
+                }
+                return next != null;
+            }
+
+            @Override
+            public Expense next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Expense expense = next;
+                next = null;
+                return expense;
+            }
+        };
+    }
+
+    private Expense readExpense() {
+        try {
+            boolean inTransaction = false;
+            String tag;
+            while ((tag = readTag()) != null) {
+                if (tag.equals("STMTTRN")) {
+                    inTransaction = true;
+                    amount = datePosted = name = memo = null;
+                } else if (tag.equals("/STMTTRN")) {
+                    inTransaction = false;
+                    Expense expense = toExpense();
+                    if (expense != null) {
+                        return expense;
+                    }
+                    skippedRows++;
+                } else if (inTransaction) {
+                    switch (tag) {
+                        case "TRNAMT": amount = readValue(); break;
+                        case "DTPOSTED": datePosted = readValue(); break;
+                        case "NAME": name = readValue(); break;
+                        case "MEMO": memo = readValue(); break;
+                        default: break;
+                    }
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Expense toExpense() {
+        if (amount == null || datePosted == null || datePosted.length() < 8) {
+            return null;
+        }
+        try {
+            long cents = MoneyFormatter.parseCents(amount);
+            if (cents >= 0) {
+                return null; // credit, not an expense
+            }
+            // DTPOSTED is YYYYMMDD optionally followed by a time and zone; parse rejects impossible dates
+            long epochDay = DateUtils.parse(datePosted.substring(0, 4) + "-" + datePosted.substring(4, 6)
+                    + "-" + datePosted.substring(6, 8));
+
+            Expense expense = new Expense();
+            expense.setTitle(name != null && !name.isEmpty() ? name : (memo != null ? memo : "Imported expense"));
+            expense.setDescription(memo != null ? memo : "");
+            expense.setAmountCents(-cents);
+            expense.setCategory(DEFAULT_CATEGORY);
+            expense.setEpochDay(epochDay);
+            expense.setRecurring(false);
+            expense.setRecurringType("");
+            return expense;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Skip to the next tag and return its upper-cased name, e.g. "STMTTRN" or "/STMTTRN"
+     * @return the tag name, or null at end of input
+     */
+    private String readTag() throws IOException {
+        int c;
+        while ((c = reader.read()) != -1 && c != '<') {
+            // skip text between tags
+        }
+        if (c == -1) {
+            return null;
+        }
+        token.setLength(0);
+        while ((c = reader.read()) != -1 && c != '>') {
+            token.append((char) c);
+        }
+        return token.toString().trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Read the text after an element's opening tag, up to the next tag or line end.
+     * SGML OFX leaves most elements unclosed, so the value ends at whichever comes first.
+     */
+    private String readValue() throws IOException {
+        token.setLength(0);
+        int c;
+        while (true) {
+            reader.mark(1);
+            c = reader.read();
+            if (c == -1 || c == '\n' || c == '\r') {
+                break;
+            }
+            if (c == '<') {
+                reader.reset();
+                break;
+            }
+            token.append((char) c);
+        }
+        return unescape(token.toString().trim());
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        return value.replace("&lt;", "<").replace("&gt;", ">")
+                .replace("&quot;", "\"").replace("&apos;", "'").replace("&amp;", "&");
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -4,7 +4,7 @@ public class Category {
     private int id;
     private String name;
     private String color;
-    private double totalAmount;
+    private long totalAmountCents;
 
     public Category() {}
 
@@ -13,11 +13,11 @@ public class Category {
         this.color = color;
     }
 
-    public Category(int id, String name, String color, double totalAmount) {
+    public Category(int id, String name, String color, long totalAmountCents) {
         this.id = id;
         this.name = name;
         this.color = color;
-        this.totalAmount = totalAmount;
+        this.totalAmountCents = totalAmountCents;
     }
 
     // Getters and Setters
@@ -30,6 +30,6 @@ public class Category {
     public String getColor() { return color; }
     public void setColor(String color) { this.color = color; }
 
-    public double getTotalAmount() { return totalAmount; }
-    public void setTotalAmount(double totalAmount) { this.totalAmount = totalAmount; }
+    public long getTotalAmountCents() { return totalAmountCents; }
+    public void setTotalAmountCents(long totalAmountCents) { this.totalAmountCents = totalAmountCents; }
 }
\ No newline at end of file
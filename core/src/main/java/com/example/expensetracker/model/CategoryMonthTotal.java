@@ -0,0 +1,23 @@
+package com.example.expensetracker.model;
+
+/**
+ * Amount spent in one category during one calendar month
+ */
+public class CategoryMonthTotal {
+    private final int month; // yyyyMM, e.g. 202403
+    private final String category;
+    private final long totalCents;
+
+    public CategoryMonthTotal(int month, String category, long totalCents) {
+        this.month = month;
+        this.category = category;
+        this.totalCents = totalCents;
+    }
+
+    // Getters
+    public int getMonth() { return month; }
+
+    public String getCategory() { return category; }
+
+    public long getTotalCents() { return totalCents; }
+}
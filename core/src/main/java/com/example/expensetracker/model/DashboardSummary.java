@@ -0,0 +1,18 @@
+package com.example.expensetracker.model;
+
+import java.util.List;
+
+public class DashboardSummary {
+    private final long totalExpensesCents;
+    private final List<Expense> recentExpenses;
+
+    public DashboardSummary(long totalExpensesCents, List<Expense> recentExpenses) {
+        this.totalExpensesCents = totalExpensesCents;
+        this.recentExpenses = recentExpenses;
+    }
+
+    // Getters
+    public long getTotalExpensesCents() { return totalExpensesCents; }
+
+    public List<Expense> getRecentExpenses() { return recentExpenses; }
+}
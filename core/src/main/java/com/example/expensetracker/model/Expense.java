@@ -0,0 +1,99 @@
+package com.example.expensetracker.model;
+
+import com.example.expensetracker.utils.DateUtils;
+
+public class Expense {
+    private int id;
+    private String title;
+    private String description;
+    private long amountCents; // minor units
+    private String category;
+    private int categoryId; // 0 until saved; DBHelper then resolves the category by name
+    private long epochDay; // days since 1970-01-01
+    private String formattedDate; // "yyyy-MM-dd", built on first getDate() call
+    private boolean isRecurring;
+    private String recurringType; // daily, weekly, monthly
+    private int userId; // owner, set when read from the database
+
+    public Expense() {}
+
+    public Expense(String title, String description, long amountCents, String category, String date, boolean isRecurring, String recurringType) {
+        this.title = title;
+        this.description = description;
+        this.amountCents = amountCents;
+        this.category = category;
+        setDate(date);
+        this.isRecurring = isRecurring;
+        this.recurringType = recurringType;
+    }
+
+    public Expense(int id, String title, String description, long amountCents, String category, String date, boolean isRecurring, String recurringType) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.amountCents = amountCents;
+        this.category = category;
+        setDate(date);
+        this.isRecurring = isRecurring;
+        this.recurringType = recurringType;
+    }
+
+    public Expense(int id, String title, String description, long amountCents, String category, long epochDay, boolean isRecurring, String recurringType) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.amountCents = amountCents;
+        this.category = category;
+        this.epochDay = epochDay;
+        this.isRecurring = isRecurring;
+        this.recurringType = recurringType;
+    }
+
+    // Getters and Setters
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public long getAmountCents() { return amountCents; }
+    public void setAmountCents(long amountCents) { this.amountCents = amountCents; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) {
+        this.category = category;
+        this.categoryId = 0; // the id belonged to the previous name
+    }
+
+    public int getCategoryId() { return categoryId; }
+    public void setCategoryId(int categoryId) { this.categoryId = categoryId; }
+
+    public long getEpochDay() { return epochDay; }
+    public void setEpochDay(long epochDay) {
+        this.epochDay = epochDay;
+        this.formattedDate = null;
+    }
+
+    public String getDate() {
+        if (formattedDate == null) {
+            formattedDate = DateUtils.format(epochDay);
+        }
+        return formattedDate;
+    }
+    public void setDate(String date) {
+        this.epochDay = DateUtils.parse(date);
+        this.formattedDate = date;
+    }
+
+    public boolean isRecurring() { return isRecurring; }
+    public void setRecurring(boolean recurring) { isRecurring = recurring; }
+
+    public String getRecurringType() { return recurringType; }
+    public void setRecurringType(String recurringType) { this.recurringType = recurringType; }
+
+    public int getUserId() { return userId; }
+    public void setUserId(int userId) { this.userId = userId; }
+}
\ No newline at end of file
@@ -0,0 +1,197 @@
+package com.example.expensetracker.model;
+
+import com.example.expensetracker.utils.DateUtils;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An immutable, column-oriented list of expenses for display. Each field is kept in one flat
+ * array indexed by position instead of one {@link Expense} object per row. Titles and
+ * descriptions share a single char array, and Strings are only built for the rows being bound.
+ * Each category name is stored once and shared by every row in that category.
+ */
+public final class ExpenseColumns {
+
+    public static final ExpenseColumns EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final int[] ids;
+    private final int[] epochDays;
+    private final long[] amountCents;
+    private final int[] categoryIds;
+    private final BitSet recurring;
+    private final Map<Integer, String> categoryNames;
+    private final char[] text;
+    // End offset in text of each row's title (2 * position) and description (2 * position + 1)
+    private final int[] textEnds;
+
+    private ExpenseColumns(Builder builder) {
+        size = builder.size;
+        ids = Arrays.copyOf(builder.ids, size);
+        epochDays = Arrays.copyOf(builder.epochDays, size);
+        amountCents = Arrays.copyOf(builder.amountCents, size);
+        categoryIds = Arrays.copyOf(builder.categoryIds, size);
+        recurring = (BitSet) builder.recurring.clone();
+        categoryNames = new HashMap<>(builder.categoryNames);
+        text = Arrays.copyOf(builder.text, builder.textLength);
+        textEnds = Arrays.copyOf(builder.textEnds, 2 * size);
+    }
+
+    public int size() { return size; }
+
+    public int getId(int position) { return ids[position]; }
+
+    public long getEpochDay(int position) { return epochDays[position]; }
+
+    public long getAmountCents(int position) { return amountCents[position]; }
+
+    public int getCategoryId(int position) { return categoryIds[position]; }
+
+    public boolean isRecurring(int position) { return recurring.get(position); }
+
+    /**
+     * @return the shared category name of a row
+     */
+    public String getCategory(int position) {
+        return categoryNames.get(categoryIds[position]);
+    }
+
+    /**
+     * @return the title of a row, decoded from the text column
+     */
+    public String getTitle(int position) {
+        return textAt(2 * position);
+    }
+
+    /**
+     * @return the description of a row, decoded from the text column
+     */
+    public String getDescription(int position) {
+        return textAt(2 * position + 1);
+    }
+
+    /**
+     * @return the date of a row as "yyyy-MM-dd"
+     */
+    public String getDate(int position) {
+        return DateUtils.format(epochDays[position]);
+    }
+
+    /**
+     * Compare two rows field by field without decoding their text
+     * @return true if the row at position shows the same as the row at otherPosition of other
+     */
+    public boolean sameContents(int position, ExpenseColumns other, int otherPosition) {
+        return ids[position] == other.ids[otherPosition]
+                && epochDays[position] == other.epochDays[otherPosition]
+                && amountCents[position] == other.amountCents[otherPosition]
+                && categoryIds[position] == other.categoryIds[otherPosition]
+                && recurring.get(position) == other.recurring.get(otherPosition)
+                && Objects.equals(getCategory(position), other.getCategory(otherPosition))
+                && sameText(2 * position, other, 2 * otherPosition)
+                && sameText(2 * position + 1, other, 2 * otherPosition + 1);
+    }
+
+    private boolean sameText(int index, ExpenseColumns other, int otherIndex) {
+        int start = index == 0 ? 0 : textEnds[index - 1];
+        int otherStart = otherIndex == 0 ? 0 : other.textEnds[otherIndex - 1];
+        int length = textEnds[index] - start;
+        if (length != other.textEnds[otherIndex] - otherStart) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text[start + i] != other.text[otherStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String textAt(int index) {
+        int start = index == 0 ? 0 : textEnds[index - 1];
+        return new String(text, start, textEnds[index] - start);
+    }
+
+    /**
+     * Appends rows in display order, growing its arrays as needed
+     */
+    public static final class Builder {
+        private int size;
+        private int[] ids;
+        private int[] epochDays;
+        private long[] amountCents;
+        private int[] categoryIds;
+        private final BitSet recurring = new BitSet();
+        private final Map<Integer, String> categoryNames = new HashMap<>();
+        private char[] text;
+        private int textLength;
+        private int[] textEnds;
+
+        /**
+         * @param expectedRows Initial capacity, e.g. a page size; more rows can still be added
+         */
+        public Builder(int expectedRows) {
+            int capacity = Math.max(expectedRows, 16);
+            ids = new int[capacity];
+            epochDays = new int[capacity];
+            amountCents = new long[capacity];
+            categoryIds = new int[capacity];
+            textEnds = new int[2 * capacity];
+            text = new char[capacity * 16];
+        }
+
+        /**
+         * @return true if the name of this category is already known, so the caller can
+         * skip reading it again
+         */
+        public boolean hasCategory(int categoryId) {
+            return categoryNames.containsKey(categoryId);
+        }
+
+        /**
+         * Add a row
+         * @param categoryName The category name; only read the first time a category id is seen
+         */
+        public Builder add(int id, CharSequence title, CharSequence description, long amountCents,
+                           int categoryId, String categoryName, long epochDay, boolean isRecurring) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                epochDays = Arrays.copyOf(epochDays, capacity);
+                this.amountCents = Arrays.copyOf(this.amountCents, capacity);
+                categoryIds = Arrays.copyOf(categoryIds, capacity);
+                textEnds = Arrays.copyOf(textEnds, 2 * capacity);
+            }
+            ids[size] = id;
+            epochDays[size] = (int) epochDay;
+            this.amountCents[size] = amountCents;
+            categoryIds[size] = categoryId;
+            recurring.set(size, isRecurring);
+            if (!categoryNames.containsKey(categoryId)) {
+                categoryNames.put(categoryId, categoryName);
+            }
+            appendText(2 * size, title);
+            appendText(2 * size + 1, description);
+            size++;
+            return this;
+        }
+
+        private void appendText(int index, CharSequence value) {
+            int length = value != null ? value.length() : 0;
+            if (textLength + length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+            }
+            for (int i = 0; i < length; i++) {
+                text[textLength++] = value.charAt(i);
+            }
+            textEnds[index] = textLength;
+        }
+
+        public ExpenseColumns build() {
+            return new ExpenseColumns(this);
+        }
+    }
+}
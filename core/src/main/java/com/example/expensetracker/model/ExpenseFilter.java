@@ -0,0 +1,97 @@
+package com.example.expensetracker.model;
+
+import com.example.expensetracker.utils.DateUtils;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Criteria for narrowing the expense history. Every criterion is optional; an empty
+ * filter matches all expenses. DBHelper turns a filter into a parameterised WHERE clause.
+ */
+public class ExpenseFilter {
+    private Long fromEpochDay;
+    private Long toEpochDay;
+    private List<Integer> categoryIds = Collections.emptyList();
+    private Long minAmountCents;
+    private Long maxAmountCents;
+    private boolean recurringOnly;
+
+    public ExpenseFilter() {}
+
+    /**
+     * @param days Number of days including today, e.g. 30 for "last 30 days"
+     * @return a filter matching expenses dated within the last days
+     */
+    public static ExpenseFilter lastDays(int days) {
+        long today = DateUtils.today();
+        return new ExpenseFilter().setDateRange(today - days + 1, today);
+    }
+
+    /**
+     * @param fromEpochDay First day included, or null for no lower bound
+     * @param toEpochDay Last day included, or null for no upper bound
+     */
+    public ExpenseFilter setDateRange(Long fromEpochDay, Long toEpochDay) {
+        this.fromEpochDay = fromEpochDay;
+        this.toEpochDay = toEpochDay;
+        return this;
+    }
+
+    /**
+     * @param categoryIds Ids of the categories to include; empty for every category
+     */
+    public ExpenseFilter setCategoryIds(Collection<Integer> categoryIds) {
+        // Sorted and de-duplicated so equal filters produce equal keys
+        this.categoryIds = categoryIds == null || categoryIds.isEmpty()
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(categoryIds)));
+        return this;
+    }
+
+    /**
+     * @param minAmountCents Smallest amount included, or null for no lower bound
+     * @param maxAmountCents Largest amount included, or null for no upper bound
+     */
+    public ExpenseFilter setAmountRange(Long minAmountCents, Long maxAmountCents) {
+        this.minAmountCents = minAmountCents;
+        this.maxAmountCents = maxAmountCents;
+        return this;
+    }
+
+    public ExpenseFilter setRecurringOnly(boolean recurringOnly) {
+        this.recurringOnly = recurringOnly;
+        return this;
+    }
+
+    // Getters
+    public Long getFromEpochDay() { return fromEpochDay; }
+
+    public Long getToEpochDay() { return toEpochDay; }
+
+    public List<Integer> getCategoryIds() { return categoryIds; }
+
+    public Long getMinAmountCents() { return minAmountCents; }
+
+    public Long getMaxAmountCents() { return maxAmountCents; }
+
+    public boolean isRecurringOnly() { return recurringOnly; }
+
+    /**
+     * @return true if the filter matches every expense
+     */
+    public boolean isEmpty() {
+        return fromEpochDay == null && toEpochDay == null && categoryIds.isEmpty()
+                && minAmountCents == null && maxAmountCents == null && !recurringOnly;
+    }
+
+    /**
+     * @return a string that is equal for filters with equal criteria, used to coalesce identical reads
+     */
+    public String toKey() {
+        return fromEpochDay + ".." + toEpochDay + "|" + categoryIds + "|"
+                + minAmountCents + ".." + maxAmountCents + "|" + recurringOnly;
+    }
+}
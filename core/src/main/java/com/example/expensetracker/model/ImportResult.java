@@ -0,0 +1,19 @@
+package com.example.expensetracker.model;
+
+/**
+ * Outcome of an import: expenses added and source rows that could not be read
+ */
+public class ImportResult {
+    private final int importedRows;
+    private final int skippedRows;
+
+    public ImportResult(int importedRows, int skippedRows) {
+        this.importedRows = importedRows;
+        this.skippedRows = skippedRows;
+    }
+
+    // Getters
+    public int getImportedRows() { return importedRows; }
+
+    public int getSkippedRows() { return skippedRows; }
+}
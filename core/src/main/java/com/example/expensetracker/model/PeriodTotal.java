@@ -0,0 +1,19 @@
+package com.example.expensetracker.model;
+
+/**
+ * Amount spent in one day, week or month
+ */
+public class PeriodTotal {
+    private final long startEpochDay;
+    private final long totalCents;
+
+    public PeriodTotal(long startEpochDay, long totalCents) {
+        this.startEpochDay = startEpochDay;
+        this.totalCents = totalCents;
+    }
+
+    // Getters
+    public long getStartEpochDay() { return startEpochDay; }
+
+    public long getTotalCents() { return totalCents; }
+}
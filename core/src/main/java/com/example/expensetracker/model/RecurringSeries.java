@@ -0,0 +1,19 @@
+package com.example.expensetracker.model;
+
+/**
+ * A recurring expense together with the date up to which its occurrences have been created
+ */
+public class RecurringSeries {
+    private final Expense template;
+    private final long lastMaterializedDay;
+
+    public RecurringSeries(Expense template, long lastMaterializedDay) {
+        this.template = template;
+        this.lastMaterializedDay = lastMaterializedDay;
+    }
+
+    // Getters
+    public Expense getTemplate() { return template; }
+
+    public long getLastMaterializedDay() { return lastMaterializedDay; }
+}
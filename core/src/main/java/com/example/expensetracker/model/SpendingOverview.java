@@ -0,0 +1,38 @@
+package com.example.expensetracker.model;
+
+import java.util.List;
+
+/**
+ * The spending figures shown in the dashboard's analytics section
+ */
+public class SpendingOverview {
+    private final long todayCents;
+    private final long thisWeekCents;
+    private final long thisMonthCents;
+    private final long lastMonthCents;
+    private final List<PeriodTotal> lastSevenDays;
+    private final List<CategoryMonthTotal> thisMonthByCategory; // largest first
+
+    public SpendingOverview(long todayCents, long thisWeekCents, long thisMonthCents, long lastMonthCents,
+                            List<PeriodTotal> lastSevenDays, List<CategoryMonthTotal> thisMonthByCategory) {
+        this.todayCents = todayCents;
+        this.thisWeekCents = thisWeekCents;
+        this.thisMonthCents = thisMonthCents;
+        this.lastMonthCents = lastMonthCents;
+        this.lastSevenDays = lastSevenDays;
+        this.thisMonthByCategory = thisMonthByCategory;
+    }
+
+    // Getters
+    public long getTodayCents() { return todayCents; }
+
+    public long getThisWeekCents() { return thisWeekCents; }
+
+    public long getThisMonthCents() { return thisMonthCents; }
+
+    public long getLastMonthCents() { return lastMonthCents; }
+
+    public List<PeriodTotal> getLastSevenDays() { return lastSevenDays; }
+
+    public List<CategoryMonthTotal> getThisMonthByCategory() { return thisMonthByCategory; }
+}
@@ -0,0 +1,256 @@
+package com.example.expensetracker.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted PBKDF2 password hashing. The iteration count is calibrated once per device so one
+ * hash takes about {@link #TARGET_MILLIS}, and is stored in every hash so it can change later.
+ * Hashing is deliberately slow: call it from a background thread only.
+ *
+ * Hashes are stored as "pbkdf2$algorithm$iterations$salt$hash" with hex salt and hash.
+ * Unsalted SHA-256 hex hashes from older versions still verify and report {@link #needsRehash}.
+ */
+public class PasswordHasher {
+
+    public static final long TARGET_MILLIS = 200; // latency budget for one hash on this device
+
+    static final int MIN_ITERATIONS = 10_000;
+    static final int MAX_ITERATIONS = 2_000_000;
+    private static final int CALIBRATION_ITERATIONS = 5_000;
+
+    private static final String PREFIX = "pbkdf2";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+
+    // PBKDF2WithHmacSHA256 needs API 26; older devices only have the SHA-1 variant
+    private static final String[][] ALGORITHMS = {
+            {"sha256", "PBKDF2WithHmacSHA256"},
+            {"sha1", "PBKDF2WithHmacSHA1"}};
+
+    /**
+     * Keeps the calibrated iteration count between runs, so calibration happens once per device
+     */
+    public interface IterationStore {
+        /**
+         * @return the saved iteration count for an algorithm, or 0 if there is none
+         */
+        int load(String algorithm);
+
+        void save(String algorithm, int iterations);
+    }
+
+    private final String algorithm; // short name stored in hashes
+    private final String jceName;
+    private final IterationStore store; // null when iterations are fixed
+    private final SecureRandom random = new SecureRandom();
+    private volatile int iterations; // 0 until calibrated
+    private volatile String dummyHash; // verified against for unknown users; created on first use
+
+    /**
+     * @param iterations A fixed iteration count, e.g. for tests and benchmarks
+     */
+    public PasswordHasher(int iterations) {
+        this(null, iterations);
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("iterations must be positive");
+        }
+    }
+
+    /**
+     * @param store Supplies the saved iteration count, or receives it after the first hash calibrates it
+     */
+    public PasswordHasher(IterationStore store) {
+        this(store, 0);
+    }
+
+    private PasswordHasher(IterationStore store, int iterations) {
+        String[] supported = supportedAlgorithm();
+        this.algorithm = supported[0];
+        this.jceName = supported[1];
+        this.store = store;
+        this.iterations = iterations > 0 ? iterations : store != null ? store.load(algorithm) : 0;
+    }
+
+    /**
+     * Hash a password with a new random salt
+     * @param password The password
+     * @return the encoded hash to store
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        int cost = getIterations();
+        return PREFIX + "$" + algorithm + "$" + cost + "$" + toHex(salt) + "$"
+                + toHex(derive(jceName, password, salt, cost));
+    }
+
+    /**
+     * Check a password against a stored hash in constant time
+     * @param password The password entered
+     * @param stored A hash from {@link #hash(String)} or a legacy SHA-256 hex hash
+     * @return true if the password matches
+     */
+    public boolean verify(String password, String stored) {
+        if (stored == null) {
+            return false;
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 5 || !PREFIX.equals(parts[0])) {
+            return MessageDigest.isEqual(sha256Hex(password).getBytes(StandardCharsets.US_ASCII),
+                    stored.getBytes(StandardCharsets.US_ASCII));
+        }
+        String jce = jceName(parts[1]);
+        if (jce == null) {
+            return false;
+        }
+        try {
+            byte[] expected = fromHex(parts[4]);
+            return MessageDigest.isEqual(expected, derive(jce, password, fromHex(parts[3]), Integer.parseInt(parts[2])));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Spend as long as {@link #verify} does on a real hash, for a user that does not exist,
+     * so the response time does not tell which usernames are registered
+     * @param password The password entered
+     * @return always false
+     */
+    public boolean verifyUnknownUser(String password) {
+        String hash = dummyHash;
+        if (hash == null) {
+            // Hashing costs the same as verifying, so the first call creates the dummy instead
+            dummyHash = hash("unknown user");
+            return false;
+        }
+        verify(password, hash);
+        return false;
+    }
+
+    /**
+     * @return the hash {@link #verifyUnknownUser} checks against, or null before its first call
+     */
+    String getDummyHash() {
+        return dummyHash;
+    }
+
+    /**
+     * @return true if a stored hash is a legacy hash or weaker than this device's current settings
+     */
+    public boolean needsRehash(String stored) {
+        String[] parts = stored.split("\\$");
+        if (parts.length != 5 || !PREFIX.equals(parts[0]) || !algorithm.equals(parts[1])) {
+            return true;
+        }
+        try {
+            return Integer.parseInt(parts[2]) < getIterations();
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @return the iteration count used for new hashes, calibrating it first if needed
+     */
+    public int getIterations() {
+        int current = iterations;
+        if (current > 0) {
+            return current;
+        }
+        synchronized (this) {
+            if (iterations == 0) {
+                iterations = calibrate(jceName, TARGET_MILLIS);
+                store.save(algorithm, iterations);
+            }
+            return iterations;
+        }
+    }
+
+    /**
+     * Time a short run of the KDF and scale it to the budget
+     * @return the iteration count taking about targetMillis on this device
+     */
+    static int calibrate(String jceName, long targetMillis) {
+        byte[] salt = new byte[SALT_BYTES];
+        derive(jceName, "calibration", salt, CALIBRATION_ITERATIONS); // warm up the provider
+        long start = System.nanoTime();
+        derive(jceName, "calibration", salt, CALIBRATION_ITERATIONS);
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        long scaled = CALIBRATION_ITERATIONS * (targetMillis * 1_000_000L) / elapsedNanos;
+        return (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, scaled / 1000 * 1000));
+    }
+
+    private static byte[] derive(String jceName, String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(jceName).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static String[] supportedAlgorithm() {
+        for (String[] candidate : ALGORITHMS) {
+            try {
+                SecretKeyFactory.getInstance(candidate[1]);
+                return candidate;
+            } catch (NoSuchAlgorithmException e) {
+                // Try the next one
+            }
+        }
+        throw new IllegalStateException("No PBKDF2 implementation available");
+    }
+
+    private static String jceName(String algorithm) {
+        for (String[] candidate : ALGORITHMS) {
+            if (candidate[0].equals(algorithm)) {
+                return candidate[1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The unsalted hash stored before PBKDF2, kept to verify and upgrade old accounts
+     */
+    static String sha256Hex(String password) {
+        try {
+            return toHex(MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd hex length");
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Not hex: " + hex);
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.expensetracker.utils;
+
+/**
+ * Parsing of the "#RRGGBB" and "#AARRGGBB" colour strings stored with categories,
+ * into the ARGB ints Android views take, without depending on android.graphics.
+ */
+public final class ColorUtils {
+
+    private ColorUtils() {}
+
+    /**
+     * Parse a hex colour
+     * @param color The colour, e.g. "#FF5722"; a 6-digit colour is fully opaque
+     * @param fallback Returned if the colour is null or not valid hex
+     * @return the colour as an ARGB int
+     */
+    public static int parseColor(String color, int fallback) {
+        if (color == null || color.length() != 7 && color.length() != 9 || color.charAt(0) != '#') {
+            return fallback;
+        }
+        long value = 0;
+        for (int i = 1; i < color.length(); i++) {
+            int digit = Character.digit(color.charAt(i), 16);
+            if (digit < 0) {
+                return fallback;
+            }
+            value = (value << 4) | digit;
+        }
+        if (color.length() == 7) {
+            value |= 0xFF000000L;
+        }
+        return (int) value;
+    }
+}
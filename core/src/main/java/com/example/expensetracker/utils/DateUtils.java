@@ -0,0 +1,131 @@
+package com.example.expensetracker.utils;
+
+import java.util.Calendar;
+
+/**
+ * Conversions between "yyyy-MM-dd" strings and epoch days (days since 1970-01-01).
+ * Expense dates are stored as epoch days so sorting and range filters are integer comparisons.
+ */
+public final class DateUtils {
+
+    private DateUtils() {}
+
+    /**
+     * Convert a calendar date to an epoch day
+     * @param year The year, e.g. 2024
+     * @param month The month, 1-12
+     * @param day The day of month, 1-31
+     * @return days since 1970-01-01
+     */
+    public static long toEpochDay(int year, int month, int day) {
+        // Proleptic Gregorian conversion, see http://howardhinnant.github.io/date_algorithms.html
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Convert the date held by a calendar (in its own time zone) to an epoch day
+     * @param calendar The calendar
+     * @return days since 1970-01-01
+     */
+    public static long toEpochDay(Calendar calendar) {
+        return toEpochDay(calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * @return today's date in the device time zone as an epoch day
+     */
+    public static long today() {
+        return toEpochDay(Calendar.getInstance());
+    }
+
+    /**
+     * Parse a "yyyy-MM-dd" string
+     * @param date The date string
+     * @return days since 1970-01-01
+     * @throws IllegalArgumentException if the string is not a valid yyyy-MM-dd date
+     */
+    public static long parse(String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            throw new IllegalArgumentException("Expected yyyy-MM-dd: " + date);
+        }
+        int year = parseDigits(date, 0, 4);
+        int month = parseDigits(date, 5, 7);
+        int day = parseDigits(date, 8, 10);
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            throw new IllegalArgumentException("Expected yyyy-MM-dd: " + date);
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Format an epoch day as "yyyy-MM-dd"
+     * @param epochDay Days since 1970-01-01
+     * @return the formatted date
+     */
+    public static String format(long epochDay) {
+        long[] ymd = toYearMonthDay(epochDay);
+        char[] chars = new char[10];
+        long year = ymd[0];
+        for (int i = 3; i >= 0; i--) {
+            chars[i] = (char) ('0' + year % 10);
+            year /= 10;
+        }
+        chars[4] = '-';
+        chars[5] = (char) ('0' + ymd[1] / 10);
+        chars[6] = (char) ('0' + ymd[1] % 10);
+        chars[7] = '-';
+        chars[8] = (char) ('0' + ymd[2] / 10);
+        chars[9] = (char) ('0' + ymd[2] % 10);
+        return new String(chars);
+    }
+
+    /**
+     * Split an epoch day into its calendar fields
+     * @param epochDay Days since 1970-01-01
+     * @return {year, month (1-12), day of month}
+     */
+    public static long[] toYearMonthDay(long epochDay) {
+        long z = epochDay + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return new long[]{year, month, day};
+    }
+
+    /**
+     * @param year The year, e.g. 2024
+     * @param month The month, 1-12
+     * @return the number of days in the month
+     */
+    public static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    private static int parseDigits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Expected yyyy-MM-dd: " + s);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
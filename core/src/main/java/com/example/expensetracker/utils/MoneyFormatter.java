@@ -0,0 +1,80 @@
+package com.example.expensetracker.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Formatting and parsing of money amounts held as a long count of cents.
+ * Formatting writes straight into a small char buffer, so a bind costs one String.
+ */
+public final class MoneyFormatter {
+
+    private static final String CURRENCY_SYMBOL = "$";
+
+    private MoneyFormatter() {}
+
+    /**
+     * Format cents as a currency string, e.g. 123456 -> "$1234.56"
+     * @param cents The amount in cents
+     * @return the formatted amount with currency symbol
+     */
+    public static String format(long cents) {
+        return format(cents, true);
+    }
+
+    /**
+     * Format cents without the currency symbol, e.g. 123456 -> "1234.56", for input fields
+     * @param cents The amount in cents
+     * @return the formatted amount
+     */
+    public static String formatPlain(long cents) {
+        return format(cents, false);
+    }
+
+    private static String format(long cents, boolean withSymbol) {
+        // 19 digits + sign + symbol + decimal point fits every long
+        char[] buffer = new char[24];
+        int pos = buffer.length;
+
+        boolean negative = cents < 0;
+        // Work with a non-positive value so Long.MIN_VALUE does not overflow
+        long value = negative ? cents : -cents;
+
+        buffer[--pos] = (char) ('0' - value % 10);
+        value /= 10;
+        buffer[--pos] = (char) ('0' - value % 10);
+        value /= 10;
+        buffer[--pos] = '.';
+        do {
+            buffer[--pos] = (char) ('0' - value % 10);
+            value /= 10;
+        } while (value != 0);
+
+        if (withSymbol) {
+            for (int i = CURRENCY_SYMBOL.length() - 1; i >= 0; i--) {
+                buffer[--pos] = CURRENCY_SYMBOL.charAt(i);
+            }
+        }
+        if (negative) {
+            buffer[--pos] = '-';
+        }
+        return new String(buffer, pos, buffer.length - pos);
+    }
+
+    /**
+     * Parse a user-entered decimal amount into cents, rounding half up to the nearest cent
+     * @param amount The amount, e.g. "12", "12.5" or "12.345"
+     * @return the amount in cents
+     * @throws NumberFormatException if the text is not a valid amount
+     */
+    public static long parseCents(String amount) {
+        try {
+            return new BigDecimal(amount.trim())
+                    .setScale(2, RoundingMode.HALF_UP)
+                    .movePointRight(2)
+                    .longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + amount);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.expensetracker.exporter;
+
+import com.example.expensetracker.importer.CsvExpenseReader;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.utils.DateUtils;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks escaping in both export formats and that a CSV export imports again unchanged.
+ * Writer throughput is measured by ExportWriterBenchmark in :benchmarks.
+ */
+public class ExpenseExportWriterTest {
+
+    private static final long DAY = DateUtils.parse("2024-03-01");
+
+    @Test
+    public void csv_roundTripsThroughImporter() throws IOException {
+        StringWriter out = new StringWriter();
+        try (ExpenseExportWriter writer = ExpenseExportWriter.create(ExpenseExportWriter.Format.CSV, out)) {
+            writer.writeHeader();
+            writer.writeRow("Coffee, large", "Said \"extra hot\"", 450, "Food", DAY, false, "");
+            writer.writeRow("Rent", "Line one\nline two", -100_000, "Bills", DAY + 1, true, "monthly");
+        }
+
+        List<Expense> imported = new ArrayList<>();
+        try (CsvExpenseReader reader = new CsvExpenseReader(new StringReader(out.toString()))) {
+            for (Expense expense : reader) {
+                imported.add(expense);
+            }
+        }
+        assertEquals(2, imported.size());
+        assertEquals("Coffee, large", imported.get(0).getTitle());
+        assertEquals("Said \"extra hot\"", imported.get(0).getDescription());
+        assertEquals(450, imported.get(0).getAmountCents());
+        assertEquals("Food", imported.get(0).getCategory());
+        assertEquals("2024-03-01", imported.get(0).getDate());
+        assertEquals("Line one\nline two", imported.get(1).getDescription());
+        assertEquals(-100_000, imported.get(1).getAmountCents());
+        assertTrue(imported.get(1).isRecurring());
+        assertEquals("monthly", imported.get(1).getRecurringType());
+    }
+
+    @Test
+    public void jsonLines_escapesStrings() throws IOException {
+        StringWriter out = new StringWriter();
+        try (ExpenseExportWriter writer = ExpenseExportWriter.create(ExpenseExportWriter.Format.JSON_LINES, out)) {
+            writer.writeHeader();
+            writer.writeRow("Tab\there", "Quote \" and \\ and \u0001", 5, "Food", DAY, false, "");
+        }
+
+        assertEquals("{\"title\":\"Tab\\there\",\"description\":\"Quote \\\" and \\\\ and \\u0001\","
+                + "\"amount\":0.05,\"category\":\"Food\",\"date\":\"2024-03-01\",\"recurring\":false,"
+                + "\"recurring_type\":\"\"}\n", out.toString());
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.expensetracker.importer;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.utils.DateUtils;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks header detection and that malformed rows are skipped and counted.
+ */
+public class CsvExpenseReaderTest {
+
+    @Test
+    public void shortAndInvalidRows_areSkipped() throws IOException {
+        CsvExpenseReader reader = new CsvExpenseReader(new StringReader("title,amount,date,category\n"
+                + "Lunch,12.50,2024-03-01,Food\n"
+                + "No date,3.00\n"
+                + "Bad amount,abc,2024-03-01\n"
+                + "\n"
+                + "Bus,2,2024-03-02\n"));
+        List<Expense> expenses = read(reader);
+
+        assertEquals(2, expenses.size());
+        assertEquals(1250, expenses.get(0).getAmountCents());
+        assertEquals(DateUtils.parse("2024-03-01"), expenses.get(0).getEpochDay());
+        assertEquals("Other", expenses.get(1).getCategory());
+        assertEquals(2, reader.getSkippedRows());
+    }
+
+    @Test
+    public void header_withByteOrderMarkAndTurkishLocale() throws IOException {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            List<Expense> expenses = read(new CsvExpenseReader(new StringReader(
+                    "\uFEFFTITLE,AMOUNT,DATE\nLunch,1,2024-03-01\n")));
+            assertEquals(1, expenses.size());
+            assertEquals("Lunch", expenses.get(0).getTitle());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    private static List<Expense> read(CsvExpenseReader reader) {
+        List<Expense> expenses = new ArrayList<>();
+        for (Expense expense : reader) {
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+}
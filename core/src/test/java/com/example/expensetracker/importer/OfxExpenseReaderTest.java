@@ -0,0 +1,36 @@
+package com.example.expensetracker.importer;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.utils.DateUtils;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that debits are read and that credits and impossible dates are skipped and counted.
+ */
+public class OfxExpenseReaderTest {
+
+    @Test
+    public void creditsAndImpossibleDates_areSkipped() {
+        OfxExpenseReader reader = new OfxExpenseReader(new StringReader("<OFX><BANKTRANLIST>\n"
+                + "<STMTTRN>\n<TRNAMT>-12.50\n<DTPOSTED>20240301120000[0:GMT]\n<NAME>Lunch\n<MEMO>Cafe &amp; bar\n</STMTTRN>\n"
+                + "<STMTTRN>\n<TRNAMT>100.00\n<DTPOSTED>20240302\n<NAME>Salary\n</STMTTRN>\n"
+                + "<STMTTRN>\n<TRNAMT>-3.00\n<DTPOSTED>20240230\n<NAME>Bus\n</STMTTRN>\n"
+                + "</BANKTRANLIST></OFX>\n"));
+        List<Expense> expenses = new ArrayList<>();
+        for (Expense expense : reader) {
+            expenses.add(expense);
+        }
+
+        assertEquals(1, expenses.size());
+        assertEquals("Lunch", expenses.get(0).getTitle());
+        assertEquals("Cafe & bar", expenses.get(0).getDescription());
+        assertEquals(1250, expenses.get(0).getAmountCents());
+        assertEquals(DateUtils.parse("2024-03-01"), expenses.get(0).getEpochDay());
+        assertEquals(2, reader.getSkippedRows());
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.expensetracker.security;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks salted hashing, legacy SHA-256 verification and cost calibration.
+ */
+public class PasswordHasherTest {
+
+    private final PasswordHasher hasher = new PasswordHasher(1000);
+
+    @Test
+    public void hash_verifiesOnlyTheRightPassword() {
+        String stored = hasher.hash("secret");
+
+        assertTrue(stored.startsWith("pbkdf2$"));
+        assertTrue(hasher.verify("secret", stored));
+        assertFalse(hasher.verify("Secret", stored));
+        assertFalse(hasher.verify("secret", null));
+        assertFalse(hasher.needsRehash(stored));
+    }
+
+    @Test
+    public void hash_usesNewSaltEachTime() {
+        assertNotEquals(hasher.hash("secret"), hasher.hash("secret"));
+    }
+
+    @Test
+    public void legacyHash_verifiesAndNeedsRehash() {
+        String legacy = PasswordHasher.sha256Hex("secret");
+
+        assertTrue(hasher.verify("secret", legacy));
+        assertFalse(hasher.verify("wrong", legacy));
+        assertTrue(hasher.needsRehash(legacy));
+    }
+
+    @Test
+    public void weakerHash_needsRehash() {
+        String weak = new PasswordHasher(500).hash("secret");
+
+        assertTrue(hasher.verify("secret", weak));
+        assertTrue(hasher.needsRehash(weak));
+    }
+
+    @Test
+    public void unknownUser_verifiesAgainstCurrentCost() {
+        assertNull(hasher.getDummyHash());
+        assertFalse(hasher.verifyUnknownUser("secret"));
+        String dummy = hasher.getDummyHash();
+        assertNotNull(dummy);
+        assertFalse(hasher.needsRehash(dummy));
+
+        assertFalse(hasher.verifyUnknownUser("unknown user"));
+        assertSame(dummy, hasher.getDummyHash());
+    }
+
+    @Test
+    public void calibrate_staysWithinBounds() {
+        int iterations = PasswordHasher.calibrate("PBKDF2WithHmacSHA1", 1);
+        assertTrue(iterations >= PasswordHasher.MIN_ITERATIONS);
+        assertTrue(iterations <= PasswordHasher.MAX_ITERATIONS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fixedIterations_mustBePositive() {
+        new PasswordHasher(0);
+    }
+}
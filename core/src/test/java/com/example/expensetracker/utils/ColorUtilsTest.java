@@ -0,0 +1,29 @@
+package com.example.expensetracker.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks hex colour parsing against the values android.graphics.Color.parseColor gives.
+ */
+public class ColorUtilsTest {
+
+    private static final int FALLBACK = 0xFF607D8B;
+
+    @Test
+    public void parsesOpaqueAndTranslucentColors() {
+        assertEquals(0xFFFF5722, ColorUtils.parseColor("#FF5722", FALLBACK));
+        assertEquals(0xFFff5722, ColorUtils.parseColor("#ff5722", FALLBACK));
+        assertEquals(0x802196F3, ColorUtils.parseColor("#802196F3", FALLBACK));
+    }
+
+    @Test
+    public void invalidColors_useFallback() {
+        assertEquals(FALLBACK, ColorUtils.parseColor(null, FALLBACK));
+        assertEquals(FALLBACK, ColorUtils.parseColor("FF5722", FALLBACK));
+        assertEquals(FALLBACK, ColorUtils.parseColor("#FF572", FALLBACK));
+        assertEquals(FALLBACK, ColorUtils.parseColor("#GG5722", FALLBACK));
+        assertEquals(FALLBACK, ColorUtils.parseColor("red", FALLBACK));
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.expensetracker.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks date parsing and formatting round trips and that impossible dates are rejected.
+ */
+public class DateUtilsTest {
+
+    @Test
+    public void parse_roundTripsThroughFormat() {
+        assertEquals(0, DateUtils.parse("1970-01-01"));
+        assertEquals(DateUtils.toEpochDay(2024, 2, 29), DateUtils.parse("2024-02-29"));
+        assertEquals(DateUtils.toEpochDay(2000, 2, 29), DateUtils.parse("2000-02-29"));
+        for (String date : new String[]{"2024-02-29", "2023-04-30", "1999-12-31", "2024-01-31"}) {
+            assertEquals(date, DateUtils.format(DateUtils.parse(date)));
+        }
+    }
+
+    @Test
+    public void parse_rejectsDaysPastTheEndOfTheMonth() {
+        for (String date : new String[]{"2024-02-30", "2023-02-29", "1900-02-29", "2024-02-31",
+                "2023-04-31", "2023-06-31", "2023-09-31", "2023-11-31", "2023-01-32", "2023-01-00",
+                "2023-13-01", "2023-00-10", "2023-1-01", "2023/01/01", null}) {
+            assertThrows(date, IllegalArgumentException.class, () -> DateUtils.parse(date));
+        }
+    }
+}